@@ -0,0 +1,33 @@
+// Regular expression engines, parser and match collection without IntelliJ Platform dependencies.
+// Used by the regexp_explorer plugin and runnable as the regexp-eval command line tool.
+plugins {
+    id("java-library")
+    id("application")
+}
+group = "com.intellij.sdk"
+version = "0.2.1"
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+}
+
+application {
+    applicationName = "regexp-eval"
+    mainClass.set("org.intellij.sdk.regexp.cli.RegexEval")
+    // 100 MB inputs are matched by several threads at once
+    applicationDefaultJvmArgs = listOf("-Xss8m")
+}
+
+dependencies {
+    testImplementation("org.junit.jupiter:junit-jupiter:5.8.2")
+}
+
+tasks.test {
+    useJUnitPlatform()
+    // java.util.regex recurses per character on the long inputs of the equivalence tests
+    jvmArgs("-Xss8m")
+}
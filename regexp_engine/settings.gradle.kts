@@ -0,0 +1 @@
+rootProject.name = "regexp_engine"
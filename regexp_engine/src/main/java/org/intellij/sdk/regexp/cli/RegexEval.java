@@ -0,0 +1,231 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.cli;
+
+import org.intellij.sdk.regexp.engine.ByteBufferCharSequence;
+import org.intellij.sdk.regexp.engine.CompiledRegex;
+import org.intellij.sdk.regexp.engine.Diagnostic;
+import org.intellij.sdk.regexp.engine.MatchBudget;
+import org.intellij.sdk.regexp.engine.MatchReport;
+import org.intellij.sdk.regexp.engine.PatternSetMatcher;
+import org.intellij.sdk.regexp.engine.PythonPatterns;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates every pattern of a pattern file against input files and prints match counts and timings.
+ * <p>
+ * Input files are matched in parallel, and the patterns of each file as one set by {@link PatternSetMatcher}.
+ * Files are read as one char per byte, see {@link ByteBufferCharSequence}.
+ * Exits with 1 if a pattern does not compile or runs out of time or stack on some file, with 2 on bad arguments or unreadable files.
+ */
+public final class RegexEval {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: regexp-eval [options] <pattern file> <input file>...",
+            "Every non-empty line of the pattern file is a pattern.",
+            "Options:",
+            "  --python         patterns use Python re syntax",
+            "  --flags=<IMSXA>  flags of every pattern: I ignore case, M multiline, S dot all, X comments,",
+            "                   A ASCII classes, Python patterns only",
+            "  --threads=<n>    input files matched at once, the number of processors by default",
+            "  --timeout=<ms>   time budget of one pattern on one file, 10000 by default");
+
+    private RegexEval() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * @return the exit code
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        boolean python = false;
+        String flagLetters = "";
+        int threads = Runtime.getRuntime().availableProcessors();
+        long timeoutMillis = 10_000;
+        List<Path> paths = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                if (arg.equals("--python")) {
+                    python = true;
+                } else if (arg.startsWith("--flags=")) {
+                    flagLetters = arg.substring("--flags=".length()).toUpperCase(Locale.ROOT);
+                } else if (arg.startsWith("--threads=")) {
+                    threads = Integer.parseInt(arg.substring("--threads=".length()));
+                } else if (arg.startsWith("--timeout=")) {
+                    timeoutMillis = Long.parseLong(arg.substring("--timeout=".length()));
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                } else {
+                    paths.add(Paths.get(arg));
+                }
+            }
+            if (paths.size() < 2 || threads < 1 || timeoutMillis < 1) {
+                throw new IllegalArgumentException("Expected a pattern file and at least one input file");
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(paths.get(0), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            err.println("Cannot read " + paths.get(0) + ": " + e.getMessage());
+            return 2;
+        }
+        int flags;
+        try {
+            flags = toFlags(flagLetters, python);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return 2;
+        }
+
+        boolean failed = false;
+        List<String> patterns = new ArrayList<>();
+        List<PatternSetMatcher.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isEmpty()) {
+                continue;
+            }
+            CompiledRegex regex = CompiledRegex.compile(python ? PythonPatterns.toJavaRegex(line) : line, flags);
+            if (!regex.isValid()) {
+                err.println(paths.get(0) + ":" + (i + 1) + ": " + regex.getDiagnostics().get(0));
+                failed = true;
+                continue;
+            }
+            for (Diagnostic diagnostic : regex.getDiagnostics()) {
+                if (diagnostic.getSeverity() == Diagnostic.Severity.WARNING) {
+                    err.println(paths.get(0) + ":" + (i + 1) + ": " + diagnostic);
+                }
+            }
+            patterns.add(line);
+            entries.add(PatternSetMatcher.Entry.of(regex.getPattern(), regex.getTree()));
+        }
+
+        MatchBudget budget = MatchBudget.of(Long.MAX_VALUE, timeoutMillis);
+        List<Path> inputs = paths.subList(1, paths.size());
+        long[] totals = new long[patterns.size()];
+        long totalBytes = 0;
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, inputs.size()));
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (Path input : inputs) {
+                results.add(executor.submit(() -> evaluate(input, patterns, entries, budget, totals)));
+            }
+            for (int i = 0; i < inputs.size(); i++) {
+                try {
+                    String report = results.get(i).get();
+                    failed |= report.contains(" TIMED_OUT ") || report.contains(" STACK_OVERFLOW ");
+                    totalBytes += Files.size(inputs.get(i));
+                    out.print(report);
+                } catch (ExecutionException e) {
+                    err.println("Cannot read " + inputs.get(i) + ": " + e.getCause().getMessage());
+                    return 2;
+                } catch (IOException e) {
+                    err.println("Cannot read " + inputs.get(i) + ": " + e.getMessage());
+                    return 2;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 2;
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        out.println("Total");
+        for (int i = 0; i < patterns.size(); i++) {
+            out.printf(Locale.ROOT, "  %10d  %s%n", totals[i], patterns.get(i));
+        }
+        out.printf(Locale.ROOT, "%d patterns, %d files, %.1f MB in %.2f s, %.1f MB/s%n", patterns.size(), inputs.size(),
+                totalBytes / 1e6, seconds, totalBytes / 1e6 / seconds);
+        return failed ? 1 : 0;
+    }
+
+    /**
+     * @return per-pattern lines for the file, its counts are added to {@code totals}
+     */
+    private static String evaluate(Path input, List<String> patterns, List<PatternSetMatcher.Entry> entries, MatchBudget budget,
+                                   long[] totals) throws IOException {
+        CharSequence text = ByteBufferCharSequence.map(input);
+        PatternSetMatcher.Result result = PatternSetMatcher.match(entries, text, budget, () -> false);
+        StringBuilder report = new StringBuilder(String.format(Locale.ROOT, "%s: %.1f MB, literal scan %.1f ms%n",
+                input, text.length() / 1e6, result.getScanNanos() / 1e6));
+        for (int i = 0; i < patterns.size(); i++) {
+            MatchReport matches = result.getReport(i);
+            int count = matches.getRanges().size();
+            synchronized (totals) {
+                totals[i] += count;
+            }
+            report.append(String.format(Locale.ROOT, "  %10d  %9.1f ms  %-14s %-11s  %s%n", count, result.getNanos(i) / 1e6,
+                    matches.getStatus(), result.isPrefiltered(i) ? "prefilter" : "full scan", patterns.get(i)));
+        }
+        return report.toString();
+    }
+
+    private static int toFlags(String letters, boolean python) {
+        List<String> pythonFlags = new ArrayList<>();
+        int flags = 0;
+        for (char letter : letters.toCharArray()) {
+            switch (letter) {
+                case 'I':
+                    flags |= Pattern.CASE_INSENSITIVE;
+                    break;
+                case 'M':
+                    flags |= Pattern.MULTILINE;
+                    break;
+                case 'S':
+                    flags |= Pattern.DOTALL;
+                    break;
+                case 'X':
+                    flags |= Pattern.COMMENTS;
+                    break;
+                case 'A':
+                    if (!python) {
+                        throw new IllegalArgumentException("Flag A applies to Python patterns only");
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown flag " + letter);
+            }
+            pythonFlags.add(String.valueOf(letter));
+        }
+        return python ? PythonPatterns.toJavaFlags(pythonFlags) : flags;
+    }
+}
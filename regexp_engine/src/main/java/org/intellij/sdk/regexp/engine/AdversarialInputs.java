@@ -0,0 +1,347 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds inputs that make a backtracking matcher try many ways of splitting the text between quantifiers.
+ * <p>
+ * Every input is a prefix that leads the matcher to a loop, a pump string repeated many times and a suffix that
+ * makes the rest of the pattern fail, so the matcher gives up only after it tried the pump split every possible way.
+ * Pumps are chosen for the same shapes {@link BacktrackingAnalyzer} reports: loops whose body can match the same
+ * text in several ways, and adjacent loops over overlapping characters. Every other loop gets a pump too,
+ * the measured growth decides whether it matters.
+ */
+public final class AdversarialInputs {
+
+    private static final int MAX_ATTACKS = 8;
+    /**
+     * Bounded loops with more repetitions than this are pumped like unbounded ones.
+     */
+    private static final int LARGE_REPEAT = 10;
+    // tried in order, a suffix must stop the loop and must not continue the pattern
+    private static final int[] SUFFIXES = {'!', '#', '~', ' ', 'x', 'Z', '0', '\n', 0};
+    // readable representatives of a character set, before falling back to its first character
+    private static final int[] PREFERRED_CHARS = {'a', 'b', 'x', '0', '1', ' ', '-', '.', 'A', '_'};
+
+    private AdversarialInputs() {
+    }
+
+    /**
+     * One family of inputs: {@code prefix + pump * n + suffix} for growing n.
+     */
+    public static final class Attack {
+
+        private final String prefix;
+        private final String pump;
+        private final String suffix;
+        private final int start;
+        private final int end;
+        private final String description;
+
+        private Attack(String prefix, String pump, String suffix, int start, int end, String description) {
+            this.prefix = prefix;
+            this.pump = pump;
+            this.suffix = suffix;
+            this.start = start;
+            this.end = end;
+            this.description = description;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public String getPump() {
+            return pump;
+        }
+
+        public String getSuffix() {
+            return suffix;
+        }
+
+        /**
+         * @return offset of the pumped part in the pattern
+         */
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public int length(int repetitions) {
+            return prefix.length() + pump.length() * repetitions + suffix.length();
+        }
+
+        public String build(int repetitions) {
+            StringBuilder input = new StringBuilder(length(repetitions)).append(prefix);
+            for (int i = 0; i < repetitions; i++) {
+                input.append(pump);
+            }
+            return input.append(suffix).toString();
+        }
+    }
+
+    /**
+     * @return attacks on the loops of the pattern, the ones on the riskiest shapes first, empty if it has no loop to pump
+     */
+    public static List<Attack> generate(RegexNode root) {
+        List<Attack> risky = new ArrayList<>();
+        List<Attack> plain = new ArrayList<>();
+        visit(root, "", CharSet.EMPTY, false, risky, plain);
+        // the same input may come from several loops, the first description wins
+        Map<String, Attack> unique = new LinkedHashMap<>();
+        for (Attack attack : risky) {
+            unique.putIfAbsent(attack.prefix + '\0' + attack.pump + '\0' + attack.suffix, attack);
+        }
+        for (Attack attack : plain) {
+            unique.putIfAbsent(attack.prefix + '\0' + attack.pump + '\0' + attack.suffix, attack);
+        }
+        List<Attack> attacks = new ArrayList<>(unique.values());
+        return attacks.size() > MAX_ATTACKS ? attacks.subList(0, MAX_ATTACKS) : attacks;
+    }
+
+    /**
+     * @param prefix text that brings a match from the start of the pattern to {@code node}
+     * @param follow characters that can come right after a match of {@code node}
+     */
+    private static void visit(RegexNode node, String prefix, CharSet follow, boolean atomic, List<Attack> risky, List<Attack> plain) {
+        switch (node.getKind()) {
+            case ATOMIC_GROUP:
+                visit(node.getBody(), prefix, follow, true, risky, plain);
+                return;
+            case GROUP:
+                visit(node.getBody(), prefix, follow, atomic, risky, plain);
+                return;
+            case ALTERNATION:
+                for (RegexNode alternative : node.getChildren()) {
+                    visit(alternative, prefix, follow, atomic, risky, plain);
+                }
+                return;
+            case REPEAT:
+                if (!atomic && isLoop(node)) {
+                    attackLoop(node, prefix, follow, risky, plain);
+                }
+                // the body can be followed by its own next iteration
+                visit(node.getBody(), prefix, follow.union(node.getBody().getFirstChars()), atomic || node.isPossessive(), risky, plain);
+                return;
+            case SEQUENCE: {
+                List<RegexNode> items = node.getChildren();
+                StringBuilder itemPrefix = new StringBuilder(prefix);
+                for (int i = 0; i < items.size(); i++) {
+                    CharSet itemFollow = follow(items, i + 1, follow);
+                    if (!atomic) {
+                        attackAdjacentLoops(items, i, itemPrefix.toString(), follow, risky);
+                    }
+                    visit(items.get(i), itemPrefix.toString(), itemFollow, atomic, risky, plain);
+                    itemPrefix.append(witness(items.get(i), CharSet.EMPTY, false));
+                }
+                return;
+            }
+            default:
+                // lookarounds do not consume the pumped text, leaves have nothing to pump
+        }
+    }
+
+    private static void attackLoop(RegexNode loop, String prefix, CharSet follow, List<Attack> risky, List<Attack> plain) {
+        RegexNode body = unwrap(loop.getBody());
+        CharSet first = body.getFirstChars();
+        if (containsLoop(body) && first.intersects(body.getLastChars())) {
+            // an iteration can end and the next one start on the same character
+            add(risky, prefix, witness(body, first.intersect(body.getLastChars()), true), first.union(follow), loop,
+                    "Nested quantifier");
+            return;
+        }
+        if (body.getKind() == RegexNode.Kind.ALTERNATION) {
+            List<RegexNode> alternatives = body.getChildren();
+            for (int i = 0; i < alternatives.size(); i++) {
+                for (int j = i + 1; j < alternatives.size(); j++) {
+                    CharSet shared = alternatives.get(i).getFirstChars().intersect(alternatives.get(j).getFirstChars());
+                    if (!shared.isEmpty()) {
+                        add(risky, prefix, witness(alternatives.get(i), shared, true), first.union(follow), loop,
+                                "Overlapping alternatives");
+                        return;
+                    }
+                }
+            }
+        }
+        add(plain, prefix, witness(body, first, true), first.union(follow), loop, "Quantifier");
+    }
+
+    private static void attackAdjacentLoops(List<RegexNode> items, int index, String prefix, CharSet follow, List<Attack> risky) {
+        RegexNode left = unwrap(items.get(index));
+        if (!isLoop(left)) {
+            return;
+        }
+        for (int j = index + 1; j < items.size(); j++) {
+            RegexNode right = unwrap(items.get(j));
+            if (isLoop(right)) {
+                CharSet shared = left.getLastChars().intersect(right.getFirstChars());
+                if (!shared.isEmpty()) {
+                    CharSet stop = left.getFirstChars().union(right.getFirstChars()).union(follow(items, j + 1, follow));
+                    String pump = new StringBuilder().appendCodePoint(pick(shared, CharSet.EMPTY)).toString();
+                    risky.add(new Attack(prefix, pump, suffix(stop), items.get(index).getStart(), items.get(j).getEnd(),
+                            "Adjacent quantifiers"));
+                    return;
+                }
+                if (!right.isNullable()) {
+                    return;
+                }
+            } else if (!right.isNullable()) {
+                return;
+            }
+        }
+    }
+
+    private static void add(List<Attack> attacks, String prefix, String pump, CharSet stop, RegexNode loop, String description) {
+        if (!pump.isEmpty()) {
+            attacks.add(new Attack(prefix, pump, suffix(stop), loop.getStart(), loop.getEnd(), description));
+        }
+    }
+
+    /**
+     * @return characters that can start whatever follows {@code items} from {@code from} on
+     */
+    private static CharSet follow(List<RegexNode> items, int from, CharSet outer) {
+        CharSet result = CharSet.EMPTY;
+        for (int i = from; i < items.size(); i++) {
+            result = result.union(items.get(i).getFirstChars());
+            if (!items.get(i).isNullable()) {
+                return result;
+            }
+        }
+        return result.union(outer);
+    }
+
+    private static String suffix(CharSet stop) {
+        for (int c : SUFFIXES) {
+            if (!stop.contains(c)) {
+                return new StringBuilder().appendCodePoint(c).toString();
+            }
+        }
+        // every candidate continues the match, ending the input is the only way to make it fail
+        return "";
+    }
+
+    /**
+     * @param prefer characters to use where the node allows them
+     * @param pump   whether the text must not be empty, as a pump that matches nothing cannot grow the input
+     * @return a short text matched by the node
+     */
+    private static String witness(RegexNode node, CharSet prefer, boolean pump) {
+        switch (node.getKind()) {
+            case CHAR:
+                return new StringBuilder().appendCodePoint(pick(node.getCharSet(), prefer)).toString();
+            case SEQUENCE: {
+                StringBuilder text = new StringBuilder();
+                for (RegexNode item : node.getChildren()) {
+                    text.append(witness(item, prefer, false));
+                }
+                if (pump && text.length() == 0) {
+                    // only optional items, one of them has to match something
+                    for (RegexNode item : node.getChildren()) {
+                        String itemText = witness(item, prefer, true);
+                        if (!itemText.isEmpty()) {
+                            return itemText;
+                        }
+                    }
+                }
+                return text.toString();
+            }
+            case ALTERNATION: {
+                String best = null;
+                boolean bestPreferred = false;
+                for (RegexNode alternative : node.getChildren()) {
+                    String text = witness(alternative, prefer, pump);
+                    if (pump && text.isEmpty()) {
+                        continue;
+                    }
+                    boolean preferred = alternative.getFirstChars().intersects(prefer);
+                    if (best == null || preferred && !bestPreferred || preferred == bestPreferred && text.length() < best.length()) {
+                        best = text;
+                        bestPreferred = preferred;
+                    }
+                }
+                return best == null ? "" : best;
+            }
+            case REPEAT: {
+                int repetitions = pump && node.getMax() != 0 ? Math.max(node.getMin(), 1) : node.getMin();
+                String body = repetitions == 0 ? "" : witness(node.getBody(), prefer, pump);
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < repetitions; i++) {
+                    text.append(body);
+                }
+                return text.toString();
+            }
+            case GROUP:
+            case ATOMIC_GROUP:
+                return witness(node.getBody(), prefer, pump);
+            default:
+                // anchors and lookarounds consume nothing, back references and unsupported parts are not modeled
+                return "";
+        }
+    }
+
+    private static int pick(CharSet set, CharSet prefer) {
+        CharSet candidates = set.intersect(prefer);
+        if (candidates.isEmpty()) {
+            candidates = set;
+        }
+        for (int c : PREFERRED_CHARS) {
+            if (candidates.contains(c)) {
+                return c;
+            }
+        }
+        return candidates.isEmpty() ? 'a' : candidates.getRangeStart(0);
+    }
+
+    private static boolean isLoop(RegexNode node) {
+        return node.getKind() == RegexNode.Kind.REPEAT && !node.isPossessive()
+                && (node.isUnbounded() || node.getMax() > LARGE_REPEAT);
+    }
+
+    private static boolean containsLoop(RegexNode node) {
+        if (node.getKind() == RegexNode.Kind.ATOMIC_GROUP || node.isLookaround()) {
+            return false;
+        }
+        if (isLoop(node)) {
+            return true;
+        }
+        for (RegexNode child : node.getChildren()) {
+            if (containsLoop(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static RegexNode unwrap(RegexNode node) {
+        while (node.getKind() == RegexNode.Kind.GROUP) {
+            node = node.getBody();
+        }
+        return node;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds all occurrences of a set of literals in a single pass over the text.
+ * <p>
+ * The trie with its failure links is compiled into a full transition table over the characters
+ * that occur in the literals, every other character leads back to the root.
+ */
+final class AhoCorasick {
+
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 16;
+
+    /**
+     * Receives every occurrence, ordered by end offset.
+     */
+    interface HitConsumer {
+        void hit(int literal, int start);
+    }
+
+    private final int[] lengths;
+    private final Map<Character, Integer> charClasses = new HashMap<>();
+    private final int[] asciiClasses = new int[128];
+    private final int classCount;
+    private final int[] transitions;
+    private final int[][] outputs;
+
+    AhoCorasick(List<String> literals) {
+        lengths = new int[literals.size()];
+        for (String literal : literals) {
+            for (int i = 0; i < literal.length(); i++) {
+                char c = literal.charAt(i);
+                if (c < asciiClasses.length) {
+                    if (asciiClasses[c] == 0) {
+                        asciiClasses[c] = charClasses.size() + 1;
+                        charClasses.put(c, asciiClasses[c]);
+                    }
+                } else {
+                    charClasses.putIfAbsent(c, charClasses.size() + 1);
+                }
+            }
+        }
+        // class 0 stands for characters that occur in no literal
+        classCount = charClasses.size() + 1;
+
+        List<int[]> trie = new ArrayList<>();
+        List<int[]> nodeOutputs = new ArrayList<>();
+        trie.add(new int[classCount]);
+        nodeOutputs.add(new int[0]);
+        for (int id = 0; id < literals.size(); id++) {
+            String literal = literals.get(id);
+            lengths[id] = literal.length();
+            int node = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                int charClass = charClasses.get(literal.charAt(i));
+                if (trie.get(node)[charClass] == 0) {
+                    trie.get(node)[charClass] = trie.size();
+                    trie.add(new int[classCount]);
+                    nodeOutputs.add(new int[0]);
+                }
+                node = trie.get(node)[charClass];
+            }
+            nodeOutputs.set(node, append(nodeOutputs.get(node), id));
+        }
+
+        // breadth-first, so the failure target of a node is complete before the node itself
+        int[] failure = new int[trie.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int charClass = 1; charClass < classCount; charClass++) {
+            int child = trie.get(0)[charClass];
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int[] outputsOfFailure = nodeOutputs.get(failure[node]);
+            for (int output : outputsOfFailure) {
+                nodeOutputs.set(node, append(nodeOutputs.get(node), output));
+            }
+            for (int charClass = 1; charClass < classCount; charClass++) {
+                int child = trie.get(node)[charClass];
+                if (child != 0) {
+                    failure[child] = trie.get(failure[node])[charClass];
+                    queue.add(child);
+                } else {
+                    trie.get(node)[charClass] = trie.get(failure[node])[charClass];
+                }
+            }
+        }
+
+        transitions = new int[trie.size() * classCount];
+        for (int node = 0; node < trie.size(); node++) {
+            System.arraycopy(trie.get(node), 0, transitions, node * classCount, classCount);
+        }
+        outputs = nodeOutputs.toArray(new int[0][]);
+    }
+
+    int getLength(int literal) {
+        return lengths[literal];
+    }
+
+    /**
+     * @throws CancellationException if {@code cancelled} turns true during the scan
+     */
+    void scan(CharSequence text, HitConsumer consumer, BooleanSupplier cancelled) {
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if ((i & (CANCEL_CHECK_INTERVAL - 1)) == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            char c = text.charAt(i);
+            int charClass;
+            if (c < asciiClasses.length) {
+                charClass = asciiClasses[c];
+            } else {
+                Integer other = charClasses.get(c);
+                charClass = other == null ? 0 : other;
+            }
+            state = transitions[state * classCount + charClass];
+            for (int literal : outputs[state]) {
+                consumer.hit(literal, i + 1 - lengths[literal]);
+            }
+        }
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.regex.Pattern;
+
+/**
+ * Linear-time engine for patterns without backreferences, lookarounds and possessive or atomic constructs.
+ * <p>
+ * A forward leftmost-first {@link LazyDfa} finds where the match ends, then a reverse DFA run from that end
+ * finds the leftmost start, so every text position is inspected a bounded number of times per match
+ * regardless of how ambiguous the pattern is.
+ */
+public final class AutomatonMatchEngine implements MatchEngine {
+
+    private static final CharSet SURROGATES = CharSet.range(Character.MIN_SURROGATE, Character.MAX_SURROGATE);
+    private static final CharSet LOW_SURROGATES = CharSet.range(Character.MIN_LOW_SURROGATE, Character.MAX_LOW_SURROGATE);
+    private static final CharSet SUPPLEMENTARY = CharSet.range(Character.MIN_SUPPLEMENTARY_CODE_POINT, Character.MAX_CODE_POINT);
+
+    private final Nfa forward;
+    private final Nfa reverse;
+    private final boolean multiline;
+
+    private AutomatonMatchEngine(Nfa forward, Nfa reverse, boolean multiline) {
+        this.forward = forward;
+        this.reverse = reverse;
+        this.multiline = multiline;
+    }
+
+    /**
+     * @param flags {@link Pattern} flags the expression is compiled with
+     * @return the engine, or {@code null} if the pattern is outside the supported subset
+     */
+    public static AutomatonMatchEngine create(RegexNode root, int flags) {
+        boolean multiline = (flags & Pattern.MULTILINE) != 0;
+        if ((flags & ~Pattern.MULTILINE) != 0 || !multiline && root.contains(RegexNode.Kind.LINE_END)) {
+            // $ without MULTILINE also matches before a final line terminator, which needs two characters of lookahead
+            return null;
+        }
+        if (startsInsideSurrogatePairs(root)) {
+            return null;
+        }
+        Nfa forward = Nfa.compile(root, false);
+        Nfa reverse = forward == null ? null : Nfa.compile(root, true);
+        return reverse == null ? null : new AutomatonMatchEngine(forward, reverse, multiline);
+    }
+
+    /**
+     * Pattern only tries positions between the halves of a surrogate pair when it has no supplementary characters
+     * of its own, the automaton never does. A match starting there, after the attempt at the pair failed,
+     * takes a word boundary test that sees the lone halves differently from the whole character.
+     */
+    private static boolean startsInsideSurrogatePairs(RegexNode root) {
+        if (!root.contains(RegexNode.Kind.WORD_BOUNDARY) && !root.contains(RegexNode.Kind.NON_WORD_BOUNDARY)) {
+            return false;
+        }
+        return !hasSupplementaryChars(root) && (matchesEmptyBetweenHalves(root) || root.getFirstChars().intersects(LOW_SURROGATES));
+    }
+
+    /**
+     * @return whether the node matches the empty string between the halves of a pair, where only {@code \B} holds
+     */
+    private static boolean matchesEmptyBetweenHalves(RegexNode node) {
+        switch (node.getKind()) {
+            case CHAR:
+            case LINE_START:
+            case LINE_END:
+            case INPUT_START:
+            case INPUT_END:
+            case WORD_BOUNDARY:
+                return false;
+            case NON_WORD_BOUNDARY:
+                return true;
+            case SEQUENCE:
+                for (RegexNode child : node.getChildren()) {
+                    if (!matchesEmptyBetweenHalves(child)) {
+                        return false;
+                    }
+                }
+                return true;
+            case ALTERNATION:
+                for (RegexNode child : node.getChildren()) {
+                    if (matchesEmptyBetweenHalves(child)) {
+                        return true;
+                    }
+                }
+                return node.getChildren().isEmpty();
+            case REPEAT:
+                return node.getMin() == 0 || matchesEmptyBetweenHalves(node.getBody());
+            case GROUP:
+            case ATOMIC_GROUP:
+                return matchesEmptyBetweenHalves(node.getBody());
+            default:
+                return node.isNullable();
+        }
+    }
+
+    /**
+     * @return whether the pattern names supplementary or surrogate characters, sets built by negation hold all or none of them
+     */
+    private static boolean hasSupplementaryChars(RegexNode node) {
+        if (node.getKind() == RegexNode.Kind.CHAR) {
+            return isPartial(node.getCharSet(), SUPPLEMENTARY) || isPartial(node.getCharSet(), SURROGATES);
+        }
+        for (RegexNode child : node.getChildren()) {
+            if (hasSupplementaryChars(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPartial(CharSet set, CharSet range) {
+        CharSet common = set.intersect(range);
+        return !common.isEmpty() && !common.equals(range);
+    }
+
+    @Override
+    public String getName() {
+        return "linear automaton";
+    }
+
+    @Override
+    public Searcher searcher(CharSequence text) {
+        return new AutomatonSearcher(text, new LazyDfa(forward, multiline, false, true), new LazyDfa(reverse, multiline, true, false));
+    }
+
+    private static final class AutomatonSearcher implements Searcher {
+
+        private final CharSequence text;
+        private final LazyDfa forwardDfa;
+        private final LazyDfa reverseDfa;
+        private int start = -1;
+        private int end = -1;
+        private int previousStart = -1;
+        private int previousEnd;
+        private boolean hitEnd;
+
+        AutomatonSearcher(CharSequence text, LazyDfa forwardDfa, LazyDfa reverseDfa) {
+            this.text = text;
+            this.forwardDfa = forwardDfa;
+            this.reverseDfa = reverseDfa;
+        }
+
+        @Override
+        public boolean find() {
+            int from = previousEnd;
+            if (from == previousStart) {
+                from++;
+            }
+            if (from > text.length()) {
+                start = -1;
+                return false;
+            }
+            return search(from, text.length());
+        }
+
+        @Override
+        public boolean find(int from) {
+            if (from < 0 || from > text.length()) {
+                throw new IndexOutOfBoundsException("Illegal start index");
+            }
+            previousStart = -1;
+            previousEnd = 0;
+            return search(from, text.length());
+        }
+
+        @Override
+        public boolean find(int from, int to) {
+            if (from < 0 || from > to || to > text.length()) {
+                throw new IndexOutOfBoundsException("Illegal region");
+            }
+            previousStart = -1;
+            previousEnd = 0;
+            return search(from, to);
+        }
+
+        @Override
+        public int start() {
+            if (start < 0) {
+                throw new IllegalStateException("No match available");
+            }
+            return start;
+        }
+
+        @Override
+        public int end() {
+            if (start < 0) {
+                throw new IllegalStateException("No match available");
+            }
+            return end;
+        }
+
+        @Override
+        public boolean hitEnd() {
+            return hitEnd;
+        }
+
+        private boolean search(int from, int limit) {
+            hitEnd = false;
+            int matchEnd = findEnd(from, limit);
+            if (matchEnd < 0) {
+                start = -1;
+                return false;
+            }
+            start = findStart(matchEnd, from);
+            end = matchEnd;
+            previousStart = start;
+            previousEnd = end;
+            return true;
+        }
+
+        /**
+         * Runs the forward automaton over {@code [from, limit)}, assertions at {@code limit} still look at the text after it.
+         */
+        private int findEnd(int from, int limit) {
+            int length = text.length();
+            LazyDfa.State state = forwardDfa.start(from == 0 ? LazyDfa.NONE : LazyDfa.classOf(Character.codePointBefore(text, from)));
+            int matchEnd = -1;
+            int i = from;
+            while (true) {
+                if (i == length) {
+                    hitEnd = state.readsPastEnd();
+                    if (state.matchesBefore(LazyDfa.NONE)) {
+                        matchEnd = length;
+                    }
+                    return matchEnd;
+                }
+                if (i >= limit) {
+                    if (i == limit && state.matchesBefore(LazyDfa.classOf(Character.codePointAt(text, i)))) {
+                        matchEnd = i;
+                    }
+                    return matchEnd;
+                }
+                int codePoint = Character.codePointAt(text, i);
+                LazyDfa.Transition transition = forwardDfa.ensureCapacity(state).step(codePoint);
+                if (transition.matchedBefore) {
+                    matchEnd = i;
+                }
+                state = transition.target;
+                if (state.isDead()) {
+                    return matchEnd;
+                }
+                i += Character.charCount(codePoint);
+            }
+        }
+
+        private int findStart(int matchEnd, int from) {
+            LazyDfa.State state = reverseDfa.start(matchEnd == text.length() ? LazyDfa.NONE : LazyDfa.classOf(Character.codePointAt(text, matchEnd)));
+            int matchStart = -1;
+            int i = matchEnd;
+            while (true) {
+                if (i == from) {
+                    if (state.matchesBefore(from == 0 ? LazyDfa.NONE : LazyDfa.classOf(Character.codePointBefore(text, from)))) {
+                        matchStart = from;
+                    }
+                    return matchStart;
+                }
+                int codePoint = codePointBefore(i, from);
+                LazyDfa.Transition transition = reverseDfa.ensureCapacity(state).step(codePoint);
+                if (transition.matchedBefore) {
+                    matchStart = i;
+                }
+                state = transition.target;
+                if (state.isDead()) {
+                    return matchStart;
+                }
+                i -= Character.charCount(codePoint);
+            }
+        }
+
+        /**
+         * Like {@link Character#codePointBefore(CharSequence, int)}, but a search resumed between the halves of a pair
+         * does not reach back to the high surrogate before {@code from}.
+         */
+        private int codePointBefore(int index, int from) {
+            char low = text.charAt(index - 1);
+            if (Character.isLowSurrogate(low) && index - 2 >= from) {
+                char high = text.charAt(index - 2);
+                if (Character.isHighSurrogate(high)) {
+                    return Character.toCodePoint(high, low);
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds catastrophic backtracking risks in a {@link RegexNode} tree without running the pattern.
+ * <p>
+ * Three shapes are reported:
+ * <ul>
+ *   <li>nested quantifiers, like {@code (a+)+}: an iteration of the outer loop can end and the next one start
+ *   on the same character, so a failing input is split into iterations in exponentially many ways;</li>
+ *   <li>overlapping alternation under a loop, like {@code (a|a)*} or {@code (\w|\d)+}: alternatives that can
+ *   match the same text multiply the number of paths on every iteration;</li>
+ *   <li>adjacent loops over overlapping characters, like {@code \d+\d+} or {@code .*,.*}: every split point between
+ *   them is tried, which is polynomial in the input length. Items in between only separate the loops when the
+ *   left loop cannot match them.</li>
+ * </ul>
+ * Possessive quantifiers and atomic groups never backtrack and are skipped.
+ */
+public final class BacktrackingAnalyzer {
+
+    /**
+     * Bounded loops with more repetitions than this are treated like unbounded ones.
+     */
+    private static final int LARGE_REPEAT = 10;
+
+    private BacktrackingAnalyzer() {
+    }
+
+    public static List<BacktrackingRisk> analyze(RegexNode root) {
+        List<BacktrackingRisk> risks = new ArrayList<>();
+        visit(root, false, risks);
+        risks.sort(Comparator.comparingInt(BacktrackingRisk::getStart).thenComparingInt(BacktrackingRisk::getEnd));
+        return risks;
+    }
+
+    private static void visit(RegexNode node, boolean atomic, List<BacktrackingRisk> risks) {
+        if (node.getKind() == RegexNode.Kind.ATOMIC_GROUP) {
+            atomic = true;
+        }
+        if (!atomic && isLoop(node)) {
+            checkLoop(node, risks);
+        }
+        if (!atomic && node.getKind() == RegexNode.Kind.SEQUENCE) {
+            checkAdjacentLoops(node.getChildren(), risks);
+        }
+        boolean childrenAtomic = atomic || node.getKind() == RegexNode.Kind.REPEAT && node.isPossessive();
+        for (RegexNode child : node.getChildren()) {
+            visit(child, childrenAtomic, risks);
+        }
+    }
+
+    private static void checkLoop(RegexNode loop, List<BacktrackingRisk> risks) {
+        RegexNode body = unwrap(loop.getBody());
+        if (containsLoop(body) && body.getFirstChars().intersects(body.getLastChars())) {
+            risks.add(new BacktrackingRisk(BacktrackingRisk.Level.EXPONENTIAL, loop.getStart(), loop.getEnd(),
+                    "Nested quantifier: iterations of the outer loop can be split in many ways"));
+            return;
+        }
+        if (body.getKind() == RegexNode.Kind.ALTERNATION) {
+            List<RegexNode> alternatives = body.getChildren();
+            for (int i = 0; i < alternatives.size(); i++) {
+                for (int j = i + 1; j < alternatives.size(); j++) {
+                    RegexNode first = alternatives.get(i);
+                    RegexNode second = alternatives.get(j);
+                    if (first.getFirstChars().intersects(second.getFirstChars()) && first.getLastChars().intersects(second.getLastChars())) {
+                        risks.add(new BacktrackingRisk(BacktrackingRisk.Level.EXPONENTIAL, loop.getStart(), loop.getEnd(),
+                                "Overlapping alternatives under a quantifier can match the same text"));
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void checkAdjacentLoops(List<RegexNode> items, List<BacktrackingRisk> risks) {
+        for (int i = 0; i < items.size(); i++) {
+            RegexNode left = unwrap(items.get(i));
+            if (!isLoop(left)) {
+                continue;
+            }
+            for (int j = i + 1; j < items.size(); j++) {
+                RegexNode right = unwrap(items.get(j));
+                if (isLoop(right)) {
+                    if (left.getLastChars().intersects(right.getFirstChars())) {
+                        risks.add(new BacktrackingRisk(BacktrackingRisk.Level.POLYNOMIAL, items.get(i).getStart(), items.get(j).getEnd(),
+                                "Adjacent quantifiers over overlapping characters"));
+                        break;
+                    }
+                    if (!right.isNullable()) {
+                        break;
+                    }
+                } else if (!right.isNullable() && !left.getLastChars().intersects(right.getFirstChars())) {
+                    // the left loop cannot swallow this item, so it fixes the split point
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean isLoop(RegexNode node) {
+        return node.getKind() == RegexNode.Kind.REPEAT && !node.isPossessive()
+                && (node.isUnbounded() || node.getMax() > LARGE_REPEAT);
+    }
+
+    private static boolean containsLoop(RegexNode node) {
+        if (node.getKind() == RegexNode.Kind.ATOMIC_GROUP || node.isLookaround()) {
+            return false;
+        }
+        if (isLoop(node)) {
+            return true;
+        }
+        for (RegexNode child : node.getChildren()) {
+            if (containsLoop(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static RegexNode unwrap(RegexNode node) {
+        while (node.getKind() == RegexNode.Kind.GROUP) {
+            node = node.getBody();
+        }
+        return node;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+/**
+ * Part of a pattern that can make a backtracking matcher take super-linear time.
+ */
+public final class BacktrackingRisk {
+
+    public enum Level {
+        POLYNOMIAL("polynomial"),
+        EXPONENTIAL("exponential");
+
+        private final String displayName;
+
+        Level(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final Level level;
+    private final int start;
+    private final int end;
+    private final String description;
+
+    BacktrackingRisk(Level level, int start, int end, String description) {
+        this.level = level;
+        this.start = start;
+        this.end = end;
+        this.description = description;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
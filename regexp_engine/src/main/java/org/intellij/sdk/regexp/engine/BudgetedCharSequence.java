@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Char sequence wrapper that counts every {@link #charAt(int)} call made by the matcher.
+ * <p>
+ * {@link java.util.regex.Matcher} has no hook for interrupting a backtracking search, but every step
+ * of it reads the input, so the step and time budgets are enforced from here.
+ */
+public final class BudgetedCharSequence implements CharSequence {
+
+    private static final int CHECK_INTERVAL_MASK = 0xFFF;
+
+    private final CharSequence delegate;
+    private final MatchBudget budget;
+    private final BooleanSupplier cancelled;
+    private final long startNanos;
+    private long steps;
+
+    public BudgetedCharSequence(CharSequence delegate, MatchBudget budget, BooleanSupplier cancelled) {
+        this.delegate = delegate;
+        this.budget = budget;
+        this.cancelled = cancelled;
+        this.startNanos = System.nanoTime();
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    @Override
+    public int length() {
+        return delegate.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if ((++steps & CHECK_INTERVAL_MASK) == 0) {
+            checkBudget();
+        }
+        return delegate.charAt(index);
+    }
+
+    private void checkBudget() {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+        if (steps > budget.getSteps() || System.nanoTime() - startNanos > budget.getTimeNanos()) {
+            throw new BudgetExceededException(steps);
+        }
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return delegate.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+    /**
+     * Thrown from {@link #charAt(int)} when the matcher runs out of steps or time.
+     */
+    public static final class BudgetExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long steps;
+
+        BudgetExceededException(long steps) {
+            super("Timed out after " + steps + " steps", null, false, false);
+            this.steps = steps;
+        }
+
+        public long getSteps() {
+            return steps;
+        }
+    }
+}
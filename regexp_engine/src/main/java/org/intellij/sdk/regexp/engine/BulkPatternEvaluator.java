@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Evaluates many patterns against the same subject text, in parallel on the common fork/join pool.
+ * <p>
+ * Patterns are compiled through the shared {@link CompiledPatternCache}, and each of them is matched
+ * under its own step and time budget, so a single catastrophic pattern does not hold up the rest.
+ */
+public final class BulkPatternEvaluator {
+
+    private BulkPatternEvaluator() {
+    }
+
+    /**
+     * @param regexes {@link java.util.regex} patterns to evaluate
+     * @param flags   {@link java.util.regex.Pattern} flags of each pattern
+     * @return results in the order of {@code regexes}, or null if the run was cancelled
+     */
+    public static Result[] evaluate(String[] regexes, int[] flags, CharSequence text, CompiledPatternCache cache,
+                                    MatchBudget budget, BooleanSupplier cancelled) {
+        Result[] results = new Result[regexes.length];
+        try {
+            ForkJoinPool.commonPool().invoke(new EvaluateTask(regexes, flags, text, cache, budget, cancelled, results, 0, regexes.length));
+        } catch (CancellationException e) {
+            return null;
+        }
+        return results;
+    }
+
+    public static final class Result {
+
+        public enum Status {
+            COMPLETED,
+            TIMED_OUT,
+            STACK_OVERFLOW,
+            INVALID
+        }
+
+        private final Status status;
+        private final int matchCount;
+        private final long nanos;
+        private final String error;
+
+        private Result(Status status, int matchCount, long nanos, String error) {
+            this.status = status;
+            this.matchCount = matchCount;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return matches found, before the budget or the stack ran out for {@link Status#TIMED_OUT} and {@link Status#STACK_OVERFLOW}
+         */
+        public int getMatchCount() {
+            return matchCount;
+        }
+
+        /**
+         * @return time spent compiling and matching
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return syntax error description of an {@link Status#INVALID} pattern
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class EvaluateTask extends RecursiveAction {
+
+        private final String[] regexes;
+        private final int[] flags;
+        private final CharSequence text;
+        private final CompiledPatternCache cache;
+        private final MatchBudget budget;
+        private final BooleanSupplier cancelled;
+        private final Result[] results;
+        private final int from;
+        private final int to;
+
+        private EvaluateTask(String[] regexes, int[] flags, CharSequence text, CompiledPatternCache cache, MatchBudget budget,
+                             BooleanSupplier cancelled, Result[] results, int from, int to) {
+            this.regexes = regexes;
+            this.flags = flags;
+            this.text = text;
+            this.cache = cache;
+            this.budget = budget;
+            this.cancelled = cancelled;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EvaluateTask(regexes, flags, text, cache, budget, cancelled, results, from, middle),
+                        new EvaluateTask(regexes, flags, text, cache, budget, cancelled, results, middle, to));
+                return;
+            }
+            if (from < to) {
+                results[from] = evaluate(regexes[from], flags[from]);
+            }
+        }
+
+        private Result evaluate(String regex, int patternFlags) {
+            long start = System.nanoTime();
+            CompiledPatternCache.CompiledPattern compiled = cache.compile(regex, patternFlags);
+            if (compiled.getPattern() == null) {
+                return new Result(Result.Status.INVALID, 0, System.nanoTime() - start, compiled.getError().getDescription());
+            }
+            MatchReport report = MatchCollector.collect(new JavaMatchEngine(compiled.getPattern()), text, budget, cancelled);
+            long nanos = System.nanoTime() - start;
+            switch (report.getStatus()) {
+                case CANCELLED:
+                    throw new CancellationException();
+                case TIMED_OUT:
+                    return new Result(Result.Status.TIMED_OUT, report.getRanges().size(), nanos, null);
+                case STACK_OVERFLOW:
+                    // caught by MatchCollector, so one deep pattern does not fail the whole invoke()
+                    return new Result(Result.Status.STACK_OVERFLOW, report.getRanges().size(), nanos, null);
+                default:
+                    return new Result(Result.Status.COMPLETED, report.getRanges().size(), nanos, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of code points stored as sorted, disjoint, inclusive ranges.
+ */
+public final class CharSet {
+
+    public static final CharSet EMPTY = new CharSet(new int[0]);
+    public static final CharSet ANY = new CharSet(new int[]{0, Character.MAX_CODE_POINT});
+    public static final CharSet DIGIT = range('0', '9');
+    public static final CharSet WORD = range('a', 'z').union(range('A', 'Z')).union(DIGIT).union(of('_'));
+    public static final CharSet SPACE = of(' ').union(range('\t', '\r'));
+    public static final CharSet LINE_TERMINATOR = of('\n').union(of('\r')).union(of(0x85)).union(range(0x2028, 0x2029));
+    /**
+     * What {@code .} matches without the DOTALL flag.
+     */
+    public static final CharSet DOT = LINE_TERMINATOR.complement();
+
+    // start0, end0, start1, end1, ...
+    private final int[] ranges;
+
+    private CharSet(int[] ranges) {
+        this.ranges = ranges;
+    }
+
+    public static CharSet of(int codePoint) {
+        return range(codePoint, codePoint);
+    }
+
+    public static CharSet range(int from, int to) {
+        return from > to ? EMPTY : new CharSet(new int[]{from, to});
+    }
+
+    public boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    public int getRangeCount() {
+        return ranges.length >> 1;
+    }
+
+    public int getRangeStart(int index) {
+        return ranges[index << 1];
+    }
+
+    public int getRangeEnd(int index) {
+        return ranges[(index << 1) + 1];
+    }
+
+    /**
+     * @return the only code point in this set, or -1 if it has none or several
+     */
+    public int getSingleCodePoint() {
+        return ranges.length == 2 && ranges[0] == ranges[1] ? ranges[0] : -1;
+    }
+
+    public boolean contains(int codePoint) {
+        int low = 0;
+        int high = getRangeCount() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (codePoint < getRangeStart(mid)) {
+                high = mid - 1;
+            } else if (codePoint > getRangeEnd(mid)) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean intersects(CharSet other) {
+        int i = 0;
+        int j = 0;
+        while (i < getRangeCount() && j < other.getRangeCount()) {
+            if (getRangeEnd(i) < other.getRangeStart(j)) {
+                i++;
+            } else if (other.getRangeEnd(j) < getRangeStart(i)) {
+                j++;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public CharSet union(CharSet other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        int[] merged = new int[ranges.length + other.ranges.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < getRangeCount() || j < other.getRangeCount()) {
+            int start;
+            int end;
+            if (j == other.getRangeCount() || (i < getRangeCount() && getRangeStart(i) <= other.getRangeStart(j))) {
+                start = getRangeStart(i);
+                end = getRangeEnd(i++);
+            } else {
+                start = other.getRangeStart(j);
+                end = other.getRangeEnd(j++);
+            }
+            if (count > 0 && start <= merged[count - 1] + 1) {
+                merged[count - 1] = Math.max(merged[count - 1], end);
+            } else {
+                merged[count++] = start;
+                merged[count++] = end;
+            }
+        }
+        return new CharSet(Arrays.copyOf(merged, count));
+    }
+
+    public CharSet complement() {
+        int[] result = new int[ranges.length + 2];
+        int count = 0;
+        int next = 0;
+        for (int i = 0; i < getRangeCount(); i++) {
+            if (getRangeStart(i) > next) {
+                result[count++] = next;
+                result[count++] = getRangeStart(i) - 1;
+            }
+            next = getRangeEnd(i) + 1;
+        }
+        if (next <= Character.MAX_CODE_POINT) {
+            result[count++] = next;
+            result[count++] = Character.MAX_CODE_POINT;
+        }
+        return new CharSet(Arrays.copyOf(result, count));
+    }
+
+    public CharSet intersect(CharSet other) {
+        return complement().union(other.complement()).complement();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof CharSet && Arrays.equals(ranges, ((CharSet) o).ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ranges);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < getRangeCount(); i++) {
+            builder.appendCodePoint(getRangeStart(i));
+            if (getRangeEnd(i) != getRangeStart(i)) {
+                builder.append('-').appendCodePoint(getRangeEnd(i));
+            }
+        }
+        return builder.append(']').toString();
+    }
+}
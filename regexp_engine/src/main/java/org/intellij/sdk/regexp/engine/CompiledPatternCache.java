@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Size-bounded LRU cache of compiled patterns keyed by pattern text and flags.
+ * Syntax errors are cached as well, so an invalid pattern is not recompiled just to report the error again.
+ * <p>
+ * Registered as an application service, so all tool windows share one cache.
+ */
+public final class CompiledPatternCache {
+
+    private static final int DEFAULT_MAX_SIZE = 128;
+
+    private final Map<Key, CompiledPattern> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CompiledPatternCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public CompiledPatternCache(int maxSize) {
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompiledPattern> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public CompiledPattern compile(String regex, int flags) {
+        Key key = new Key(regex, flags);
+        synchronized (cache) {
+            CompiledPattern cached = cache.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        CompiledPattern compiled;
+        try {
+            compiled = new CompiledPattern(Pattern.compile(regex, flags), null);
+        } catch (PatternSyntaxException e) {
+            compiled = new CompiledPattern(null, e);
+        }
+        synchronized (cache) {
+            cache.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Either a compiled pattern or the syntax error it failed with.
+     */
+    public static final class CompiledPattern {
+
+        private final Pattern pattern;
+        private final PatternSyntaxException error;
+
+        private CompiledPattern(Pattern pattern, PatternSyntaxException error) {
+            this.pattern = pattern;
+            this.error = error;
+        }
+
+        /**
+         * @return the compiled pattern, or null if it has a syntax error
+         */
+        public Pattern getPattern() {
+            return pattern;
+        }
+
+        public PatternSyntaxException getError() {
+            return error;
+        }
+    }
+
+    private static final class Key {
+
+        private final String regex;
+        private final int flags;
+
+        private Key(String regex, int flags) {
+            this.regex = regex;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return flags == key.flags && regex.equals(key.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(regex, flags);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A pattern ready for matching outside the IDE: its {@link Pattern}, its tree, the engine that matches it and
+ * the diagnostics about it, so the tool window and the command line tool match the same way.
+ * <p>
+ * Patterns the linear automaton supports are matched with it, the rest with {@link java.util.regex},
+ * and either engine only runs around the required literals of the pattern when it has some.
+ */
+public final class CompiledRegex {
+
+    private final Pattern pattern;
+    private final PatternSyntaxException error;
+    private final RegexNode tree;
+    private final MatchEngine engine;
+    private final PrefilteredMatchEngine prefilter;
+    private final ResyncWindow resyncWindow;
+    // built on first request, the tool window matches on every keystroke and shows risks elsewhere
+    private List<Diagnostic> diagnostics;
+
+    private CompiledRegex(Pattern pattern, PatternSyntaxException error, RegexNode tree, MatchEngine engine,
+                          PrefilteredMatchEngine prefilter, ResyncWindow resyncWindow, List<Diagnostic> diagnostics) {
+        this.pattern = pattern;
+        this.error = error;
+        this.tree = tree;
+        this.engine = engine;
+        this.prefilter = prefilter;
+        this.resyncWindow = resyncWindow;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * @param flags {@link Pattern} flags
+     */
+    public static CompiledRegex compile(String regex, int flags) {
+        try {
+            return of(Pattern.compile(regex, flags), null);
+        } catch (PatternSyntaxException e) {
+            return invalid(e);
+        }
+    }
+
+    /**
+     * @param tree tree of the pattern, for example converted from the IDE PSI, or null to parse it with {@link RegexParser}
+     */
+    public static CompiledRegex of(Pattern pattern, RegexNode tree) {
+        int flags = pattern.flags();
+        // the parser reads neither comments nor literal patterns
+        if (tree == null && (flags & (Pattern.COMMENTS | Pattern.LITERAL)) == 0) {
+            tree = RegexParser.parse(pattern.pattern());
+        }
+        MatchEngine engine = tree == null ? null : AutomatonMatchEngine.create(tree, flags);
+        if (engine == null) {
+            engine = new JavaMatchEngine(pattern);
+        }
+        PrefilteredMatchEngine prefilter = tree == null ? null : PrefilteredMatchEngine.create(engine, tree, flags);
+        return new CompiledRegex(pattern, null, tree, engine, prefilter, ResyncWindow.of(tree, flags), null);
+    }
+
+    public static CompiledRegex invalid(PatternSyntaxException error) {
+        int index = error.getIndex();
+        Diagnostic diagnostic = new Diagnostic(Diagnostic.Severity.ERROR, error.getDescription(), index, index < 0 ? -1 : index + 1);
+        return new CompiledRegex(null, error, null, null, null, ResyncWindow.FULL_SCAN, List.of(diagnostic));
+    }
+
+    public boolean isValid() {
+        return pattern != null;
+    }
+
+    /**
+     * @return the pattern, or null if it does not compile
+     */
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the syntax error, or null if the pattern compiles
+     */
+    public PatternSyntaxException getError() {
+        return error;
+    }
+
+    /**
+     * @return tree of the pattern, or null if it does not compile or its flags change how it reads
+     */
+    public RegexNode getTree() {
+        return tree;
+    }
+
+    /**
+     * @return engine matching the pattern, prefiltered when it can be, or null if the pattern does not compile
+     */
+    public MatchEngine getEngine() {
+        return prefilter != null ? prefilter : engine;
+    }
+
+    /**
+     * @return the prefiltering engine, or null if the pattern has no required literals
+     */
+    public PrefilteredMatchEngine getPrefilter() {
+        return prefilter;
+    }
+
+    /**
+     * @return how far before an edit matching has to restart, see {@link MatchCollector#collectIncremental}
+     */
+    public ResyncWindow getResyncWindow() {
+        return resyncWindow;
+    }
+
+    /**
+     * @return name of the engine doing the actual matching
+     */
+    public String getEngineName() {
+        return engine == null ? null : engine.getName();
+    }
+
+    /**
+     * @return the syntax error, or the engine, prefilter and backtracking risks of the pattern
+     */
+    public synchronized List<Diagnostic> getDiagnostics() {
+        if (diagnostics == null) {
+            List<Diagnostic> result = new ArrayList<>();
+            result.add(new Diagnostic(Diagnostic.Severity.INFO, "Matched by " + engine.getName(), -1, -1));
+            if (prefilter != null) {
+                result.add(new Diagnostic(Diagnostic.Severity.INFO, "Matched only around " + String.join(", ", prefilter.getLiterals()), -1, -1));
+            }
+            if (tree != null) {
+                for (BacktrackingRisk risk : BacktrackingAnalyzer.analyze(tree)) {
+                    result.add(new Diagnostic(Diagnostic.Severity.WARNING, risk.getDescription(), risk.getStart(), risk.getEnd()));
+                }
+            }
+            diagnostics = Collections.unmodifiableList(result);
+        }
+        return diagnostics;
+    }
+
+    public MatchReport collect(CharSequence text, MatchBudget budget, BooleanSupplier cancelled) {
+        return MatchCollector.collect(getEngine(), text, budget, cancelled);
+    }
+
+    /**
+     * Passes every match to {@code consumer} as it is found, see {@link MatchCollector#stream}.
+     */
+    public MatchReport stream(CharSequence text, MatchBudget budget, BooleanSupplier cancelled, MatchCollector.RangeConsumer consumer) {
+        return MatchCollector.stream(getEngine(), text, budget, cancelled, consumer);
+    }
+
+    /**
+     * @return groups of the match starting at {@code start}, see {@link MatchGroups#find}
+     */
+    public int[] findGroups(CharSequence text, int start, MatchBudget budget) {
+        return MatchGroups.find(pattern, text, start, budget);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+/**
+ * Something worth telling about a compiled pattern, optionally tied to a range of the pattern text.
+ */
+public final class Diagnostic {
+
+    public enum Severity {
+        ERROR,
+        WARNING,
+        INFO
+    }
+
+    private final Severity severity;
+    private final String message;
+    private final int start;
+    private final int end;
+
+    Diagnostic(Severity severity, String message, int start, int end) {
+        this.severity = severity;
+        this.message = message;
+        this.start = start;
+        this.end = end;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return start of the range in the pattern, or -1 if the diagnostic is about the whole pattern
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return end of the range in the pattern, or -1 if the diagnostic is about the whole pattern
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return severity + (start < 0 ? "" : " at " + start + "-" + end) + ": " + message;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams the matches of a pattern in a file without reading it into a string.
+ * <p>
+ * The file is memory-mapped chunk by chunk. Every window extends {@link #OVERLAP} bytes past both ends of its chunk,
+ * so a match crossing a chunk boundary is still found whole and anchors see the preceding text.
+ * A match belongs to the chunk it starts in and matches are never reported twice.
+ * Matches longer than the overlap that cross a chunk end are cut at the window end.
+ * A search that overflows the stack in {@code java.util.regex} ends the scan with the matches found before it.
+ */
+public final class FileMatchScanner {
+
+    private static final int CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int OVERLAP = 64 * 1024;
+    private static final int MAX_STORED_OFFSETS = 1_000_000;
+
+    private FileMatchScanner() {
+    }
+
+    /**
+     * @param progress receives the number of bytes scanned so far after every chunk
+     * @throws CancellationException if {@code cancelled} turns true during the scan
+     */
+    public static Result scan(Path file, Pattern pattern, BooleanSupplier cancelled, LongConsumer progress) throws IOException {
+        long startNanos = System.nanoTime();
+        long matchCount = 0;
+        long[] offsets = new long[1024];
+        int storedCount = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long nextFrom = 0;
+            for (long chunkStart = 0; chunkStart < size; chunkStart += CHUNK_SIZE) {
+                long chunkEnd = Math.min(chunkStart + CHUNK_SIZE, size);
+                long windowStart = Math.max(chunkStart - OVERLAP, 0);
+                long windowEnd = Math.min(chunkEnd + OVERLAP, size);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+                CharSequence window = new BudgetedCharSequence(new ByteBufferCharSequence(buffer), MatchBudget.UNLIMITED, cancelled);
+
+                Matcher matcher = pattern.matcher(window);
+                long from = Math.max(chunkStart, nextFrom) - windowStart;
+                try {
+                    boolean found = from <= window.length() && matcher.find((int) from);
+                    while (found && (windowStart + matcher.start() < chunkEnd || chunkEnd == size)) {
+                        long start = windowStart + matcher.start();
+                        nextFrom = windowStart + matcher.end() + (matcher.start() == matcher.end() ? 1 : 0);
+                        matchCount++;
+                        if (storedCount < MAX_STORED_OFFSETS) {
+                            if (storedCount == offsets.length) {
+                                offsets = Arrays.copyOf(offsets, offsets.length << 1);
+                            }
+                            offsets[storedCount++] = start;
+                        }
+                        found = matcher.find();
+                    }
+                } catch (StackOverflowError e) {
+                    // the failed search started after the last match found
+                    return new Result(size, matchCount, Arrays.copyOf(offsets, storedCount), System.nanoTime() - startNanos,
+                            Math.max(chunkStart, nextFrom));
+                }
+                progress.accept(chunkEnd);
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+            }
+            return new Result(size, matchCount, Arrays.copyOf(offsets, storedCount), System.nanoTime() - startNanos, -1);
+        }
+    }
+
+    public static final class Result {
+
+        private final long fileSize;
+        private final long matchCount;
+        private final long[] offsets;
+        private final long elapsedNanos;
+        private final long stackOverflowOffset;
+
+        private Result(long fileSize, long matchCount, long[] offsets, long elapsedNanos, long stackOverflowOffset) {
+            this.fileSize = fileSize;
+            this.matchCount = matchCount;
+            this.offsets = offsets;
+            this.elapsedNanos = elapsedNanos;
+            this.stackOverflowOffset = stackOverflowOffset;
+        }
+
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        public long getMatchCount() {
+            return matchCount;
+        }
+
+        /**
+         * @return byte offsets of the first matches, at most a million of them
+         */
+        public long[] getOffsets() {
+            return offsets;
+        }
+
+        /**
+         * @return whether the scan stopped early because a search overflowed the stack, the counts cover the file up to it
+         */
+        public boolean isStackOverflow() {
+            return stackOverflowOffset >= 0;
+        }
+
+        /**
+         * @return byte offset the search that overflowed the stack started at, or -1 if the whole file was scanned
+         */
+        public long getStackOverflowOffset() {
+            return stackOverflowOffset;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : fileSize / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+        }
+    }
+}
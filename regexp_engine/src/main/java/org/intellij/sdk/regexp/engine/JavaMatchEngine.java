@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The backtracking {@link java.util.regex} engine, supports every pattern.
+ */
+public final class JavaMatchEngine implements MatchEngine {
+
+    private final Pattern pattern;
+
+    public JavaMatchEngine(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    @Override
+    public String getName() {
+        return "java.util.regex";
+    }
+
+    @Override
+    public Searcher searcher(CharSequence text) {
+        Matcher matcher = pattern.matcher(text);
+        return new Searcher() {
+            @Override
+            public boolean find() {
+                return matcher.find();
+            }
+
+            @Override
+            public boolean find(int from) {
+                return matcher.find(from);
+            }
+
+            @Override
+            public boolean find(int from, int to) {
+                return matcher.region(from, to).useTransparentBounds(true).useAnchoringBounds(false).find();
+            }
+
+            @Override
+            public int start() {
+                return matcher.start();
+            }
+
+            @Override
+            public int end() {
+                return matcher.end();
+            }
+
+            @Override
+            public boolean hitEnd() {
+                return matcher.hitEnd();
+            }
+        };
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DFA built on demand from an {@link Nfa}: each state is the ordered list of NFA threads alive at a position,
+ * and transitions are computed the first time they are taken.
+ * <p>
+ * Zero-width assertions depend on the characters on both sides of a position, so a state keeps its threads
+ * before following assertions together with the class of the last consumed character, and the closure
+ * is taken once the next character is known.
+ * In leftmost-first mode threads behind a match are dropped, as the backtracker would never try them.
+ */
+final class LazyDfa {
+
+    static final int NONE = 0;
+    private static final int LF = 1;
+    private static final int CR = 2;
+    private static final int OTHER_LINE_TERMINATOR = 3;
+    private static final int WORD = 4;
+    private static final int OTHER = 5;
+    private static final int CLASS_COUNT = 6;
+
+    private static final int MAX_STATES = 4096;
+
+    private final Nfa nfa;
+    private final boolean multiline;
+    private final boolean reversed;
+    private final boolean leftmostFirst;
+    private final Map<StateKey, State> states = new HashMap<>();
+
+    private final int[] marks;
+    private int markGeneration;
+    private int[] stack;
+    private int[] closure;
+    private boolean endAssertionTested;
+
+    LazyDfa(Nfa nfa, boolean multiline, boolean reversed, boolean leftmostFirst) {
+        this.nfa = nfa;
+        this.multiline = multiline;
+        this.reversed = reversed;
+        this.leftmostFirst = leftmostFirst;
+        marks = new int[nfa.size()];
+        stack = new int[16];
+        closure = new int[16];
+    }
+
+    static int classOf(int codePoint) {
+        switch (codePoint) {
+            case '\n':
+                return LF;
+            case '\r':
+                return CR;
+            case 0x85:
+            case 0x2028:
+            case 0x2029:
+                return OTHER_LINE_TERMINATOR;
+            default:
+                // \b uses letters and digits of any script, unlike \w
+                return Character.isLetterOrDigit(codePoint) || codePoint == '_' ? WORD : OTHER;
+        }
+    }
+
+    /**
+     * @param previousClass class of the character behind the scan start, {@link #NONE} at the text boundary
+     */
+    State start(int previousClass) {
+        return intern(new int[]{nfa.getStart()}, previousClass);
+    }
+
+    /**
+     * Called by the scan loop before taking a transition, drops the cached states if there are too many of them.
+     *
+     * @return {@code state} itself or its copy in the fresh cache
+     */
+    State ensureCapacity(State state) {
+        if (states.size() < MAX_STATES) {
+            return state;
+        }
+        states.clear();
+        return intern(state.threads, state.previousClass);
+    }
+
+    private State intern(int[] threads, int previousClass) {
+        StateKey key = new StateKey(threads, previousClass);
+        State state = states.get(key);
+        if (state == null) {
+            state = new State(this, threads, previousClass);
+            states.put(key, state);
+        }
+        return state;
+    }
+
+    private boolean holds(RegexNode.Kind assertion, int before, int after) {
+        switch (assertion) {
+            case INPUT_START:
+                return before == NONE;
+            case INPUT_END:
+                return after == NONE;
+            case LINE_START:
+                if (!multiline) {
+                    return before == NONE;
+                }
+                // never at the very end, and not between \r and \n
+                return after != NONE && (before == NONE || isLineTerminator(before) && !(before == CR && after == LF));
+            case LINE_END:
+                // the automaton is only used with MULTILINE for $
+                return after == NONE || after == LF && before != CR || after == CR || after == OTHER_LINE_TERMINATOR;
+            case WORD_BOUNDARY:
+                return (before == WORD) != (after == WORD);
+            case NON_WORD_BOUNDARY:
+                return (before == WORD) == (after == WORD);
+            default:
+                throw new IllegalStateException(assertion.toString());
+        }
+    }
+
+    private boolean testsEnd(RegexNode.Kind assertion) {
+        return assertion == RegexNode.Kind.INPUT_END || multiline && assertion == RegexNode.Kind.LINE_START || assertion == RegexNode.Kind.LINE_END
+                || assertion == RegexNode.Kind.WORD_BOUNDARY || assertion == RegexNode.Kind.NON_WORD_BOUNDARY;
+    }
+
+    private static boolean isLineTerminator(int characterClass) {
+        return characterClass == LF || characterClass == CR || characterClass == OTHER_LINE_TERMINATOR;
+    }
+
+    /**
+     * Follows splits and assertions from the threads of {@code state} at a position between characters
+     * of classes {@code consumedClass} (already scanned) and {@code upcomingClass}.
+     * Leaves the reached char states in {@link #closure} in priority order.
+     *
+     * @return number of char states, negated minus one if a match state was reached
+     */
+    private int close(int[] threads, int consumedClass, int upcomingClass) {
+        int before = reversed ? upcomingClass : consumedClass;
+        int after = reversed ? consumedClass : upcomingClass;
+        int generation = nextMarkGeneration();
+        int count = 0;
+        boolean matched = false;
+        endAssertionTested = false;
+        for (int thread : threads) {
+            int top = 0;
+            stack[top++] = thread;
+            while (top > 0) {
+                int s = stack[--top];
+                if (marks[s] == generation) {
+                    continue;
+                }
+                marks[s] = generation;
+                switch (nfa.getType(s)) {
+                    case Nfa.CHAR:
+                        if (count == closure.length) {
+                            closure = Arrays.copyOf(closure, count << 1);
+                        }
+                        closure[count++] = s;
+                        break;
+                    case Nfa.SPLIT:
+                        if (top + 2 > stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length << 1);
+                        }
+                        stack[top++] = nfa.getAlternative(s);
+                        stack[top++] = nfa.getNext(s);
+                        break;
+                    case Nfa.ASSERT:
+                        if (after == NONE && testsEnd(nfa.getAssertion(s))) {
+                            endAssertionTested = true;
+                        }
+                        if (holds(nfa.getAssertion(s), before, after)) {
+                            if (top == stack.length) {
+                                stack = Arrays.copyOf(stack, top << 1);
+                            }
+                            stack[top++] = nfa.getNext(s);
+                        }
+                        break;
+                    default:
+                        matched = true;
+                        if (leftmostFirst) {
+                            return -count - 1;
+                        }
+                        break;
+                }
+            }
+        }
+        return matched ? -count - 1 : count;
+    }
+
+    private int nextMarkGeneration() {
+        if (++markGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            markGeneration = 1;
+        }
+        return markGeneration;
+    }
+
+    private Transition computeTransition(State state, int codePoint) {
+        int upcomingClass = classOf(codePoint);
+        int result = close(state.threads, state.previousClass, upcomingClass);
+        boolean matched = result < 0;
+        int count = matched ? -result - 1 : result;
+        int[] targets = new int[count];
+        int targetCount = 0;
+        int generation = nextMarkGeneration();
+        for (int i = 0; i < count; i++) {
+            int s = closure[i];
+            if (nfa.getCharSet(s).contains(codePoint)) {
+                int target = nfa.getNext(s);
+                if (marks[target] != generation) {
+                    marks[target] = generation;
+                    targets[targetCount++] = target;
+                }
+            }
+        }
+        return new Transition(intern(Arrays.copyOf(targets, targetCount), upcomingClass), matched);
+    }
+
+    private boolean computeMatchBefore(State state, int upcomingClass) {
+        return close(state.threads, state.previousClass, upcomingClass) < 0;
+    }
+
+    private boolean computeReadsPastEnd(State state) {
+        int result = close(state.threads, state.previousClass, NONE);
+        int count = result < 0 ? -result - 1 : result;
+        if (endAssertionTested) {
+            return true;
+        }
+        for (int i = 0; i < count; i++) {
+            if (closure[i] != nfa.getRestart()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static final class State {
+
+        private final LazyDfa dfa;
+        private final int[] threads;
+        private final int previousClass;
+        private final Transition[] latin1 = new Transition[256];
+        private Map<Integer, Transition> others;
+        private byte[] matchBefore;
+        private byte readsPastEnd;
+
+        private State(LazyDfa dfa, int[] threads, int previousClass) {
+            this.dfa = dfa;
+            this.threads = threads;
+            this.previousClass = previousClass;
+        }
+
+        boolean isDead() {
+            return threads.length == 0;
+        }
+
+        Transition step(int codePoint) {
+            Transition transition;
+            if (codePoint < 256) {
+                transition = latin1[codePoint];
+                if (transition == null) {
+                    transition = dfa.computeTransition(this, codePoint);
+                    latin1[codePoint] = transition;
+                }
+            } else {
+                if (others == null) {
+                    others = new HashMap<>();
+                }
+                transition = others.get(codePoint);
+                if (transition == null) {
+                    transition = dfa.computeTransition(this, codePoint);
+                    others.put(codePoint, transition);
+                }
+            }
+            return transition;
+        }
+
+        /**
+         * @param upcomingClass class of the character after the position, {@link #NONE} at the text boundary
+         * @return whether a match ends at the current position without consuming more characters
+         */
+        boolean matchesBefore(int upcomingClass) {
+            if (matchBefore == null) {
+                matchBefore = new byte[CLASS_COUNT];
+            }
+            if (matchBefore[upcomingClass] == 0) {
+                matchBefore[upcomingClass] = (byte) (dfa.computeMatchBefore(this, upcomingClass) ? 1 : 2);
+            }
+            return matchBefore[upcomingClass] == 1;
+        }
+
+        /**
+         * Mirrors {@link java.util.regex.Matcher#hitEnd()}: at the end of the text, whether a thread the backtracker
+         * would try before accepting a match needs another character or tests the end of input.
+         */
+        boolean readsPastEnd() {
+            if (readsPastEnd == 0) {
+                readsPastEnd = (byte) (dfa.computeReadsPastEnd(this) ? 1 : 2);
+            }
+            return readsPastEnd == 1;
+        }
+    }
+
+    static final class Transition {
+
+        final State target;
+        /**
+         * Whether a match ends right before the consumed character.
+         */
+        final boolean matchedBefore;
+
+        private Transition(State target, boolean matchedBefore) {
+            this.target = target;
+            this.matchedBefore = matchedBefore;
+        }
+    }
+
+    private static final class StateKey {
+
+        private final int[] threads;
+        private final int previousClass;
+        private final int hash;
+
+        StateKey(int[] threads, int previousClass) {
+            this.threads = threads;
+            this.previousClass = previousClass;
+            hash = Arrays.hashCode(threads) * 31 + previousClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StateKey)) {
+                return false;
+            }
+            StateKey other = (StateKey) o;
+            return previousClass == other.previousClass && Arrays.equals(threads, other.threads);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
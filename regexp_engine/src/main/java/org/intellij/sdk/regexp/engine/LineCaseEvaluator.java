@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates every line of the subject text as a separate test case, in parallel on the common fork/join pool.
+ * <p>
+ * Lines are matched through {@link Matcher#region(int, int)} on the shared text, so no line is copied,
+ * and {@code ^}/{@code $} match at the line bounds. The step and time budget applies to each line.
+ */
+public final class LineCaseEvaluator {
+
+    private static final int LINES_PER_TASK = 64;
+
+    private LineCaseEvaluator() {
+    }
+
+    /**
+     * @param expectations expectation per line, missing or null entries mean {@link LineCaseResults.Expectation#NONE}
+     * @return per-line verdicts, or null if the run was cancelled
+     */
+    public static LineCaseResults evaluate(Pattern pattern, CharSequence text, LineCaseResults.Expectation[] expectations,
+                                           MatchBudget budget, BooleanSupplier cancelled) {
+        int[] lineStarts = lineStarts(text);
+        int lineCount = lineStarts.length - 1;
+        byte[] verdicts = new byte[lineCount];
+        byte[] expected = new byte[lineCount];
+        for (int line = 0; line < Math.min(lineCount, expectations.length); line++) {
+            if (expectations[line] != null) {
+                expected[line] = (byte) expectations[line].ordinal();
+            }
+        }
+        try {
+            ForkJoinPool.commonPool().invoke(new EvaluateTask(pattern, text, lineStarts, verdicts, 0, lineCount, budget, cancelled));
+        } catch (CancellationException e) {
+            return null;
+        }
+        return new LineCaseResults(lineStarts, verdicts, expected);
+    }
+
+    /**
+     * @return start offsets of all lines followed by the end of the last line (excluding its line break)
+     */
+    private static int[] lineStarts(CharSequence text) {
+        int[] starts = new int[16];
+        int count = 0;
+        starts[count++] = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                if (count + 1 >= starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length << 1);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        if (count >= starts.length) {
+            starts = Arrays.copyOf(starts, count + 1);
+        }
+        starts[count++] = text.length() + 1;
+        return Arrays.copyOf(starts, count);
+    }
+
+    @SuppressWarnings("serial")
+    private static final class EvaluateTask extends RecursiveAction {
+
+        private final Pattern pattern;
+        private final CharSequence text;
+        private final int[] lineStarts;
+        private final byte[] verdicts;
+        private final int fromLine;
+        private final int toLine;
+        private final MatchBudget budget;
+        private final BooleanSupplier cancelled;
+
+        private EvaluateTask(Pattern pattern, CharSequence text, int[] lineStarts, byte[] verdicts, int fromLine, int toLine,
+                             MatchBudget budget, BooleanSupplier cancelled) {
+            this.pattern = pattern;
+            this.text = text;
+            this.lineStarts = lineStarts;
+            this.verdicts = verdicts;
+            this.fromLine = fromLine;
+            this.toLine = toLine;
+            this.budget = budget;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (toLine - fromLine > LINES_PER_TASK) {
+                int middle = (fromLine + toLine) >>> 1;
+                invokeAll(new EvaluateTask(pattern, text, lineStarts, verdicts, fromLine, middle, budget, cancelled),
+                        new EvaluateTask(pattern, text, lineStarts, verdicts, middle, toLine, budget, cancelled));
+                return;
+            }
+            Matcher matcher = pattern.matcher("");
+            for (int line = fromLine; line < toLine; line++) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                verdicts[line] = (byte) evaluateLine(matcher, lineStarts[line], lineStarts[line + 1] - 1).ordinal();
+            }
+        }
+
+        private LineCaseResults.Verdict evaluateLine(Matcher matcher, int start, int end) {
+            matcher.reset(new BudgetedCharSequence(text, budget, cancelled));
+            try {
+                if (!matcher.region(start, end).find()) {
+                    return LineCaseResults.Verdict.NO_MATCH;
+                }
+                return matcher.region(start, end).matches() ? LineCaseResults.Verdict.FULL_MATCH : LineCaseResults.Verdict.MATCH;
+            } catch (BudgetedCharSequence.BudgetExceededException e) {
+                return LineCaseResults.Verdict.TIMED_OUT;
+            } catch (StackOverflowError e) {
+                // a long line runs out of stack in java.util.regex, the other lines still get their verdicts
+                return LineCaseResults.Verdict.STACK_OVERFLOW;
+            }
+        }
+    }
+}
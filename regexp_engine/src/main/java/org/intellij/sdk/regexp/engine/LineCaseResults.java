@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+/**
+ * Per-line verdicts of the "one test case per line" mode.
+ */
+public final class LineCaseResults {
+
+    public enum Verdict {
+        NO_MATCH,
+        MATCH,
+        FULL_MATCH,
+        TIMED_OUT,
+        STACK_OVERFLOW
+    }
+
+    public enum Expectation {
+        NONE,
+        MATCH,
+        NO_MATCH
+    }
+
+    private static final Verdict[] VERDICTS = Verdict.values();
+    private static final Expectation[] EXPECTATIONS = Expectation.values();
+
+    private final int[] lineStarts;
+    private final byte[] verdicts;
+    private final byte[] expectations;
+
+    LineCaseResults(int[] lineStarts, byte[] verdicts, byte[] expectations) {
+        this.lineStarts = lineStarts;
+        this.verdicts = verdicts;
+        this.expectations = expectations;
+    }
+
+    public int getLineCount() {
+        return verdicts.length;
+    }
+
+    public int getLineStart(int line) {
+        return lineStarts[line];
+    }
+
+    public Verdict getVerdict(int line) {
+        return VERDICTS[verdicts[line]];
+    }
+
+    public Expectation getExpectation(int line) {
+        return EXPECTATIONS[expectations[line]];
+    }
+
+    /**
+     * @return whether the line has an expectation and the verdict satisfies it
+     */
+    public boolean isPassed(int line) {
+        Verdict verdict = getVerdict(line);
+        switch (getExpectation(line)) {
+            case MATCH:
+                return verdict == Verdict.MATCH || verdict == Verdict.FULL_MATCH;
+            case NO_MATCH:
+                return verdict == Verdict.NO_MATCH;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return number of lines with an expectation
+     */
+    public int getCheckedCount() {
+        int count = 0;
+        for (byte expectation : expectations) {
+            if (expectation != Expectation.NONE.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getPassedCount() {
+        int count = 0;
+        for (int line = 0; line < verdicts.length; line++) {
+            if (isPassed(line)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getMatchedCount() {
+        int count = 0;
+        for (byte verdict : verdicts) {
+            if (verdict == Verdict.MATCH.ordinal() || verdict == Verdict.FULL_MATCH.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upper bound for a single matching run, in matcher steps and wall clock time.
+ */
+public final class MatchBudget {
+
+    public static final MatchBudget UNLIMITED = new MatchBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long steps;
+    private final long timeNanos;
+
+    private MatchBudget(long steps, long timeNanos) {
+        this.steps = steps;
+        this.timeNanos = timeNanos;
+    }
+
+    public static MatchBudget of(long steps, long timeMillis) {
+        return new MatchBudget(steps, TimeUnit.MILLISECONDS.toNanos(timeMillis));
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Collects match ranges of a compiled pattern under a {@link MatchBudget}.
+ * Safe to call from any thread, the subject text should be an immutable snapshot.
+ */
+public final class MatchCollector {
+
+    private MatchCollector() {
+    }
+
+    /**
+     * Receives match ranges as they are found.
+     */
+    public interface RangeConsumer {
+
+        /**
+         * @return false to stop the search
+         */
+        boolean accept(int start, int end);
+    }
+
+    public static MatchReport collect(MatchEngine engine, CharSequence text, MatchBudget budget, BooleanSupplier cancelled) {
+        MatchRanges.Builder ranges = new MatchRanges.Builder();
+        MatchReport report = stream(engine, text, budget, cancelled, (start, end) -> {
+            ranges.add(start, end);
+            return true;
+        });
+        return new MatchReport(report.getStatus(), ranges.build(), report.getSteps(), report.isFirstHitEnd());
+    }
+
+    /**
+     * Passes every match to {@code consumer} as soon as it is found, nothing is kept,
+     * so a text of any size is matched in constant memory.
+     *
+     * @return report without ranges, stopping early through the consumer still counts as completed
+     */
+    public static MatchReport stream(MatchEngine engine, CharSequence text, MatchBudget budget, BooleanSupplier cancelled,
+                                     RangeConsumer consumer) {
+        BudgetedCharSequence input = new BudgetedCharSequence(text, budget, cancelled);
+        boolean firstHitEnd = false;
+        try {
+            MatchEngine.Searcher searcher = engine.searcher(input);
+            boolean found = searcher.find();
+            firstHitEnd = searcher.hitEnd();
+            while (found && consumer.accept(searcher.start(), searcher.end())) {
+                found = searcher.find();
+            }
+        } catch (BudgetedCharSequence.BudgetExceededException e) {
+            return new MatchReport(MatchReport.Status.TIMED_OUT, MatchRanges.EMPTY, e.getSteps(), firstHitEnd);
+        } catch (StackOverflowError e) {
+            // java.util.regex recurses per repetition of a group, a long enough match runs out of stack
+            return new MatchReport(MatchReport.Status.STACK_OVERFLOW, MatchRanges.EMPTY, input.getSteps(), firstHitEnd);
+        } catch (CancellationException e) {
+            return new MatchReport(MatchReport.Status.CANCELLED, MatchRanges.EMPTY, input.getSteps(), firstHitEnd);
+        }
+        return new MatchReport(MatchReport.Status.COMPLETED, MatchRanges.EMPTY, input.getSteps(), firstHitEnd);
+    }
+
+    /**
+     * Re-matches only the edited part of the text.
+     * <p>
+     * {@code previous} must already be mapped through the edit with {@link MatchRanges#applyEdit}.
+     * Matching restarts where {@code window} says no earlier match attempt can see the edit, kept ranges before
+     * that point are reused, and the scan stops as soon as it reproduces one of the previous ranges behind the edit:
+     * from there on a full scan would see the same text and find the same matches.
+     * Patterns without such a point are matched in full.
+     *
+     * @param dirtyStart start of the edited region in the current text, at or before the start of every range
+     *                   the edit dropped, see {@link MatchRanges#getDirtyStart}
+     * @param dirtyEnd   end of the edited region in the current text
+     */
+    public static MatchReport collectIncremental(MatchEngine engine, ResyncWindow window, CharSequence text, MatchRanges previous,
+                                                 boolean previousFirstHitEnd, int dirtyStart, int dirtyEnd,
+                                                 MatchBudget budget, BooleanSupplier cancelled) {
+        if (window.isFullScan()) {
+            return collect(engine, text, budget, cancelled);
+        }
+        int resyncFrom = window.safeStart(text, dirtyStart);
+        // attempts before resyncFrom found these ranges before the edit and find them again
+        int prefixEnd = previous.indexOfFirstStartingAtOrAfter(resyncFrom);
+        int scanFrom = resyncFrom;
+        if (prefixEnd > 0) {
+            int lastEnd = previous.getEnd(prefixEnd - 1);
+            if (lastEnd > scanFrom) {
+                scanFrom = lastEnd;
+            }
+            if (previous.getStart(prefixEnd - 1) == scanFrom && lastEnd == scanFrom) {
+                // find() never reports two empty matches at the same offset
+                scanFrom++;
+            }
+        }
+
+        BudgetedCharSequence input = new BudgetedCharSequence(text, budget, cancelled);
+        MatchRanges.Builder ranges = new MatchRanges.Builder();
+        boolean firstHitEnd = previousFirstHitEnd;
+        int suffixStart = previous.size();
+        try {
+            MatchEngine.Searcher searcher = engine.searcher(input);
+            boolean found = scanFrom <= text.length() && searcher.find(scanFrom);
+            if (prefixEnd == 0) {
+                firstHitEnd = searcher.hitEnd();
+            }
+            while (found) {
+                int start = searcher.start();
+                int end = searcher.end();
+                if (start >= dirtyEnd) {
+                    int index = previous.indexOfFirstStartingAtOrAfter(start);
+                    if (index < previous.size() && previous.getStart(index) == start && previous.getEnd(index) == end) {
+                        suffixStart = index;
+                        break;
+                    }
+                }
+                ranges.add(start, end);
+                found = searcher.find();
+            }
+        } catch (BudgetedCharSequence.BudgetExceededException e) {
+            return new MatchReport(MatchReport.Status.TIMED_OUT, previous.splice(prefixEnd, ranges.build(), previous.size()), e.getSteps(), firstHitEnd);
+        } catch (StackOverflowError e) {
+            return new MatchReport(MatchReport.Status.STACK_OVERFLOW, previous.splice(prefixEnd, ranges.build(), previous.size()), input.getSteps(), firstHitEnd);
+        } catch (CancellationException e) {
+            return new MatchReport(MatchReport.Status.CANCELLED, MatchRanges.EMPTY, input.getSteps(), firstHitEnd);
+        }
+        return new MatchReport(MatchReport.Status.COMPLETED, previous.splice(prefixEnd, ranges.build(), suffixStart), input.getSteps(), firstHitEnd);
+    }
+}
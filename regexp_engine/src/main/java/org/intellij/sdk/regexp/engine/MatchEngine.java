@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+/**
+ * Matching engine behind the test strings pipeline.
+ */
+public interface MatchEngine {
+
+    /**
+     * @return short name shown to the user
+     */
+    String getName();
+
+    /**
+     * @return a new stateful searcher over the text, to be used from a single thread
+     */
+    Searcher searcher(CharSequence text);
+
+    /**
+     * Subset of {@link java.util.regex.Matcher} needed to collect match ranges, with the same semantics.
+     */
+    interface Searcher {
+
+        /**
+         * Finds the next match after the previous one, like {@link java.util.regex.Matcher#find()}.
+         */
+        boolean find();
+
+        /**
+         * Resets the searcher and finds the first match starting at or after {@code from},
+         * like {@link java.util.regex.Matcher#find(int)}.
+         */
+        boolean find(int from);
+
+        /**
+         * Resets the searcher and finds the first match lying within {@code [from, to)}, like {@link java.util.regex.Matcher#find()}
+         * over a region with transparent, non-anchoring bounds: lookarounds and boundaries see the text outside,
+         * {@code ^} and {@code $} still match at the text bounds only.
+         * The search must be restarted with {@link #find(int)} or this method before calling {@link #find()}.
+         */
+        boolean find(int from, int to);
+
+        int start();
+
+        int end();
+
+        /**
+         * @return whether the last search read up to the end of the text, like {@link java.util.regex.Matcher#hitEnd()}
+         */
+        boolean hitEnd();
+    }
+}
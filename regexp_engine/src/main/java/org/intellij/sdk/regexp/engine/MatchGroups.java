@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Capturing groups of single matches.
+ * <p>
+ * The engines report match ranges only, so groups are recovered by running {@link java.util.regex} again
+ * at the start of a match, and only for the matches somebody looks at.
+ */
+public final class MatchGroups {
+
+    private MatchGroups() {
+    }
+
+    /**
+     * @return (start, end) pairs of group 0 and every capturing group of the match starting at {@code start},
+     * -1 for groups that did not participate, or null if no match starts there
+     * @throws BudgetedCharSequence.BudgetExceededException if the budget runs out
+     */
+    public static int[] find(Pattern pattern, CharSequence text, int start, MatchBudget budget) {
+        Matcher matcher = pattern.matcher(new BudgetedCharSequence(text, budget, () -> false));
+        // transparent bounds let lookbehinds and \b see the text before the match
+        matcher.region(start, text.length()).useTransparentBounds(true).useAnchoringBounds(false);
+        if (!matcher.lookingAt()) {
+            return null;
+        }
+        int[] groups = new int[(matcher.groupCount() + 1) << 1];
+        for (int i = 0; i <= matcher.groupCount(); i++) {
+            groups[i << 1] = matcher.start(i);
+            groups[(i << 1) + 1] = matcher.end(i);
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.Arrays;
+
+/**
+ * Immutable list of match ranges packed into a single int array as (start, end) pairs.
+ */
+public final class MatchRanges {
+
+    public static final MatchRanges EMPTY = new MatchRanges(new int[0], 0);
+
+    private final int[] offsets;
+    private final int size;
+
+    private MatchRanges(int[] offsets, int size) {
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getStart(int index) {
+        return offsets[index << 1];
+    }
+
+    public int getEnd(int index) {
+        return offsets[(index << 1) + 1];
+    }
+
+    /**
+     * Ranges are produced by consecutive {@code find()} calls, so both starts and ends are sorted.
+     *
+     * @return index of the first range ending at or after {@code offset}, or {@link #size()} if there is none
+     */
+    public int indexOfFirstEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getEnd(mid) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first range starting after {@code offset}, or {@link #size()} if there is none
+     */
+    public int indexOfFirstStartingAfter(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getStart(mid) <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first range starting at or after {@code offset}, or {@link #size()} if there is none
+     */
+    public int indexOfFirstStartingAtOrAfter(int offset) {
+        return indexOfFirstStartingAfter(offset - 1);
+    }
+
+    /**
+     * @return start of the first range {@link #applyEdit} drops for this edit, or {@code offset} if it drops none
+     */
+    public int getDirtyStart(int offset, int oldLength) {
+        int first = indexOfFirstEndingAtOrAfter(offset);
+        if (first < indexOfFirstStartingAfter(offset + oldLength)) {
+            return Math.min(offset, getStart(first));
+        }
+        return offset;
+    }
+
+    /**
+     * Maps the ranges through a document change: ranges touching the replaced text are dropped,
+     * ranges after it are shifted by the length difference.
+     */
+    public MatchRanges applyEdit(int offset, int oldLength, int newLength) {
+        int from = indexOfFirstEndingAtOrAfter(offset);
+        int to = indexOfFirstStartingAfter(offset + oldLength);
+        int delta = newLength - oldLength;
+        int newSize = size - (to - from);
+        if (newSize == 0) {
+            return EMPTY;
+        }
+        int[] result = new int[newSize << 1];
+        System.arraycopy(offsets, 0, result, 0, from << 1);
+        for (int i = to, j = from << 1; i < size; i++) {
+            result[j++] = getStart(i) + delta;
+            result[j++] = getEnd(i) + delta;
+        }
+        return new MatchRanges(result, newSize);
+    }
+
+    /**
+     * @return ranges {@code [0, prefixEnd)} of this list, then {@code middle}, then ranges from {@code suffixStart} on
+     */
+    public MatchRanges splice(int prefixEnd, MatchRanges middle, int suffixStart) {
+        int suffixSize = size - suffixStart;
+        int newSize = prefixEnd + middle.size + suffixSize;
+        if (newSize == 0) {
+            return EMPTY;
+        }
+        int[] result = new int[newSize << 1];
+        System.arraycopy(offsets, 0, result, 0, prefixEnd << 1);
+        System.arraycopy(middle.offsets, 0, result, prefixEnd << 1, middle.size << 1);
+        System.arraycopy(offsets, suffixStart << 1, result, (prefixEnd + middle.size) << 1, suffixSize << 1);
+        return new MatchRanges(result, newSize);
+    }
+
+    public static final class Builder {
+
+        private int[] offsets;
+        private int size;
+
+        public Builder() {
+            offsets = new int[32];
+        }
+
+        public Builder add(int start, int end) {
+            if ((size << 1) == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length << 1);
+            }
+            offsets[size << 1] = start;
+            offsets[(size << 1) + 1] = end;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public MatchRanges build() {
+            return size == 0 ? EMPTY : new MatchRanges(Arrays.copyOf(offsets, size << 1), size);
+        }
+    }
+}
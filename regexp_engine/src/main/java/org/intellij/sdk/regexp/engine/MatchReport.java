@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+/**
+ * Outcome of collecting the matches of a pattern in a subject text.
+ */
+public final class MatchReport {
+
+    public enum Status {
+        COMPLETED,
+        TIMED_OUT,
+        STACK_OVERFLOW,
+        CANCELLED
+    }
+
+    private final Status status;
+    private final MatchRanges ranges;
+    private final long steps;
+    private final boolean firstHitEnd;
+
+    MatchReport(Status status, MatchRanges ranges, long steps, boolean firstHitEnd) {
+        this.status = status;
+        this.ranges = ranges;
+        this.steps = steps;
+        this.firstHitEnd = firstHitEnd;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return matches found before the run completed, timed out, overflowed the stack or was cancelled
+     */
+    public MatchRanges getRanges() {
+        return ranges;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return whether the first search touched the end of input, i.e. more input could change the result
+     */
+    public boolean isFirstHitEnd() {
+        return firstHitEnd;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.Arrays;
+
+/**
+ * Thompson NFA compiled from a {@link RegexNode} tree.
+ * <p>
+ * Split states keep the backtracking priority of their two branches, so a simulation that explores
+ * threads in order reproduces the leftmost-first semantics of {@link java.util.regex}.
+ */
+final class Nfa {
+
+    static final int CHAR = 0;
+    static final int SPLIT = 1;
+    static final int ASSERT = 2;
+    static final int MATCH = 3;
+
+    private static final int MAX_STATES = 10000;
+
+    private int[] types = new int[64];
+    private int[] next1 = new int[64];
+    private int[] next2 = new int[64];
+    private Object[] payloads = new Object[64];
+    private int size;
+    private final int start;
+    private final int restart;
+
+    private Nfa(RegexNode root, boolean reversed) {
+        int match = add(MATCH, -1, -1, null);
+        int body = build(root, match, reversed);
+        if (reversed) {
+            start = body;
+            restart = -1;
+        } else {
+            // unanchored search: a lazy any-character loop in front of the pattern, tried last
+            int loop = add(SPLIT, body, -1, null);
+            int any = add(CHAR, loop, -1, CharSet.ANY);
+            next2[loop] = any;
+            start = loop;
+            restart = any;
+        }
+    }
+
+    /**
+     * @return the NFA, or {@code null} if the tree uses constructs an automaton cannot match exactly
+     */
+    static Nfa compile(RegexNode root, boolean reversed) {
+        if (!isSupported(root)) {
+            return null;
+        }
+        try {
+            return new Nfa(root, reversed);
+        } catch (TooLargeException e) {
+            return null;
+        }
+    }
+
+    static boolean isSupported(RegexNode node) {
+        switch (node.getKind()) {
+            case ATOMIC_GROUP:
+            case LOOKAHEAD:
+            case NEGATIVE_LOOKAHEAD:
+            case LOOKBEHIND:
+            case NEGATIVE_LOOKBEHIND:
+            case BACK_REFERENCE:
+            case UNSUPPORTED:
+                return false;
+            case REPEAT:
+                // empty iterations are cut short by the backtracker in ways a plain automaton does not follow
+                if (node.isPossessive() || node.getMax() != 1 && node.getBody().isNullable()) {
+                    return false;
+                }
+                break;
+            default:
+                break;
+        }
+        for (RegexNode child : node.getChildren()) {
+            if (!isSupported(child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getStart() {
+        return start;
+    }
+
+    /**
+     * @return the any-character state that moves the unanchored search to the next position, or -1 if there is none
+     */
+    int getRestart() {
+        return restart;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getType(int state) {
+        return types[state];
+    }
+
+    /**
+     * @return the target of a char or assertion state, or the preferred branch of a split
+     */
+    int getNext(int state) {
+        return next1[state];
+    }
+
+    int getAlternative(int state) {
+        return next2[state];
+    }
+
+    CharSet getCharSet(int state) {
+        return (CharSet) payloads[state];
+    }
+
+    RegexNode.Kind getAssertion(int state) {
+        return (RegexNode.Kind) payloads[state];
+    }
+
+    /**
+     * Builds the states of {@code node} in front of {@code next}, following sequences backwards when {@code reversed}.
+     *
+     * @return entry state
+     */
+    private int build(RegexNode node, int next, boolean reversed) {
+        switch (node.getKind()) {
+            case CHAR:
+                return add(CHAR, next, -1, node.getCharSet());
+            case SEQUENCE: {
+                int entry = next;
+                int count = node.getChildren().size();
+                for (int i = 0; i < count; i++) {
+                    entry = build(node.getChildren().get(reversed ? i : count - 1 - i), entry, reversed);
+                }
+                return entry;
+            }
+            case ALTERNATION: {
+                int count = node.getChildren().size();
+                if (count == 0) {
+                    return next;
+                }
+                int entry = build(node.getChildren().get(count - 1), next, reversed);
+                for (int i = count - 2; i >= 0; i--) {
+                    entry = add(SPLIT, build(node.getChildren().get(i), next, reversed), entry, null);
+                }
+                return entry;
+            }
+            case GROUP:
+                return build(node.getBody(), next, reversed);
+            case REPEAT:
+                return buildRepeat(node, next, reversed);
+            default:
+                return add(ASSERT, next, -1, node.getKind());
+        }
+    }
+
+    private int buildRepeat(RegexNode node, int next, boolean reversed) {
+        RegexNode body = node.getBody();
+        int entry;
+        if (node.isUnbounded()) {
+            entry = add(SPLIT, -1, -1, null);
+            int iteration = build(body, entry, reversed);
+            next1[entry] = node.isLazy() ? next : iteration;
+            next2[entry] = node.isLazy() ? iteration : next;
+        } else {
+            entry = next;
+            for (int i = node.getMin(); i < node.getMax(); i++) {
+                int iteration = build(body, entry, reversed);
+                entry = node.isLazy() ? add(SPLIT, next, iteration, null) : add(SPLIT, iteration, next, null);
+            }
+        }
+        for (int i = 0; i < node.getMin(); i++) {
+            entry = build(body, entry, reversed);
+        }
+        return entry;
+    }
+
+    private int add(int type, int target, int alternative, Object payload) {
+        if (size == MAX_STATES) {
+            throw new TooLargeException();
+        }
+        if (size == types.length) {
+            types = Arrays.copyOf(types, size << 1);
+            next1 = Arrays.copyOf(next1, size << 1);
+            next2 = Arrays.copyOf(next2, size << 1);
+            payloads = Arrays.copyOf(payloads, size << 1);
+        }
+        types[size] = type;
+        next1[size] = target;
+        next2[size] = alternative;
+        payloads[size] = payload;
+        return size++;
+    }
+
+    private static final class TooLargeException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Micro-benchmark of one pattern over a text: one operation finds every match in the text.
+ * <p>
+ * A first instrumented run counts {@code charAt} calls under a {@link MatchBudget}, so a catastrophic pattern
+ * stops there instead of hanging the timed loop. Then the operation is warmed up and measured on the plain text.
+ */
+public final class PatternBenchmark {
+
+    private static final long WARMUP_NANOS = TimeUnit.MILLISECONDS.toNanos(300);
+    private static final long MEASUREMENT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MIN_ITERATIONS = 5;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // keeps the JIT from dropping match positions nobody reads
+    private static volatile long sink;
+
+    private PatternBenchmark() {
+    }
+
+    /**
+     * @throws CancellationException when {@code cancelled} becomes true
+     */
+    public static Result run(MatchEngine engine, CharSequence text, MatchBudget budget, BooleanSupplier cancelled) {
+        BudgetedCharSequence instrumented = new BudgetedCharSequence(text, budget, cancelled);
+        int matches;
+        try {
+            matches = findAll(engine, instrumented);
+        } catch (BudgetedCharSequence.BudgetExceededException e) {
+            return new Result(Result.Status.TIMED_OUT, 0, 0, 0, e.getSteps(), text.length(), -1);
+        } catch (StackOverflowError e) {
+            // java.util.regex recurses per repetition of a group, the timed loop would fail the same way
+            return new Result(Result.Status.STACK_OVERFLOW, 0, 0, 0, instrumented.getSteps(), text.length(), -1);
+        }
+        long steps = instrumented.getSteps();
+
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() - warmupEnd < 0) {
+            checkCancelled(cancelled);
+            findAll(engine, text);
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        int iterations = 0;
+        do {
+            checkCancelled(cancelled);
+            findAll(engine, text);
+            iterations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASUREMENT_NANOS || iterations < MIN_ITERATIONS);
+        long allocatedAfter = allocatedBytes();
+
+        long allocated = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+        return new Result(Result.Status.COMPLETED, iterations, elapsed, matches, steps, text.length(), allocated);
+    }
+
+    private static int findAll(MatchEngine engine, CharSequence text) {
+        MatchEngine.Searcher searcher = engine.searcher(text);
+        int count = 0;
+        long positions = 0;
+        while (searcher.find()) {
+            positions += searcher.start() + searcher.end();
+            count++;
+        }
+        sink = positions;
+        return count;
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if the JVM does not track it
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    public static final class Result {
+
+        public enum Status {
+            COMPLETED,
+            TIMED_OUT,
+            STACK_OVERFLOW
+        }
+
+        private final Status status;
+        private final int iterations;
+        private final long elapsedNanos;
+        private final int matches;
+        private final long steps;
+        private final int length;
+        private final long allocatedBytes;
+
+        private Result(Status status, int iterations, long elapsedNanos, int matches, long steps, int length, long allocatedBytes) {
+            this.status = status;
+            this.iterations = iterations;
+            this.elapsedNanos = elapsedNanos;
+            this.matches = matches;
+            this.steps = steps;
+            this.length = length;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return whether the instrumented run ran out of budget or stack, only {@link #getSteps()} is known then
+         */
+        public boolean isAborted() {
+            return status != Status.COMPLETED;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public double getNanosPerOperation() {
+            return iterations == 0 ? 0 : (double) elapsedNanos / iterations;
+        }
+
+        public int getMatchesPerOperation() {
+            return matches;
+        }
+
+        public double getMatchesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (double) matches * iterations * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        /**
+         * @return {@code charAt} calls of one operation, counted in the instrumented run
+         */
+        public long getSteps() {
+            return steps;
+        }
+
+        public double getStepsPerCharacter() {
+            return length == 0 ? steps : (double) steps / length;
+        }
+
+        /**
+         * @return heap bytes allocated per operation, or -1 if the JVM does not report allocations
+         */
+        public double getAllocatedBytesPerOperation() {
+            return allocatedBytes < 0 || iterations == 0 ? -1 : (double) allocatedBytes / iterations;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Matches a set of patterns against one text.
+ * <p>
+ * The required literals of all patterns go into one {@link AhoCorasick} automaton, and a single scan over the text
+ * collects the positions where each pattern can match. A {@link PrefilteredMatchEngine} then runs each pattern
+ * only in windows around its positions.
+ * Patterns without required literals, or whose literals are too frequent to pay off, are matched over the whole text.
+ * Patterns are verified in parallel.
+ */
+public final class PatternSetMatcher {
+
+    // more candidates than one per this many chars are matched faster by a plain scan
+    private static final int MIN_CHARS_PER_CANDIDATE = 16;
+
+    private PatternSetMatcher() {
+    }
+
+    /**
+     * @return per-pattern results in the order of {@code entries}, or null if the run was cancelled
+     */
+    public static Result match(List<Entry> entries, CharSequence text, MatchBudget budget, BooleanSupplier cancelled) {
+        Map<String, List<Integer>> owners = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).literals != null) {
+                for (String literal : entries.get(i).literals) {
+                    owners.computeIfAbsent(literal, key -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        List<String> literals = new ArrayList<>(owners.keySet());
+        int[][] literalOwners = new int[literals.size()][];
+        for (int i = 0; i < literals.size(); i++) {
+            literalOwners[i] = owners.get(literals.get(i)).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        long scanStart = System.nanoTime();
+        int maxCandidates = text.length() / MIN_CHARS_PER_CANDIDATE + 1;
+        int[][] candidates = new int[entries.size()][];
+        int[] candidateCounts = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            candidates[i] = entries.get(i).literals == null ? null : new int[16];
+        }
+        try {
+            if (!literals.isEmpty()) {
+                new AhoCorasick(literals).scan(text, (literal, start) -> {
+                    for (int owner : literalOwners[literal]) {
+                        int[] positions = candidates[owner];
+                        if (positions == null) {
+                            continue;
+                        }
+                        int count = candidateCounts[owner]++;
+                        if (count == maxCandidates) {
+                            candidates[owner] = null;
+                        } else {
+                            if (count == positions.length) {
+                                candidates[owner] = positions = Arrays.copyOf(positions, positions.length << 1);
+                            }
+                            positions[count] = start;
+                        }
+                    }
+                }, cancelled);
+            }
+        } catch (CancellationException e) {
+            return null;
+        }
+        long scanNanos = System.nanoTime() - scanStart;
+        for (int i = 0; i < entries.size(); i++) {
+            if (candidates[i] != null) {
+                // literals of different lengths report their hits out of start order
+                Arrays.sort(candidates[i], 0, candidateCounts[i]);
+            }
+        }
+
+        MatchReport[] reports = new MatchReport[entries.size()];
+        long[] nanos = new long[entries.size()];
+        try {
+            ForkJoinPool.commonPool().invoke(new VerifyTask(entries, text, candidates, candidateCounts, budget, cancelled,
+                    reports, nanos, 0, entries.size()));
+        } catch (CancellationException e) {
+            return null;
+        }
+        boolean[] prefiltered = new boolean[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            prefiltered[i] = candidates[i] != null;
+        }
+        return new Result(reports, nanos, candidateCounts, prefiltered, scanNanos);
+    }
+
+    /**
+     * A pattern of the set, with the facts about it the prefilter relies on.
+     */
+    public static final class Entry {
+
+        private final Pattern pattern;
+        private final List<String> literals;
+        private final int maxLength;
+        private final boolean singleLine;
+
+        private Entry(Pattern pattern, List<String> literals, int maxLength, boolean singleLine) {
+            this.pattern = pattern;
+            this.literals = literals;
+            this.maxLength = maxLength;
+            this.singleLine = singleLine;
+        }
+
+        /**
+         * @param tree tree of the pattern, or null to match it without prefiltering
+         */
+        public static Entry of(Pattern pattern, RegexNode tree) {
+            if (tree == null || !PrefilteredMatchEngine.supportsFlags(pattern.flags())) {
+                return new Entry(pattern, null, RegexNode.UNBOUNDED, false);
+            }
+            return new Entry(pattern, RequiredLiterals.extract(tree), tree.getMaxLength(), PrefilteredMatchEngine.isSingleLine(tree, pattern.flags()));
+        }
+
+        public Pattern getPattern() {
+            return pattern;
+        }
+
+        /**
+         * @return literals one of which every match contains, or null if the pattern is always matched over the whole text
+         */
+        public List<String> getLiterals() {
+            return literals;
+        }
+    }
+
+    public static final class Result {
+
+        private final MatchReport[] reports;
+        private final long[] nanos;
+        private final int[] candidateCounts;
+        private final boolean[] prefiltered;
+        private final long scanNanos;
+
+        private Result(MatchReport[] reports, long[] nanos, int[] candidateCounts, boolean[] prefiltered, long scanNanos) {
+            this.reports = reports;
+            this.nanos = nanos;
+            this.candidateCounts = candidateCounts;
+            this.prefiltered = prefiltered;
+            this.scanNanos = scanNanos;
+        }
+
+        public MatchReport getReport(int index) {
+            return reports[index];
+        }
+
+        /**
+         * @return time spent matching the pattern, not counting the shared literal scan
+         */
+        public long getNanos(int index) {
+            return nanos[index];
+        }
+
+        /**
+         * @return literal occurrences found for the pattern, each a position where a match can be
+         */
+        public int getCandidateCount(int index) {
+            return candidateCounts[index];
+        }
+
+        /**
+         * @return whether the pattern was matched only around its candidates, rather than over the whole text
+         */
+        public boolean isPrefiltered(int index) {
+            return prefiltered[index];
+        }
+
+        public long getScanNanos() {
+            return scanNanos;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class VerifyTask extends RecursiveAction {
+
+        private final List<Entry> entries;
+        private final CharSequence text;
+        private final int[][] candidates;
+        private final int[] candidateCounts;
+        private final MatchBudget budget;
+        private final BooleanSupplier cancelled;
+        private final MatchReport[] reports;
+        private final long[] nanos;
+        private final int from;
+        private final int to;
+
+        private VerifyTask(List<Entry> entries, CharSequence text, int[][] candidates, int[] candidateCounts, MatchBudget budget,
+                           BooleanSupplier cancelled, MatchReport[] reports, long[] nanos, int from, int to) {
+            this.entries = entries;
+            this.text = text;
+            this.candidates = candidates;
+            this.candidateCounts = candidateCounts;
+            this.budget = budget;
+            this.cancelled = cancelled;
+            this.reports = reports;
+            this.nanos = nanos;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VerifyTask(entries, text, candidates, candidateCounts, budget, cancelled, reports, nanos, from, middle),
+                        new VerifyTask(entries, text, candidates, candidateCounts, budget, cancelled, reports, nanos, middle, to));
+                return;
+            }
+            if (from == to) {
+                return;
+            }
+            long start = System.nanoTime();
+            Entry entry = entries.get(from);
+            MatchEngine engine = new JavaMatchEngine(entry.pattern);
+            if (candidates[from] != null) {
+                int[] positions = candidates[from];
+                int count = candidateCounts[from];
+                engine = new PrefilteredMatchEngine(engine, input -> PrefilteredMatchEngine.sorted(positions, count),
+                        entry.maxLength, entry.singleLine, entry.literals);
+            }
+            MatchReport report = MatchCollector.collect(engine, text, budget, cancelled);
+            if (report.getStatus() == MatchReport.Status.CANCELLED) {
+                throw new CancellationException();
+            }
+            reports[from] = report;
+            nanos[from] = System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Runs another engine only in windows around the positions where a match can be.
+ * <p>
+ * Every match of a pattern with required literals contains one of them, so the text is first searched
+ * for the literals with Boyer-Moore-Horspool, which skips up to a literal length per comparison.
+ * A match containing a literal at {@code hit} can start no earlier than its maximum length before it,
+ * and if it cannot contain a line break, not before the start of the line; the engine is run over that window only.
+ * Without either bound the search still starts at the first candidate, and a text without candidates is not matched at all.
+ * Once candidates turn out denser than one per {@link #MIN_CHARS_PER_CANDIDATE} chars, or their windows cover
+ * most of the text anyway, the rest of the text is matched directly.
+ * The matches are the same as the engine finds over the whole text.
+ */
+public final class PrefilteredMatchEngine implements MatchEngine {
+
+    // more candidates than one per this many chars are matched faster by a plain scan
+    private static final int MIN_CHARS_PER_CANDIDATE = 16;
+    // candidates seen before their density is judged
+    private static final int MIN_CANDIDATES_FOR_DENSITY = 64;
+
+    private final MatchEngine engine;
+    private final Function<CharSequence, Candidates> candidates;
+    private final int maxLength;
+    private final boolean singleLine;
+    private final List<String> literals;
+    private final AtomicLong matchedCharacters = new AtomicLong();
+
+    PrefilteredMatchEngine(MatchEngine engine, Function<CharSequence, Candidates> candidates, int maxLength, boolean singleLine,
+                           List<String> literals) {
+        this.engine = engine;
+        this.candidates = candidates;
+        this.maxLength = maxLength;
+        this.singleLine = singleLine;
+        this.literals = literals;
+    }
+
+    /**
+     * @param tree  tree of the pattern the engine matches
+     * @param flags {@link Pattern} flags the engine matches with
+     * @return the engine prefiltered on the required literals of the pattern, or null if it has none
+     */
+    public static PrefilteredMatchEngine create(MatchEngine engine, RegexNode tree, int flags) {
+        if (!supportsFlags(flags)) {
+            return null;
+        }
+        List<String> literals = RequiredLiterals.extract(tree);
+        if (literals == null) {
+            return null;
+        }
+        literals = commonAffix(literals);
+        LiteralSearch[] searches = literals.stream().map(LiteralSearch::new).toArray(LiteralSearch[]::new);
+        return new PrefilteredMatchEngine(engine, text -> new LiteralCandidates(text, searches), tree.getMaxLength(),
+                isSingleLine(tree, flags), literals);
+    }
+
+    /**
+     * Every match contains one of the literals, so it also contains their common prefix and their common suffix.
+     * One search for the longer of those is cheaper than a search per literal unless it is much shorter than they are.
+     *
+     * @return the common prefix or suffix as the only literal, or the literals if that does not pay off
+     */
+    private static List<String> commonAffix(List<String> literals) {
+        if (literals.size() == 1) {
+            return literals;
+        }
+        String prefix = literals.get(0);
+        String suffix = literals.get(0);
+        int shortest = Integer.MAX_VALUE;
+        for (String literal : literals) {
+            int prefixLength = 0;
+            while (prefixLength < Math.min(prefix.length(), literal.length()) && prefix.charAt(prefixLength) == literal.charAt(prefixLength)) {
+                prefixLength++;
+            }
+            prefix = prefix.substring(0, prefixLength);
+            int suffixLength = 0;
+            while (suffixLength < Math.min(suffix.length(), literal.length())
+                    && suffix.charAt(suffix.length() - 1 - suffixLength) == literal.charAt(literal.length() - 1 - suffixLength)) {
+                suffixLength++;
+            }
+            suffix = suffix.substring(suffix.length() - suffixLength);
+            shortest = Math.min(shortest, literal.length());
+        }
+        String affix = prefix.length() >= suffix.length() ? prefix : suffix;
+        // a Horspool search costs about a pass over the text divided by the literal length
+        return !affix.isEmpty() && (long) affix.length() * literals.size() >= shortest ? List.of(affix) : literals;
+    }
+
+    /**
+     * @return whether literals extracted from the tree match as they are under the flags
+     */
+    static boolean supportsFlags(int flags) {
+        return (flags & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.LITERAL | Pattern.CANON_EQ)) == 0;
+    }
+
+    /**
+     * @return whether no match crosses a line end, so a candidate window can stop at the line of its hit
+     */
+    static boolean isSingleLine(RegexNode tree, int flags) {
+        // the tree models . without DOTALL
+        return (flags & Pattern.DOTALL) == 0 && !tree.canConsume(CharSet.LINE_TERMINATOR);
+    }
+
+    @Override
+    public String getName() {
+        return engine.getName();
+    }
+
+    /**
+     * @return literals one of which every match contains
+     */
+    public List<String> getLiterals() {
+        return literals;
+    }
+
+    /**
+     * @return characters the underlying engine ran over, summed over all searchers so far
+     */
+    public long getMatchedCharacters() {
+        return matchedCharacters.get();
+    }
+
+    @Override
+    public Searcher searcher(CharSequence text) {
+        return new PrefilteredSearcher(text, engine.searcher(text), candidates.apply(text));
+    }
+
+    /**
+     * Positions in a text where a match can be.
+     */
+    interface Candidates {
+
+        /**
+         * @return the first candidate at or after {@code from}, or -1 if there is none
+         */
+        int next(int from);
+    }
+
+    /**
+     * Candidates already collected into a sorted array.
+     */
+    static Candidates sorted(int[] positions, int count) {
+        return from -> {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (positions[mid] < from) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low == count ? -1 : positions[low];
+        };
+    }
+
+    private final class PrefilteredSearcher implements Searcher {
+
+        private final CharSequence text;
+        private final Searcher searcher;
+        private final Candidates candidates;
+        private int start = -1;
+        private int end = -1;
+        private int previousStart = -1;
+        private int previousEnd;
+        private boolean hitEnd;
+        // the line around the last candidate, if matches cannot span lines
+        private int lineStart;
+        private int lineEnd = -1;
+        private int scanStart;
+        private int candidateCount;
+        private long windowLength;
+        private boolean direct;
+        // the underlying searcher found the previous match directly, its find() goes on from there
+        private boolean continuing;
+
+        PrefilteredSearcher(CharSequence text, Searcher searcher, Candidates candidates) {
+            this.text = text;
+            this.searcher = searcher;
+            this.candidates = candidates;
+        }
+
+        @Override
+        public boolean find() {
+            int from = previousEnd;
+            if (from == previousStart) {
+                from++;
+            }
+            if (from > text.length()) {
+                start = -1;
+                return false;
+            }
+            return search(from, text.length());
+        }
+
+        @Override
+        public boolean find(int from) {
+            if (from < 0 || from > text.length()) {
+                throw new IndexOutOfBoundsException("Illegal start index");
+            }
+            return restart(from, text.length());
+        }
+
+        @Override
+        public boolean find(int from, int to) {
+            if (from < 0 || from > to || to > text.length()) {
+                throw new IndexOutOfBoundsException("Illegal region");
+            }
+            return restart(from, to);
+        }
+
+        @Override
+        public int start() {
+            if (start < 0) {
+                throw new IllegalStateException("No match available");
+            }
+            return start;
+        }
+
+        @Override
+        public int end() {
+            if (start < 0) {
+                throw new IllegalStateException("No match available");
+            }
+            return end;
+        }
+
+        /**
+         * @return whether the last window searched reached the end of the text; a partial literal there is not reported
+         */
+        @Override
+        public boolean hitEnd() {
+            return hitEnd;
+        }
+
+        private boolean restart(int from, int limit) {
+            previousStart = -1;
+            previousEnd = 0;
+            lineEnd = -1;
+            scanStart = from;
+            candidateCount = 0;
+            windowLength = 0;
+            direct = false;
+            continuing = false;
+            return search(from, limit);
+        }
+
+        /**
+         * Searches a window around each candidate, no match starts before {@code position} at any step.
+         */
+        private boolean search(int position, int limit) {
+            hitEnd = false;
+            start = -1;
+            while (true) {
+                if (direct) {
+                    return searchDirectly(position, limit);
+                }
+                int hit = candidates.next(position);
+                if (hit < 0 || hit >= limit) {
+                    return false;
+                }
+                if (++candidateCount >= MIN_CANDIDATES_FOR_DENSITY
+                        && ((long) candidateCount * MIN_CHARS_PER_CANDIDATE > hit - scanStart || windowLength * 2 > hit - scanStart)) {
+                    direct = true;
+                    continue;
+                }
+                int windowStart = position;
+                int windowEnd = limit;
+                if (maxLength != RegexNode.UNBOUNDED) {
+                    windowStart = Math.max(windowStart, hit - maxLength);
+                    windowEnd = (int) Math.min(windowEnd, (long) hit + maxLength);
+                }
+                boolean lineBounded = false;
+                if (singleLine) {
+                    if (hit > lineEnd || hit < lineStart) {
+                        findLine(hit, position, limit);
+                    }
+                    windowStart = Math.max(windowStart, lineStart);
+                    if (lineEnd <= windowEnd) {
+                        windowEnd = lineEnd;
+                        lineBounded = true;
+                    }
+                }
+                boolean found = searcher.find(windowStart, windowEnd);
+                int length = (found ? searcher.end() : windowEnd) - windowStart;
+                windowLength += length;
+                matchedCharacters.addAndGet(length);
+                if (found) {
+                    int matchStart = searcher.start();
+                    // the match is the one over the whole text unless a longer one could run past the window
+                    if (matchStart <= hit || windowEnd == limit || lineBounded
+                            || maxLength != RegexNode.UNBOUNDED && matchStart + maxLength <= windowEnd) {
+                        return accept(windowEnd);
+                    }
+                    // the window was bounded by the maximum length, a match starting early enough to fit it would have been found
+                    position = Math.max(hit + 1, Math.min(matchStart, windowEnd - maxLength + 1));
+                } else if (windowEnd == limit) {
+                    hitEnd = windowEnd == text.length() && searcher.hitEnd();
+                    return false;
+                } else {
+                    // likewise no match starts early enough to fit the window
+                    position = lineBounded ? windowEnd : Math.max(hit + 1, windowEnd - maxLength + 1);
+                }
+            }
+        }
+
+        private boolean searchDirectly(int position, int limit) {
+            boolean found;
+            if (limit == text.length()) {
+                found = continuing && position == previousEnd ? searcher.find() : searcher.find(position);
+                continuing = found;
+            } else {
+                found = searcher.find(position, limit);
+            }
+            matchedCharacters.addAndGet((found ? searcher.end() : limit) - position);
+            if (found) {
+                return accept(limit);
+            }
+            hitEnd = limit == text.length() && searcher.hitEnd();
+            return false;
+        }
+
+        private boolean accept(int windowEnd) {
+            start = searcher.start();
+            end = searcher.end();
+            previousStart = start;
+            previousEnd = end;
+            hitEnd = windowEnd == text.length() && searcher.hitEnd();
+            return true;
+        }
+
+        private void findLine(int hit, int position, int limit) {
+            lineStart = hit;
+            while (lineStart > position && !CharSet.LINE_TERMINATOR.contains(text.charAt(lineStart - 1))) {
+                lineStart--;
+            }
+            lineEnd = hit;
+            while (lineEnd < limit && !CharSet.LINE_TERMINATOR.contains(text.charAt(lineEnd))) {
+                lineEnd++;
+            }
+        }
+    }
+
+    /**
+     * Occurrences of any of the literals, each searched separately and remembered until passed.
+     */
+    private static final class LiteralCandidates implements Candidates {
+
+        private final CharSequence text;
+        private final LiteralSearch[] searches;
+        private final int[] next;
+        private final int[] searchedFrom;
+
+        LiteralCandidates(CharSequence text, LiteralSearch[] searches) {
+            this.text = text;
+            this.searches = searches;
+            next = new int[searches.length];
+            searchedFrom = new int[searches.length];
+            Arrays.fill(searchedFrom, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int next(int from) {
+            int result = -1;
+            for (int i = 0; i < searches.length; i++) {
+                if (from < searchedFrom[i] || (next[i] >= 0 && next[i] < from)) {
+                    next[i] = searches[i].indexOf(text, from);
+                    searchedFrom[i] = from;
+                }
+                if (next[i] >= 0 && (result < 0 || next[i] < result)) {
+                    result = next[i];
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Boyer-Moore-Horspool search for one literal: the last character under the literal decides how far it can shift.
+     * Characters are bucketed by their low byte, a bucket shifts by the smallest distance of its characters.
+     */
+    private static final class LiteralSearch {
+
+        private final String literal;
+        private final int[] shifts = new int[256];
+
+        LiteralSearch(String literal) {
+            this.literal = literal;
+            int length = literal.length();
+            Arrays.fill(shifts, length);
+            for (int i = 0; i < length - 1; i++) {
+                shifts[literal.charAt(i) & 0xFF] = length - 1 - i;
+            }
+        }
+
+        int indexOf(CharSequence text, int from) {
+            int length = literal.length();
+            char last = literal.charAt(length - 1);
+            int textLength = text.length();
+            for (int i = from + length - 1; i < textLength; ) {
+                char c = text.charAt(i);
+                if (c == last && regionMatches(text, i - length + 1)) {
+                    return i - length + 1;
+                }
+                i += shifts[c & 0xFF];
+            }
+            return -1;
+        }
+
+        private boolean regionMatches(CharSequence text, int offset) {
+            for (int i = 0; i < literal.length() - 1; i++) {
+                if (text.charAt(offset + i) != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
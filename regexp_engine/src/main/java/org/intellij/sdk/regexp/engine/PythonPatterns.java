@@ -0,0 +1,225 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Translates Python {@code re} patterns and flags into their {@link java.util.regex} equivalents.
+ * <p>
+ * Covers the syntax that differs between the two dialects: {@code (?P<name>...)} and {@code (?P=name)},
+ * {@code (?#...)} comments, {@code \Z}, {@code \UXXXXXXXX}, lone {@code \0}, the inline {@code a} and {@code L} flags,
+ * {@code {,n}} repeats and braces that do not form a repeat, which Python reads literally.
+ */
+public final class PythonPatterns {
+
+    private PythonPatterns() {
+    }
+
+    public static String toJavaRegex(String regex) {
+        StringBuilder out = new StringBuilder(regex.length() + 8);
+        Map<String, String> groupNames = new HashMap<>();
+        boolean inClass = false;
+        int classStart = -1;
+        int length = regex.length();
+        for (int i = 0; i < length; i++) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                i = translateEscape(regex, i, inClass, out);
+                continue;
+            }
+            if (inClass) {
+                if (c == ']' && i > classStart) {
+                    inClass = false;
+                } else if (c == '[' || c == '&' && i + 1 < length && regex.charAt(i + 1) == '&') {
+                    // nested classes and intersections are Java only
+                    out.append('\\');
+                }
+                out.append(c);
+                continue;
+            }
+            if (c == '[') {
+                inClass = true;
+                classStart = i + 1;
+                if (classStart < length && regex.charAt(classStart) == '^') {
+                    classStart++;
+                }
+                out.append(c);
+            } else if (c == '(' && regex.startsWith("(?", i)) {
+                i = translateGroupStart(regex, i, groupNames, out);
+            } else if (c == '{') {
+                i = translateBrace(regex, i, out);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Maps Python flag names, as in {@code re.IGNORECASE | re.M}, to {@link Pattern} flags.
+     * Python matches {@code str} patterns with Unicode classes unless {@code re.ASCII} is given.
+     */
+    public static int toJavaFlags(Iterable<String> flagNames) {
+        int flags = 0;
+        boolean ascii = false;
+        for (String name : flagNames) {
+            switch (name) {
+                case "I":
+                case "IGNORECASE":
+                    flags |= Pattern.CASE_INSENSITIVE;
+                    break;
+                case "M":
+                case "MULTILINE":
+                    flags |= Pattern.MULTILINE;
+                    break;
+                case "S":
+                case "DOTALL":
+                    flags |= Pattern.DOTALL;
+                    break;
+                case "X":
+                case "VERBOSE":
+                    flags |= Pattern.COMMENTS;
+                    break;
+                case "A":
+                case "ASCII":
+                    ascii = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (!ascii) {
+            flags |= Pattern.UNICODE_CHARACTER_CLASS;
+            if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+                flags |= Pattern.UNICODE_CASE;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * @return index of the last character consumed
+     */
+    private static int translateEscape(String regex, int i, boolean inClass, StringBuilder out) {
+        char next = regex.charAt(i + 1);
+        if (next == 'Z' && !inClass) {
+            out.append("\\z");
+            return i + 1;
+        }
+        if (next == 'U' && i + 10 <= regex.length() && isHex(regex, i + 2, i + 10)) {
+            out.append("\\x{").append(regex, i + 2, i + 10).append('}');
+            return i + 9;
+        }
+        if (next == '0') {
+            // Python reads up to two more octal digits, Java requires at least one
+            int end = i + 2;
+            while (end < regex.length() && end < i + 4 && regex.charAt(end) >= '0' && regex.charAt(end) <= '7') {
+                end++;
+            }
+            out.append(end == i + 2 ? "\\x00" : regex.substring(i, end));
+            return end - 1;
+        }
+        out.append('\\').append(next);
+        return i + 1;
+    }
+
+    private static int translateGroupStart(String regex, int i, Map<String, String> groupNames, StringBuilder out) {
+        if (regex.startsWith("(?P<", i)) {
+            int close = regex.indexOf('>', i + 4);
+            if (close > 0) {
+                out.append("(?<").append(javaGroupName(regex.substring(i + 4, close), groupNames)).append('>');
+                return close;
+            }
+        } else if (regex.startsWith("(?P=", i)) {
+            int close = regex.indexOf(')', i + 4);
+            if (close > 0) {
+                out.append("\\k<").append(javaGroupName(regex.substring(i + 4, close), groupNames)).append('>');
+                return close;
+            }
+        } else if (regex.startsWith("(?#", i)) {
+            int close = regex.indexOf(')', i + 3);
+            if (close > 0) {
+                return close;
+            }
+        } else {
+            int end = i + 2;
+            StringBuilder flags = new StringBuilder();
+            while (end < regex.length() && "aiLmsux-".indexOf(regex.charAt(end)) >= 0) {
+                char flag = regex.charAt(end++);
+                if (flag != 'a' && flag != 'L') {
+                    flags.append(flag);
+                }
+            }
+            if (end > i + 2 && end < regex.length() && (regex.charAt(end) == ')' || regex.charAt(end) == ':')) {
+                if (flags.length() > 0 || regex.charAt(end) == ':') {
+                    out.append("(?").append(flags).append(regex.charAt(end));
+                }
+                return end;
+            }
+        }
+        out.append('(');
+        return i;
+    }
+
+    /**
+     * Python reads a brace literally unless it starts {@code {m}}, {@code {m,}}, {@code {,n}} or {@code {m,n}}.
+     */
+    private static int translateBrace(String regex, int i, StringBuilder out) {
+        int close = regex.indexOf('}', i);
+        String bounds = close < 0 ? null : regex.substring(i + 1, close);
+        if (bounds == null || !bounds.matches("\\d*(,\\d*)?") || bounds.isEmpty() || bounds.equals(",")) {
+            out.append("\\{");
+            return i;
+        }
+        out.append('{').append(bounds.startsWith(",") ? "0" : "").append(bounds).append('}');
+        return close;
+    }
+
+    /**
+     * Java group names are letters and digits only, so other characters are dropped and clashes numbered.
+     */
+    private static String javaGroupName(String name, Map<String, String> groupNames) {
+        return groupNames.computeIfAbsent(name, key -> {
+            StringBuilder javaName = new StringBuilder();
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                if (c < 128 && Character.isLetterOrDigit(c)) {
+                    javaName.append(c);
+                }
+            }
+            if (javaName.length() == 0 || !Character.isLetter(javaName.charAt(0))) {
+                javaName.insert(0, 'g');
+            }
+            String candidate = javaName.toString();
+            for (int suffix = 2; groupNames.containsValue(candidate); suffix++) {
+                candidate = javaName.toString() + suffix;
+            }
+            return candidate;
+        });
+    }
+
+    private static boolean isHex(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Node of a simplified regular expression syntax tree, independent of the IDE PSI.
+ * <p>
+ * Offsets point into the pattern text, so analysis results can be mapped back to the expression the user typed.
+ */
+public final class RegexNode {
+
+    public static final int UNBOUNDED = -1;
+
+    public enum Kind {
+        /**
+         * One character out of {@link #getCharSet()}.
+         */
+        CHAR,
+        SEQUENCE,
+        ALTERNATION,
+        /**
+         * {@link #getMin()} to {@link #getMax()} repetitions of the only child.
+         */
+        REPEAT,
+        /**
+         * Group around the only child, capturing if {@link #getGroupIndex()} is positive.
+         */
+        GROUP,
+        /**
+         * Group that never backtracks into its child once matched, {@code (?>...)}.
+         */
+        ATOMIC_GROUP,
+        LOOKAHEAD,
+        NEGATIVE_LOOKAHEAD,
+        LOOKBEHIND,
+        NEGATIVE_LOOKBEHIND,
+        LINE_START,
+        LINE_END,
+        INPUT_START,
+        INPUT_END,
+        WORD_BOUNDARY,
+        NON_WORD_BOUNDARY,
+        BACK_REFERENCE,
+        /**
+         * Construct the engine does not model, such as inline options or conditionals.
+         */
+        UNSUPPORTED
+    }
+
+    private final Kind kind;
+    private final int start;
+    private final int end;
+    private final List<RegexNode> children;
+    private final CharSet charSet;
+    private final int min;
+    private final int max;
+    private final boolean lazy;
+    private final boolean possessive;
+    private final int groupIndex;
+
+    private RegexNode(Kind kind, int start, int end, List<RegexNode> children, CharSet charSet,
+                      int min, int max, boolean lazy, boolean possessive, int groupIndex) {
+        this.kind = kind;
+        this.start = start;
+        this.end = end;
+        this.children = children;
+        this.charSet = charSet;
+        this.min = min;
+        this.max = max;
+        this.lazy = lazy;
+        this.possessive = possessive;
+        this.groupIndex = groupIndex;
+    }
+
+    public static RegexNode character(CharSet charSet, int start, int end) {
+        return new RegexNode(Kind.CHAR, start, end, Collections.emptyList(), charSet, 1, 1, false, false, 0);
+    }
+
+    public static RegexNode sequence(List<RegexNode> items, int start, int end) {
+        return new RegexNode(Kind.SEQUENCE, start, end, List.copyOf(items), null, 0, 0, false, false, 0);
+    }
+
+    public static RegexNode alternation(List<RegexNode> alternatives, int start, int end) {
+        return new RegexNode(Kind.ALTERNATION, start, end, List.copyOf(alternatives), null, 0, 0, false, false, 0);
+    }
+
+    /**
+     * @param max maximum number of repetitions or {@link #UNBOUNDED}
+     */
+    public static RegexNode repeat(RegexNode body, int min, int max, boolean lazy, boolean possessive, int start, int end) {
+        return new RegexNode(Kind.REPEAT, start, end, List.of(body), null, min, max, lazy, possessive, 0);
+    }
+
+    /**
+     * @param groupIndex capturing group number, or 0 for a non-capturing group
+     */
+    public static RegexNode group(Kind kind, RegexNode body, int groupIndex, int start, int end) {
+        return new RegexNode(kind, start, end, List.of(body), null, 0, 0, false, false, groupIndex);
+    }
+
+    public static RegexNode backReference(int groupIndex, int start, int end) {
+        return new RegexNode(Kind.BACK_REFERENCE, start, end, Collections.emptyList(), null, 0, 0, false, false, groupIndex);
+    }
+
+    /**
+     * Anchors, boundaries and unsupported constructs.
+     */
+    public static RegexNode leaf(Kind kind, int start, int end) {
+        return new RegexNode(kind, start, end, Collections.emptyList(), null, 0, 0, false, false, 0);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public List<RegexNode> getChildren() {
+        return children;
+    }
+
+    /**
+     * @return the only child of a repeat, group or lookaround
+     */
+    public RegexNode getBody() {
+        return children.get(0);
+    }
+
+    public CharSet getCharSet() {
+        return charSet;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public boolean isUnbounded() {
+        return max == UNBOUNDED;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    public boolean isPossessive() {
+        return possessive;
+    }
+
+    public int getGroupIndex() {
+        return groupIndex;
+    }
+
+    public boolean isLookaround() {
+        return kind == Kind.LOOKAHEAD || kind == Kind.NEGATIVE_LOOKAHEAD || kind == Kind.LOOKBEHIND || kind == Kind.NEGATIVE_LOOKBEHIND;
+    }
+
+    /**
+     * @return whether the node can match the empty string
+     */
+    public boolean isNullable() {
+        switch (kind) {
+            case CHAR:
+                return false;
+            case SEQUENCE:
+                for (RegexNode child : children) {
+                    if (!child.isNullable()) {
+                        return false;
+                    }
+                }
+                return true;
+            case ALTERNATION:
+                for (RegexNode child : children) {
+                    if (child.isNullable()) {
+                        return true;
+                    }
+                }
+                return children.isEmpty();
+            case REPEAT:
+                return min == 0 || getBody().isNullable();
+            case GROUP:
+            case ATOMIC_GROUP:
+                return getBody().isNullable();
+            case BACK_REFERENCE:
+            case UNSUPPORTED:
+                return false;
+            default:
+                // anchors and lookarounds consume nothing
+                return true;
+        }
+    }
+
+    /**
+     * @return characters that can start a non-empty match of this node
+     */
+    public CharSet getFirstChars() {
+        return edgeChars(true);
+    }
+
+    /**
+     * @return characters that can end a non-empty match of this node
+     */
+    public CharSet getLastChars() {
+        return edgeChars(false);
+    }
+
+    private CharSet edgeChars(boolean first) {
+        switch (kind) {
+            case CHAR:
+                return charSet;
+            case SEQUENCE: {
+                CharSet result = CharSet.EMPTY;
+                for (int i = 0; i < children.size(); i++) {
+                    RegexNode child = children.get(first ? i : children.size() - 1 - i);
+                    result = result.union(child.edgeChars(first));
+                    if (!child.isNullable()) {
+                        break;
+                    }
+                }
+                return result;
+            }
+            case ALTERNATION: {
+                CharSet result = CharSet.EMPTY;
+                for (RegexNode child : children) {
+                    result = result.union(child.edgeChars(first));
+                }
+                return result;
+            }
+            case REPEAT:
+                return max == 0 ? CharSet.EMPTY : getBody().edgeChars(first);
+            case GROUP:
+            case ATOMIC_GROUP:
+                return getBody().edgeChars(first);
+            case BACK_REFERENCE:
+            case UNSUPPORTED:
+                return CharSet.ANY;
+            default:
+                return CharSet.EMPTY;
+        }
+    }
+
+    /**
+     * @return the longest match of this node in chars, or {@link #UNBOUNDED} if there is no limit
+     */
+    public int getMaxLength() {
+        switch (kind) {
+            case CHAR:
+                // supplementary code points take two chars
+                return !charSet.isEmpty() && charSet.getRangeEnd(charSet.getRangeCount() - 1) > Character.MAX_VALUE ? 2 : 1;
+            case SEQUENCE: {
+                long total = 0;
+                for (RegexNode child : children) {
+                    int length = child.getMaxLength();
+                    if (length == UNBOUNDED || (total += length) > Integer.MAX_VALUE) {
+                        return UNBOUNDED;
+                    }
+                }
+                return (int) total;
+            }
+            case ALTERNATION: {
+                int longest = 0;
+                for (RegexNode child : children) {
+                    int length = child.getMaxLength();
+                    if (length == UNBOUNDED) {
+                        return UNBOUNDED;
+                    }
+                    longest = Math.max(longest, length);
+                }
+                return longest;
+            }
+            case REPEAT: {
+                if (max == 0) {
+                    return 0;
+                }
+                int length = getBody().getMaxLength();
+                if (length == 0) {
+                    return 0;
+                }
+                if (max == UNBOUNDED || length == UNBOUNDED || (long) length * max > Integer.MAX_VALUE) {
+                    return UNBOUNDED;
+                }
+                return length * max;
+            }
+            case GROUP:
+            case ATOMIC_GROUP:
+                return getBody().getMaxLength();
+            case BACK_REFERENCE:
+            case UNSUPPORTED:
+                return UNBOUNDED;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return whether a match of this node can contain a character of {@code set}
+     */
+    public boolean canConsume(CharSet set) {
+        switch (kind) {
+            case CHAR:
+                return charSet.intersects(set);
+            case UNSUPPORTED:
+                return true;
+            case LOOKAHEAD:
+            case NEGATIVE_LOOKAHEAD:
+            case LOOKBEHIND:
+            case NEGATIVE_LOOKBEHIND:
+                // looks at the text, but does not make it part of the match
+                return false;
+            case REPEAT:
+                if (max == 0) {
+                    return false;
+                }
+                break;
+            default:
+                break;
+        }
+        for (RegexNode child : children) {
+            if (child.canConsume(set)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether this subtree contains a node of the given kind
+     */
+    public boolean contains(Kind target) {
+        if (kind == target) {
+            return true;
+        }
+        for (RegexNode child : children) {
+            if (child.contains(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses {@link java.util.regex.Pattern} syntax into a {@link RegexNode} tree without the IDE PSI.
+ * <p>
+ * Constructs outside the modelled subset (inline options, properties, quoting, class intersections)
+ * become {@link RegexNode.Kind#UNSUPPORTED} nodes. The pattern is expected to compile with {@code Pattern}.
+ */
+public final class RegexParser {
+
+    private final String text;
+    private int position;
+    private int groupCount;
+    // set of the last class escape parsed by parseClassChar()
+    private CharSet lastClassEscape;
+
+    private RegexParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @return tree of the pattern, a single {@link RegexNode.Kind#UNSUPPORTED} node if the syntax is not understood
+     */
+    public static RegexNode parse(String pattern) {
+        RegexParser parser = new RegexParser(pattern);
+        try {
+            RegexNode node = parser.parseAlternation();
+            if (parser.position == pattern.length()) {
+                return node;
+            }
+        } catch (RuntimeException e) {
+            // malformed escapes and bounds, Pattern.compile rejects most of them anyway
+        }
+        // unbalanced ')' and the like
+        return RegexNode.leaf(RegexNode.Kind.UNSUPPORTED, 0, pattern.length());
+    }
+
+    private RegexNode parseAlternation() {
+        int start = position;
+        List<RegexNode> alternatives = new ArrayList<>();
+        alternatives.add(parseSequence());
+        while (position < text.length() && text.charAt(position) == '|') {
+            position++;
+            alternatives.add(parseSequence());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : RegexNode.alternation(alternatives, start, position);
+    }
+
+    private RegexNode parseSequence() {
+        int start = position;
+        List<RegexNode> items = new ArrayList<>();
+        while (position < text.length() && text.charAt(position) != '|' && text.charAt(position) != ')') {
+            items.add(parseQuantified());
+        }
+        return items.size() == 1 ? items.get(0) : RegexNode.sequence(items, start, position);
+    }
+
+    private RegexNode parseQuantified() {
+        int start = position;
+        RegexNode atom = parseAtom();
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            int min;
+            int max;
+            if (c == '*') {
+                min = 0;
+                max = RegexNode.UNBOUNDED;
+                position++;
+            } else if (c == '+') {
+                min = 1;
+                max = RegexNode.UNBOUNDED;
+                position++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                position++;
+            } else if (c == '{' && isCountedQuantifier(position)) {
+                int close = text.indexOf('}', position);
+                String bounds = text.substring(position + 1, close);
+                int comma = bounds.indexOf(',');
+                if (comma < 0) {
+                    min = max = Integer.parseInt(bounds);
+                } else {
+                    min = Integer.parseInt(bounds.substring(0, comma));
+                    max = comma == bounds.length() - 1 ? RegexNode.UNBOUNDED : Integer.parseInt(bounds.substring(comma + 1));
+                }
+                position = close + 1;
+            } else {
+                break;
+            }
+            boolean lazy = position < text.length() && text.charAt(position) == '?';
+            boolean possessive = position < text.length() && text.charAt(position) == '+';
+            if (lazy || possessive) {
+                position++;
+            }
+            atom = RegexNode.repeat(atom, min, max, lazy, possessive, start, position);
+        }
+        return atom;
+    }
+
+    private boolean isCountedQuantifier(int from) {
+        int close = text.indexOf('}', from);
+        return close > from + 1 && text.substring(from + 1, close).matches("\\d+(,\\d*)?");
+    }
+
+    private RegexNode parseAtom() {
+        int start = position;
+        char c = text.charAt(position++);
+        switch (c) {
+            case '(':
+                return parseGroup(start);
+            case '[': {
+                CharSet set = parseClass();
+                return set == null ? RegexNode.leaf(RegexNode.Kind.UNSUPPORTED, start, position) : RegexNode.character(set, start, position);
+            }
+            case '.':
+                return RegexNode.character(CharSet.DOT, start, position);
+            case '^':
+                return RegexNode.leaf(RegexNode.Kind.LINE_START, start, position);
+            case '$':
+                return RegexNode.leaf(RegexNode.Kind.LINE_END, start, position);
+            case '\\':
+                return parseEscape(start);
+            default:
+                if (Character.isHighSurrogate(c) && position < text.length()) {
+                    return RegexNode.character(CharSet.of(Character.toCodePoint(c, text.charAt(position++))), start, position);
+                }
+                return RegexNode.character(CharSet.of(c), start, position);
+        }
+    }
+
+    private RegexNode parseGroup(int start) {
+        RegexNode.Kind kind = RegexNode.Kind.GROUP;
+        int index = 0;
+        if (text.startsWith("?:", position)) {
+            position += 2;
+        } else if (text.startsWith("?>", position)) {
+            kind = RegexNode.Kind.ATOMIC_GROUP;
+            position += 2;
+        } else if (text.startsWith("?=", position)) {
+            kind = RegexNode.Kind.LOOKAHEAD;
+            position += 2;
+        } else if (text.startsWith("?!", position)) {
+            kind = RegexNode.Kind.NEGATIVE_LOOKAHEAD;
+            position += 2;
+        } else if (text.startsWith("?<=", position)) {
+            kind = RegexNode.Kind.LOOKBEHIND;
+            position += 3;
+        } else if (text.startsWith("?<!", position)) {
+            kind = RegexNode.Kind.NEGATIVE_LOOKBEHIND;
+            position += 3;
+        } else if (text.startsWith("?<", position)) {
+            position = text.indexOf('>', position) + 1;
+            index = ++groupCount;
+        } else if (text.startsWith("?", position)) {
+            // inline options, skip to the end of the group
+            skipGroup();
+            return RegexNode.leaf(RegexNode.Kind.UNSUPPORTED, start, position);
+        } else {
+            index = ++groupCount;
+        }
+        RegexNode body = parseAlternation();
+        position++;
+        return RegexNode.group(kind, body, index, start, position);
+    }
+
+    private void skipGroup() {
+        int depth = 1;
+        while (position < text.length() && depth > 0) {
+            char c = text.charAt(position++);
+            if (c == '\\') {
+                position++;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            }
+        }
+    }
+
+    private RegexNode parseEscape(int start) {
+        char c = text.charAt(position++);
+        switch (c) {
+            case 'b':
+                return RegexNode.leaf(RegexNode.Kind.WORD_BOUNDARY, start, position);
+            case 'B':
+                return RegexNode.leaf(RegexNode.Kind.NON_WORD_BOUNDARY, start, position);
+            case 'A':
+                return RegexNode.leaf(RegexNode.Kind.INPUT_START, start, position);
+            case 'z':
+                return RegexNode.leaf(RegexNode.Kind.INPUT_END, start, position);
+            case 'k':
+                position = text.indexOf('>', position) + 1;
+                return RegexNode.backReference(0, start, position);
+            case 'Q':
+                int end = text.indexOf("\\E", position);
+                position = end < 0 ? text.length() : end + 2;
+                return RegexNode.leaf(RegexNode.Kind.UNSUPPORTED, start, position);
+            default:
+                if (c >= '1' && c <= '9') {
+                    int index = c - '0';
+                    while (position < text.length() && Character.isDigit(text.charAt(position)) && index * 10 + text.charAt(position) - '0' <= groupCount) {
+                        index = index * 10 + text.charAt(position++) - '0';
+                    }
+                    return RegexNode.backReference(index, start, position);
+                }
+                position--;
+                CharSet set = parseEscapedChar();
+                return set == null ? RegexNode.leaf(RegexNode.Kind.UNSUPPORTED, start, position) : RegexNode.character(set, start, position);
+        }
+    }
+
+    /**
+     * Parses an escape after the backslash that stands for a set of characters.
+     *
+     * @return the set, or null if it is not modelled
+     */
+    private CharSet parseEscapedChar() {
+        char c = text.charAt(position++);
+        switch (c) {
+            case 'd':
+                return CharSet.DIGIT;
+            case 'D':
+                return CharSet.DIGIT.complement();
+            case 'w':
+                return CharSet.WORD;
+            case 'W':
+                return CharSet.WORD.complement();
+            case 's':
+                return CharSet.SPACE;
+            case 'S':
+                return CharSet.SPACE.complement();
+            case 't':
+                return CharSet.of('\t');
+            case 'n':
+                return CharSet.of('\n');
+            case 'r':
+                return CharSet.of('\r');
+            case 'f':
+                return CharSet.of('\f');
+            case 'a':
+                return CharSet.of(7);
+            case 'e':
+                return CharSet.of(27);
+            case '0': {
+                int value = 0;
+                int digits = 0;
+                while (position < text.length() && digits < 3 && text.charAt(position) >= '0' && text.charAt(position) <= '7') {
+                    value = value * 8 + text.charAt(position++) - '0';
+                    digits++;
+                }
+                return CharSet.of(value);
+            }
+            case 'x': {
+                if (position < text.length() && text.charAt(position) == '{') {
+                    int close = text.indexOf('}', position);
+                    int value = Integer.parseInt(text.substring(position + 1, close), 16);
+                    position = close + 1;
+                    return CharSet.of(value);
+                }
+                int value = Integer.parseInt(text.substring(position, position + 2), 16);
+                position += 2;
+                return CharSet.of(value);
+            }
+            case 'u': {
+                int value = Integer.parseInt(text.substring(position, position + 4), 16);
+                position += 4;
+                return CharSet.of(value);
+            }
+            case 'c':
+                return CharSet.of(text.charAt(position++) ^ 64);
+            default:
+                if (Character.isLetter(c)) {
+                    // \p{...}, \N{...}, \h, \v, \R, \X and friends
+                    if ((c == 'p' || c == 'P' || c == 'N') && position < text.length() && text.charAt(position) == '{') {
+                        position = text.indexOf('}', position) + 1;
+                    } else if (c == 'p' || c == 'P') {
+                        position++;
+                    }
+                    return null;
+                }
+                return CharSet.of(c);
+        }
+    }
+
+    /**
+     * Parses a character class after the opening bracket.
+     *
+     * @return the set, or null if it uses constructs that are not modelled
+     */
+    private CharSet parseClass() {
+        boolean negated = position < text.length() && text.charAt(position) == '^';
+        if (negated) {
+            position++;
+        }
+        CharSet result = CharSet.EMPTY;
+        boolean exact = true;
+        boolean first = true;
+        while (position < text.length() && (text.charAt(position) != ']' || first)) {
+            first = false;
+            if (text.startsWith("&&", position)) {
+                exact = false;
+                position += 2;
+                continue;
+            }
+            CharSet element;
+            if (text.charAt(position) == '[') {
+                position++;
+                element = parseClass();
+            } else {
+                int from = parseClassChar();
+                if (from == -2) {
+                    element = null;
+                } else if (from == -1) {
+                    element = lastClassEscape;
+                } else if (position + 1 < text.length() && text.charAt(position) == '-' && text.charAt(position + 1) != ']') {
+                    position++;
+                    int to = parseClassChar();
+                    element = to < 0 ? null : CharSet.range(from, to);
+                } else {
+                    element = CharSet.of(from);
+                }
+            }
+            if (element == null) {
+                exact = false;
+            } else {
+                result = result.union(element);
+            }
+        }
+        position++;
+        if (!exact) {
+            return null;
+        }
+        return negated ? result.complement() : result;
+    }
+
+    /**
+     * @return the code point, -1 if the escape stands for a set stored in {@link #lastClassEscape}, -2 if it is not modelled
+     */
+    private int parseClassChar() {
+        char c = text.charAt(position++);
+        if (c != '\\') {
+            if (Character.isHighSurrogate(c) && position < text.length()) {
+                return Character.toCodePoint(c, text.charAt(position++));
+            }
+            return c;
+        }
+        CharSet set = parseEscapedChar();
+        if (set == null) {
+            return -2;
+        }
+        int single = set.getSingleCodePoint();
+        if (single >= 0) {
+            return single;
+        }
+        lastClassEscape = set;
+        return -1;
+    }
+}
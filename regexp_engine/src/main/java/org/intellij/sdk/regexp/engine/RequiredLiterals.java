@@ -0,0 +1,209 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds literals one of which every match of a pattern must contain, so text without them can be skipped unmatched.
+ * <p>
+ * Each node yields either the exact set of strings it matches, while that set stays small, or a set of factors.
+ * Sequences multiply exact sets and keep the best run when a node breaks it, alternations union their sets.
+ * The literals are only valid for a pattern compiled without case-insensitive, comments or literal flags.
+ */
+public final class RequiredLiterals {
+
+    private static final int MAX_STRINGS = 16;
+
+    private RequiredLiterals() {
+    }
+
+    /**
+     * @return literals, one of which occurs in every match, or null if there are no such non-empty literals
+     */
+    public static List<String> extract(RegexNode root) {
+        // inline options like (?i) change how the literals match
+        if (root.contains(RegexNode.Kind.UNSUPPORTED)) {
+            return null;
+        }
+        Set<String> literals = analyze(root).best();
+        return literals == null || literals.isEmpty() ? null : new ArrayList<>(literals);
+    }
+
+    private static Info analyze(RegexNode node) {
+        switch (node.getKind()) {
+            case CHAR:
+                return Info.exact(characters(node.getCharSet()));
+            case SEQUENCE:
+                return analyzeSequence(node.getChildren());
+            case ALTERNATION: {
+                Set<String> exact = new LinkedHashSet<>();
+                Set<String> factors = new LinkedHashSet<>();
+                for (RegexNode child : node.getChildren()) {
+                    Info info = analyze(child);
+                    if (exact != null) {
+                        exact = info.exact == null ? null : union(exact, info.exact);
+                    }
+                    factors = factors == null ? null : union(factors, info.best());
+                }
+                return exact != null ? Info.exact(exact) : Info.factors(factors);
+            }
+            case REPEAT: {
+                if (node.getMin() == 0) {
+                    return Info.NONE;
+                }
+                Info body = analyze(node.getBody());
+                if (body.exact != null && node.getMin() == node.getMax()) {
+                    Set<String> exact = Set.of("");
+                    for (int i = 0; i < node.getMin() && exact != null; i++) {
+                        exact = product(exact, body.exact);
+                    }
+                    if (exact != null) {
+                        return Info.exact(exact);
+                    }
+                }
+                return Info.factors(body.best());
+            }
+            case GROUP:
+            case ATOMIC_GROUP:
+                return analyze(node.getBody());
+            case BACK_REFERENCE:
+            case UNSUPPORTED:
+                return Info.NONE;
+            default:
+                // anchors and lookarounds consume nothing
+                return Info.exact(Set.of(""));
+        }
+    }
+
+    private static Info analyzeSequence(List<RegexNode> items) {
+        Set<String> run = Set.of("");
+        Set<String> best = null;
+        boolean broken = false;
+        for (RegexNode item : items) {
+            Info info = analyze(item);
+            Set<String> product = info.exact == null ? null : product(run, info.exact);
+            if (product != null) {
+                run = product;
+                continue;
+            }
+            broken = true;
+            best = better(best, run);
+            if (info.exact != null) {
+                run = info.exact;
+            } else {
+                best = better(best, info.factors);
+                run = Set.of("");
+            }
+        }
+        return broken ? Info.factors(better(best, run)) : Info.exact(run);
+    }
+
+    /**
+     * @return the set whose shortest literal is longer, that one skips more text
+     */
+    private static Set<String> better(Set<String> first, Set<String> second) {
+        int firstScore = score(first);
+        int secondScore = score(second);
+        if (firstScore != secondScore) {
+            return firstScore > secondScore ? first : second;
+        }
+        return firstScore == 0 ? null : first.size() <= second.size() ? first : second;
+    }
+
+    private static int score(Set<String> literals) {
+        if (literals == null) {
+            return 0;
+        }
+        int shortest = Integer.MAX_VALUE;
+        for (String literal : literals) {
+            shortest = Math.min(shortest, literal.length());
+        }
+        return shortest;
+    }
+
+    private static Set<String> product(Set<String> prefixes, Set<String> suffixes) {
+        if ((long) prefixes.size() * suffixes.size() > MAX_STRINGS) {
+            return null;
+        }
+        Set<String> result = new LinkedHashSet<>();
+        for (String prefix : prefixes) {
+            for (String suffix : suffixes) {
+                result.add(prefix + suffix);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> union(Set<String> first, Set<String> second) {
+        if (second == null || first.size() + second.size() > MAX_STRINGS) {
+            return null;
+        }
+        Set<String> result = new LinkedHashSet<>(first);
+        result.addAll(second);
+        return result;
+    }
+
+    /**
+     * @return every character of a small set, or null for a large one
+     */
+    private static Set<String> characters(CharSet charSet) {
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i < charSet.getRangeCount(); i++) {
+            if (charSet.getRangeEnd(i) - charSet.getRangeStart(i) >= MAX_STRINGS - result.size()) {
+                return null;
+            }
+            for (int codePoint = charSet.getRangeStart(i); codePoint <= charSet.getRangeEnd(i); codePoint++) {
+                result.add(new String(Character.toChars(codePoint)));
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    private static final class Info {
+
+        static final Info NONE = new Info(null, null);
+
+        /**
+         * Every string the node matches, or null if there are too many.
+         */
+        final Set<String> exact;
+        /**
+         * Strings one of which every match contains, or null if unknown.
+         */
+        final Set<String> factors;
+
+        private Info(Set<String> exact, Set<String> factors) {
+            this.exact = exact;
+            this.factors = factors;
+        }
+
+        static Info exact(Set<String> exact) {
+            return exact == null ? NONE : new Info(exact, exact);
+        }
+
+        static Info factors(Set<String> factors) {
+            return new Info(null, factors);
+        }
+
+        Set<String> best() {
+            return score(factors) == 0 ? null : factors;
+        }
+    }
+}
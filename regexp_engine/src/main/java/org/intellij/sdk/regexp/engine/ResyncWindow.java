@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.regex.Pattern;
+
+/**
+ * How far before an edit an incremental re-match has to start to find exactly what a full scan would.
+ * <p>
+ * A match attempt that starts before the window never reads the edited text, so it succeeds or fails as before.
+ * Two bounds are known: patterns that cannot consume a line terminator, lookaheads included, never read past the end
+ * of the line they start on, and patterns with a bounded match length never read further than that length.
+ * Anything else, as well as lookbehinds, {@code \G} and constructs the tree does not model, needs a full scan.
+ */
+public final class ResyncWindow {
+
+    public static final ResyncWindow FULL_SCAN = new ResyncWindow(false, RegexNode.UNBOUNDED);
+
+    // $ looks at up to two characters after the match for a final line terminator
+    private static final int END_CHECK = 2;
+
+    private final boolean lineBounded;
+    private final int maxReach;
+
+    private ResyncWindow(boolean lineBounded, int maxReach) {
+        this.lineBounded = lineBounded;
+        this.maxReach = maxReach;
+    }
+
+    /**
+     * @param tree  tree of the pattern, or null if it is not known
+     * @param flags {@link Pattern} flags
+     */
+    public static ResyncWindow of(RegexNode tree, int flags) {
+        if (tree == null || (flags & (Pattern.COMMENTS | Pattern.LITERAL | Pattern.CANON_EQ)) != 0 || !isModelled(tree)) {
+            return FULL_SCAN;
+        }
+        boolean lineBounded = (flags & Pattern.DOTALL) == 0 && !canRead(tree, CharSet.of('\n'));
+        int maxReach = tree.contains(RegexNode.Kind.LOOKAHEAD) || tree.contains(RegexNode.Kind.NEGATIVE_LOOKAHEAD)
+                ? RegexNode.UNBOUNDED : tree.getMaxLength();
+        if (!lineBounded && maxReach == RegexNode.UNBOUNDED) {
+            return FULL_SCAN;
+        }
+        return new ResyncWindow(lineBounded, maxReach);
+    }
+
+    public boolean isFullScan() {
+        return !lineBounded && maxReach == RegexNode.UNBOUNDED;
+    }
+
+    /**
+     * @return offset before which no match attempt reads text at or after {@code dirtyStart}, nor sees the text length
+     */
+    int safeStart(CharSequence text, int dirtyStart) {
+        int start = 0;
+        if (lineBounded) {
+            start = previousLineStart(text, dirtyStart);
+        }
+        if (maxReach != RegexNode.UNBOUNDED) {
+            start = Math.max(start, dirtyStart - maxReach - END_CHECK);
+        }
+        return start;
+    }
+
+    /**
+     * @return start of the line before the one containing {@code offset}, so the line break that ends it
+     * lies strictly between the result and {@code offset}
+     */
+    private static int previousLineStart(CharSequence text, int offset) {
+        int lineBreaks = 0;
+        for (int i = Math.min(offset, text.length()) - 1; i >= 0; i--) {
+            if (text.charAt(i) == '\n' && ++lineBreaks == 2) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isModelled(RegexNode node) {
+        switch (node.getKind()) {
+            case UNSUPPORTED:
+            case LOOKBEHIND:
+            case NEGATIVE_LOOKBEHIND:
+                return false;
+            default:
+                for (RegexNode child : node.getChildren()) {
+                    if (!isModelled(child)) {
+                        return false;
+                    }
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Like {@link RegexNode#canConsume}, but lookaheads count too: they read text the match does not include.
+     */
+    private static boolean canRead(RegexNode node, CharSet set) {
+        if (node.getKind() == RegexNode.Kind.CHAR) {
+            return node.getCharSet().intersects(set);
+        }
+        if (node.getKind() == RegexNode.Kind.REPEAT && node.getMax() == 0) {
+            return false;
+        }
+        for (RegexNode child : node.getChildren()) {
+            if (canRead(child, set)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
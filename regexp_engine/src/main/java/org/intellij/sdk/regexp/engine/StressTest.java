@@ -0,0 +1,285 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs {@link java.util.regex} on adversarial inputs of growing length and classifies how its cost grows.
+ * <p>
+ * Every run is instrumented and stops at the budget, so an exponential pattern costs one budget, not forever.
+ * Lengths grow by a quarter per step, fine enough to see an exponential curve before it hits the budget.
+ * The growth is read from the step counts, which unlike times do not depend on the JIT or the machine load:
+ * the slope of log steps over log length is the degree of a polynomial, and steps that fit a straight line
+ * over the length better than over its logarithm grow exponentially.
+ */
+public final class StressTest {
+
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final long MIN_TIMED_NANOS = 2_000_000;
+    private static final int MAX_TIMED_RUNS = 50;
+    // degrees are rounded, a linear search with some per-match overhead measures slightly above 1
+    private static final double LINEAR_SLOPE = 1.4;
+    private static final double EXPONENTIAL_SLOPE = 4;
+
+    private StressTest() {
+    }
+
+    public enum Growth {
+        LINEAR("linear"),
+        POLYNOMIAL("polynomial"),
+        EXPONENTIAL("exponential");
+
+        private final String displayName;
+
+        Growth(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Measures every attack up to {@code maxLength} characters or the first run that exceeds {@code budget}
+     * or overflows the stack.
+     *
+     * @throws CancellationException when {@code cancelled} becomes true
+     */
+    public static List<Curve> run(Pattern pattern, List<AdversarialInputs.Attack> attacks, int maxLength, MatchBudget budget,
+                                  BooleanSupplier cancelled) {
+        List<Curve> curves = new ArrayList<>(attacks.size());
+        for (AdversarialInputs.Attack attack : attacks) {
+            curves.add(run(pattern, attack, maxLength, budget, cancelled));
+        }
+        return curves;
+    }
+
+    public static Curve run(Pattern pattern, AdversarialInputs.Attack attack, int maxLength, MatchBudget budget, BooleanSupplier cancelled) {
+        List<Point> points = new ArrayList<>();
+        for (int repetitions = 1; attack.length(repetitions) <= maxLength; repetitions = Math.max(repetitions + 1, (int) (repetitions * GROWTH_FACTOR))) {
+            Point point = measure(pattern, attack.build(repetitions), budget, cancelled);
+            points.add(point);
+            if (point.getStatus() != Point.Status.COMPLETED) {
+                break;
+            }
+        }
+        return new Curve(attack, points);
+    }
+
+    private static Point measure(Pattern pattern, String input, MatchBudget budget, BooleanSupplier cancelled) {
+        BudgetedCharSequence instrumented = new BudgetedCharSequence(input, budget, cancelled);
+        long start = System.nanoTime();
+        try {
+            findAll(pattern.matcher(instrumented));
+        } catch (BudgetedCharSequence.BudgetExceededException e) {
+            return new Point(input.length(), e.getSteps(), System.nanoTime() - start, Point.Status.TIMED_OUT);
+        } catch (StackOverflowError e) {
+            // java.util.regex recurses per repetition of a group, long inputs fail like this in production too
+            return new Point(input.length(), instrumented.getSteps(), System.nanoTime() - start, Point.Status.STACK_OVERFLOW);
+        }
+        long steps = instrumented.getSteps();
+
+        // within budget, so plain runs finish too, repeated until the clock resolves them
+        Matcher matcher = pattern.matcher(input);
+        int runs = 0;
+        long elapsed;
+        start = System.nanoTime();
+        do {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            findAll(matcher.reset());
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_TIMED_NANOS && runs < MAX_TIMED_RUNS);
+        return new Point(input.length(), steps, elapsed / runs, Point.Status.COMPLETED);
+    }
+
+    private static void findAll(Matcher matcher) {
+        //noinspection StatementWithEmptyBody
+        while (matcher.find()) {
+        }
+    }
+
+    /**
+     * One measured input.
+     */
+    public static final class Point {
+
+        public enum Status {
+            COMPLETED,
+            TIMED_OUT,
+            STACK_OVERFLOW
+        }
+
+        private final int length;
+        private final long steps;
+        private final long nanos;
+        private final Status status;
+
+        private Point(int length, long steps, long nanos, Status status) {
+            this.length = length;
+            this.steps = steps;
+            this.nanos = nanos;
+            this.status = status;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * @return {@code charAt} calls of the run, a lower bound if it did not complete
+         */
+        public long getSteps() {
+            return steps;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * Cost of one attack over growing input lengths, with its growth class.
+     */
+    public static final class Curve {
+
+        private final AdversarialInputs.Attack attack;
+        private final List<Point> points;
+        private final Growth growth;
+        private final double degree;
+
+        private Curve(AdversarialInputs.Attack attack, List<Point> points) {
+            this.attack = attack;
+            this.points = Collections.unmodifiableList(points);
+            // steps of a run that did not complete depend on when it was stopped
+            List<Point> measured = getLastStatus() == Point.Status.COMPLETED ? points : points.subList(0, points.size() - 1);
+            // the tail is where the dominant term shows, short inputs are mostly constant overhead
+            List<Point> tail = measured.subList(measured.size() / 2, measured.size());
+            double logLogSlope = slope(tail, true);
+            double logLogFit = fit(tail, true);
+            double semiLogFit = fit(tail, false);
+            if (tail.size() >= 3 && logLogSlope >= EXPONENTIAL_SLOPE && semiLogFit >= logLogFit) {
+                growth = Growth.EXPONENTIAL;
+            } else if (logLogSlope < LINEAR_SLOPE) {
+                growth = Growth.LINEAR;
+            } else {
+                growth = Growth.POLYNOMIAL;
+            }
+            degree = logLogSlope;
+        }
+
+        public AdversarialInputs.Attack getAttack() {
+            return attack;
+        }
+
+        public List<Point> getPoints() {
+            return points;
+        }
+
+        public Growth getGrowth() {
+            return growth;
+        }
+
+        /**
+         * @return the measured exponent of the length, meaningful for polynomial growth
+         */
+        public double getDegree() {
+            return degree;
+        }
+
+        /**
+         * @return status of the last input, the curve stops at the first one that did not complete
+         */
+        public Point.Status getLastStatus() {
+            return points.isEmpty() ? Point.Status.COMPLETED : points.get(points.size() - 1).getStatus();
+        }
+
+        /**
+         * Least squares slope of log steps over the length, or over log length.
+         */
+        private static double slope(List<Point> points, boolean logLength) {
+            int n = points.size();
+            if (n < 2) {
+                return 0;
+            }
+            double sumX = 0;
+            double sumY = 0;
+            for (Point point : points) {
+                sumX += x(point, logLength);
+                sumY += y(point);
+            }
+            double meanX = sumX / n;
+            double meanY = sumY / n;
+            double covariance = 0;
+            double variance = 0;
+            for (Point point : points) {
+                double dx = x(point, logLength) - meanX;
+                covariance += dx * (y(point) - meanY);
+                variance += dx * dx;
+            }
+            return variance == 0 ? 0 : covariance / variance;
+        }
+
+        /**
+         * @return coefficient of determination of the least squares line, 1 for a perfect fit
+         */
+        private static double fit(List<Point> points, boolean logLength) {
+            int n = points.size();
+            if (n < 3) {
+                return 0;
+            }
+            double slope = slope(points, logLength);
+            double sumX = 0;
+            double sumY = 0;
+            for (Point point : points) {
+                sumX += x(point, logLength);
+                sumY += y(point);
+            }
+            double intercept = (sumY - slope * sumX) / n;
+            double meanY = sumY / n;
+            double residual = 0;
+            double total = 0;
+            for (Point point : points) {
+                double error = y(point) - (intercept + slope * x(point, logLength));
+                residual += error * error;
+                total += (y(point) - meanY) * (y(point) - meanY);
+            }
+            return total == 0 ? 1 : 1 - residual / total;
+        }
+
+        private static double x(Point point, boolean logLength) {
+            return logLength ? Math.log(point.getLength()) : point.getLength();
+        }
+
+        private static double y(Point point) {
+            return Math.log(Math.max(point.getSteps(), 1));
+        }
+    }
+}
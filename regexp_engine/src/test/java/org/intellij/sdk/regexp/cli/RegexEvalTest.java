@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegexEvalTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    void countsMatchesOfEveryPattern() throws IOException {
+        Path patterns = write("patterns", "[a-z]+@[a-z]+\\.com\n\n\\d+\n");
+        Path input = write("input", "mail joe@example.com at 10:30\n");
+        assertEquals(0, run(patterns.toString(), input.toString()));
+        assertTrue(out().contains("         1  [a-z]+@[a-z]+\\.com"), out());
+        assertTrue(out().contains("         2  \\d+"), out());
+        assertTrue(out().contains("2 patterns, 1 files"), out());
+    }
+
+    @Test
+    void matchesAcrossLinesUnderDotAll() throws IOException {
+        Path patterns = write("patterns", "ERROR.*done\n");
+        Path input = write("input", "xx ERROR start\nstill running\ndone\n");
+        assertEquals(0, run("--flags=S", patterns.toString(), input.toString()));
+        assertTrue(out().contains("         1  ERROR.*done"), out());
+    }
+
+    @Test
+    void failsOnInvalidPatterns() throws IOException {
+        Path patterns = write("patterns", "a(b\nb\n");
+        Path input = write("input", "abc");
+        assertEquals(1, run(patterns.toString(), input.toString()));
+        assertTrue(err().contains(patterns + ":1: "), err());
+        assertTrue(out().contains("1 patterns, 1 files"), out());
+    }
+
+    @Test
+    void failsOnPatternsRunningOutOfTime() throws IOException {
+        // the lookahead keeps the pattern on java.util.regex, which backtracks exponentially before " xy"
+        Path patterns = write("patterns", "(?=x)(x+x+)+y\n");
+        Path input = write("input", "x".repeat(5000) + " xy");
+        assertEquals(1, run("--timeout=1", patterns.toString(), input.toString()));
+        assertTrue(out().contains("TIMED_OUT"), out());
+    }
+
+    @Test
+    void rejectsBadArguments() throws IOException {
+        Path patterns = write("patterns", "a\n");
+        assertEquals(2, run(patterns.toString()));
+        assertEquals(2, run("--threads=0", patterns.toString(), patterns.toString()));
+        assertEquals(2, run("--verbose", patterns.toString(), patterns.toString()));
+        assertEquals(2, run("--timeout=soon", patterns.toString(), patterns.toString()));
+        assertEquals(2, run("--flags=A", patterns.toString(), patterns.toString()));
+        assertTrue(err().contains("Usage: regexp-eval"), err());
+    }
+
+    @Test
+    void rejectsUnreadableFiles() throws IOException {
+        Path patterns = write("patterns", "a\n");
+        Path missing = patterns.resolveSibling("missing");
+        assertEquals(2, run(missing.toString(), patterns.toString()));
+        assertEquals(2, run(patterns.toString(), missing.toString()));
+        assertTrue(err().contains("Cannot read " + missing), err());
+    }
+
+    private int run(String... args) {
+        return RegexEval.run(args, new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String out() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private String err() {
+        return err.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Path write(String name, String content) throws IOException {
+        Path file = Files.createTempFile("regexp-eval-" + name, ".txt");
+        file.toFile().deleteOnExit();
+        return Files.writeString(file, content);
+    }
+}
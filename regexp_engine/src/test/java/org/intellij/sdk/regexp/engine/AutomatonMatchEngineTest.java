@@ -0,0 +1,178 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the automaton finds exactly the matches of {@link java.util.regex} on generated patterns and texts.
+ */
+class AutomatonMatchEngineTest {
+
+    private static final String[] ATOMS = {"a", "b", "\\n", ".", "[ab]", "[^a]", "\\w", "\\s", "\\d", "\uD83D\uDE00", "[\uD83D\uDE00-\uD83D\uDE4F]"};
+    private static final String[] ASSERTIONS = {"^", "$", "\\b", "\\B", "\\A", "\\z"};
+    private static final String[] QUANTIFIERS = {"*", "+", "?", "{1,3}", "{2}", "*?", "+?", "??"};
+    private static final String[] TEXT_PARTS = {"a", "b", "1", " ", "_", "\n", "\r", "\r\n", "\u00e9", "\u2028", "\uD83D\uDE00"};
+
+    @Test
+    void matchesLikeJavaRegexOnGeneratedPatterns() {
+        Random random = new Random(7);
+        int supported = 0;
+        for (int i = 0; i < 3000; i++) {
+            String regex = randomPattern(random, 3);
+            int flags = random.nextBoolean() ? Pattern.MULTILINE : 0;
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(regex, flags);
+            } catch (PatternSyntaxException e) {
+                continue;
+            }
+            AutomatonMatchEngine engine = AutomatonMatchEngine.create(RegexParser.parse(regex), flags);
+            if (engine == null) {
+                continue;
+            }
+            supported++;
+            for (int j = 0; j < 20; j++) {
+                assertSameMatches(pattern, engine, randomText(random, random.nextInt(16)));
+            }
+        }
+        assertTrue(supported > 1000, "too few generated patterns are supported: " + supported);
+    }
+
+    @Test
+    void reportsEmptyMatchesBetweenCharacters() {
+        for (String regex : new String[]{"", "a*", "a??", "(?:ab)?", "\\b\\w*"}) {
+            assertSameMatches(regex, 0, "ab a\nb\uD83D\uDE00");
+        }
+        for (String regex : new String[]{"\\b", "\\B\\w", "^|\\b"}) {
+            assertSameMatches(regex, 0, "ab a\nb_1 \uD83D\uDE00");
+        }
+    }
+
+    @Test
+    void followsLineTerminatorsInMultilineMode() {
+        for (String text : new String[]{"a\nb\r\nc\rd\u0085e\u2028", "\n\n", "\r\n", "a\n"}) {
+            for (String regex : new String[]{"^", "$", "^$", "^\\w+$", ".+", "$\\s^", "\\A.*", ".*\\z"}) {
+                assertSameMatches(regex, Pattern.MULTILINE, text);
+            }
+        }
+    }
+
+    @Test
+    void treatsSurrogatePairsAsOneCharacter() {
+        String text = "a\uD83D\uDE00b\uD83D\uDE01\uD83D\uDE00";
+        for (String regex : new String[]{".", "[^a]", "\uD83D\uDE00+", "[\uD83D\uDE00-\uD83D\uDE4F]", "\\W", ".?", "\\ba", "\uD83D\uDE00\\B"}) {
+            assertSameMatches(regex, 0, text);
+        }
+        // java.util.regex also tries the position between the halves of the pair, where \B holds
+        for (String regex : new String[]{"\\B", ".\\b", "a?\\B"}) {
+            assertNull(AutomatonMatchEngine.create(RegexParser.parse(regex), 0), regex);
+        }
+    }
+
+    @Test
+    void keepsMatchingAfterTheStateCacheIsFlushed() {
+        // remembering the last 13 characters takes up to 2^13 states, twice what the cache holds
+        Random random = new Random(11);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            text.append(random.nextBoolean() ? 'a' : 'b');
+            if (random.nextInt(200) == 0) {
+                text.append('\n');
+            }
+        }
+        for (String regex : new String[]{"a[ab]{12}b", "[ab]*a[ab]{12}", "(?:a|b)+a(?:a|b){12}$"}) {
+            assertSameMatches(regex, Pattern.MULTILINE, text.toString());
+        }
+    }
+
+    @Test
+    void rejectsConstructsItCannotMatchExactly() {
+        for (String regex : new String[]{"(a)\\1", "a(?=b)", "(?<=a)b", "a*+", "(?>a|ab)c", "(a?)*", "(?i)a"}) {
+            assertNull(AutomatonMatchEngine.create(RegexParser.parse(regex), 0), regex);
+        }
+        assertNull(AutomatonMatchEngine.create(RegexParser.parse("a$"), 0), "$ before a final line terminator");
+        assertNotNull(AutomatonMatchEngine.create(RegexParser.parse("a$"), Pattern.MULTILINE));
+    }
+
+    private static void assertSameMatches(String regex, int flags, String text) {
+        Pattern pattern = Pattern.compile(regex, flags);
+        AutomatonMatchEngine engine = AutomatonMatchEngine.create(RegexParser.parse(regex), flags);
+        assertNotNull(engine, regex);
+        assertSameMatches(pattern, engine, text);
+    }
+
+    private static void assertSameMatches(Pattern pattern, MatchEngine engine, String text) {
+        List<String> expected = new ArrayList<>();
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            expected.add(matcher.start() + "-" + matcher.end());
+        }
+        List<String> actual = new ArrayList<>();
+        MatchEngine.Searcher searcher = engine.searcher(text);
+        while (searcher.find()) {
+            actual.add(searcher.start() + "-" + searcher.end());
+        }
+        assertEquals(expected, actual, () -> "/" + pattern.pattern() + "/" + (pattern.flags() != 0 ? "m" : "")
+                + " on \"" + text.replace("\n", "\\n").replace("\r", "\\r") + "\"");
+    }
+
+    private static String randomPattern(Random random, int depth) {
+        int choice = random.nextInt(depth > 0 ? 10 : 6);
+        if (choice < 4) {
+            return ATOMS[random.nextInt(ATOMS.length)];
+        }
+        if (choice < 5) {
+            return ASSERTIONS[random.nextInt(ASSERTIONS.length)];
+        }
+        if (choice < 6) {
+            return "";
+        }
+        if (choice < 7) {
+            return randomPattern(random, depth - 1) + "|" + randomPattern(random, depth - 1);
+        }
+        if (choice < 8) {
+            String body = random.nextBoolean() ? ATOMS[random.nextInt(ATOMS.length)] : "(" + randomPattern(random, depth - 1) + ")";
+            return body + QUANTIFIERS[random.nextInt(QUANTIFIERS.length)];
+        }
+        StringBuilder sequence = new StringBuilder();
+        for (int i = 2 + random.nextInt(3); i > 0; i--) {
+            String item = randomPattern(random, depth - 1);
+            sequence.append(item.contains("|") ? "(?:" + item + ")" : item);
+        }
+        return sequence.toString();
+    }
+
+    private static String randomText(Random random, int parts) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < parts; i++) {
+            text.append(TEXT_PARTS[random.nextInt(TEXT_PARTS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class BulkPatternEvaluatorTest {
+
+    @Test
+    void reportsEachPatternOnItsOwn() {
+        // java.util.regex recurses once per repetition of the group and overflows even the stack the tests run with
+        String text = "ab".repeat(2_000_000) + " x";
+        String[] regexes = {"(a|b)*", "x", "(", "y"};
+        BulkPatternEvaluator.Result[] results = BulkPatternEvaluator.evaluate(regexes, new int[regexes.length], text,
+                new CompiledPatternCache(), MatchBudget.UNLIMITED, () -> false);
+
+        assertNotNull(results);
+        assertEquals(BulkPatternEvaluator.Result.Status.STACK_OVERFLOW, results[0].getStatus());
+        assertEquals(BulkPatternEvaluator.Result.Status.COMPLETED, results[1].getStatus());
+        assertEquals(1, results[1].getMatchCount());
+        assertEquals(BulkPatternEvaluator.Result.Status.INVALID, results[2].getStatus());
+        assertNotNull(results[2].getError());
+        assertEquals(0, results[3].getMatchCount());
+    }
+}
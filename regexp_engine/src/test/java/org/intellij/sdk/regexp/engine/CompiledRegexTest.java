@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledRegexTest {
+
+    @Test
+    void matchesSupportedPatternsWithTheAutomaton() {
+        CompiledRegex regex = CompiledRegex.compile("[a-z]+@[a-z]+\\.com", 0);
+        assertTrue(regex.isValid());
+        assertEquals("linear automaton", regex.getEngineName());
+        assertNotNull(regex.getPrefilter());
+        assertEquals(List.of(".com"), regex.getPrefilter().getLiterals());
+        assertTrue(regex.getEngine() instanceof PrefilteredMatchEngine);
+    }
+
+    @Test
+    void leavesTheRestToJavaRegex() {
+        for (String pattern : new String[]{"(a)\\1", "a(?=b)", "a++", "\\p{L}+", "(?i)a"}) {
+            assertEquals("java.util.regex", CompiledRegex.compile(pattern, 0).getEngineName(), pattern);
+        }
+        assertEquals("java.util.regex", CompiledRegex.compile("a+", Pattern.CASE_INSENSITIVE).getEngineName());
+        assertEquals("linear automaton", CompiledRegex.compile("^a+$", Pattern.MULTILINE).getEngineName());
+    }
+
+    @Test
+    void prefiltersOnlyPatternsWithRequiredLiterals() {
+        assertNull(CompiledRegex.compile("\\w+", 0).getPrefilter());
+        assertTrue(CompiledRegex.compile("\\w+", 0).getEngine() instanceof AutomatonMatchEngine);
+        assertEquals(List.of("error"), CompiledRegex.compile("(a)\\1.*error", 0).getPrefilter().getLiterals());
+    }
+
+    @Test
+    void keepsNoTreeForFlagsTheParserDoesNotRead() {
+        CompiledRegex regex = CompiledRegex.compile("a b # comment", Pattern.COMMENTS);
+        assertNull(regex.getTree());
+        assertNull(regex.getPrefilter());
+        assertEquals("java.util.regex", regex.getEngineName());
+        assertTrue(regex.getResyncWindow().isFullScan());
+    }
+
+    @Test
+    void usesTheTreeItIsGiven() {
+        RegexNode tree = RegexParser.parse("ab");
+        CompiledRegex regex = CompiledRegex.of(Pattern.compile("ab"), tree);
+        assertEquals(tree, regex.getTree());
+        assertEquals("linear automaton", regex.getEngineName());
+    }
+
+    @Test
+    void reportsSyntaxErrors() {
+        CompiledRegex regex = CompiledRegex.compile("a(b", 0);
+        assertFalse(regex.isValid());
+        assertNull(regex.getPattern());
+        assertNull(regex.getEngine());
+        assertNotNull(regex.getError());
+        assertEquals(1, regex.getDiagnostics().size());
+        assertEquals(Diagnostic.Severity.ERROR, regex.getDiagnostics().get(0).getSeverity());
+    }
+
+    @Test
+    void describesEngineAndRisks() {
+        List<Diagnostic> diagnostics = CompiledRegex.compile("(a+)+b", 0).getDiagnostics();
+        assertEquals(Diagnostic.Severity.INFO, diagnostics.get(0).getSeverity());
+        assertEquals("Matched by linear automaton", diagnostics.get(0).getMessage());
+        assertTrue(diagnostics.stream().anyMatch(diagnostic -> diagnostic.getSeverity() == Diagnostic.Severity.WARNING));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileMatchScannerTest {
+
+    @Test
+    void reportsMatchOffsets() throws IOException {
+        Path file = write("mail joe@example.com\nann@example.com\n");
+        FileMatchScanner.Result result = FileMatchScanner.scan(file, Pattern.compile("[a-z]+@"), () -> false, scanned -> {
+        });
+
+        assertEquals(2, result.getMatchCount());
+        assertArrayEquals(new long[]{5, 21}, result.getOffsets());
+        assertFalse(result.isStackOverflow());
+        assertEquals(-1, result.getStackOverflowOffset());
+    }
+
+    @Test
+    void stopsAtAStackOverflow() throws IOException {
+        // java.util.regex recurses once per repetition of the group and overflows even the stack the tests run with
+        Path file = write("x " + "ab".repeat(2_000_000) + " x");
+        FileMatchScanner.Result result = FileMatchScanner.scan(file, Pattern.compile("(a|b)*c|x"), () -> false, scanned -> {
+        });
+
+        assertTrue(result.isStackOverflow());
+        assertEquals(1, result.getStackOverflowOffset());
+        assertEquals(1, result.getMatchCount());
+        assertArrayEquals(new long[]{0}, result.getOffsets());
+    }
+
+    private static Path write(String content) throws IOException {
+        Path file = Files.createTempFile("file-match-scanner", ".txt");
+        file.toFile().deleteOnExit();
+        return Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LineCaseEvaluatorTest {
+
+    @Test
+    void judgesEveryLineOnItsOwn() {
+        LineCaseResults.Expectation[] expectations = {LineCaseResults.Expectation.MATCH, LineCaseResults.Expectation.MATCH,
+                LineCaseResults.Expectation.NO_MATCH};
+        LineCaseResults results = LineCaseEvaluator.evaluate(Pattern.compile("^ab+$|b"), "abb\nxbx\nb\nyy", expectations,
+                MatchBudget.UNLIMITED, () -> false);
+
+        assertNotNull(results);
+        assertEquals(4, results.getLineCount());
+        assertEquals(LineCaseResults.Verdict.FULL_MATCH, results.getVerdict(0));
+        assertEquals(LineCaseResults.Verdict.MATCH, results.getVerdict(1));
+        assertEquals(LineCaseResults.Verdict.FULL_MATCH, results.getVerdict(2));
+        assertEquals(LineCaseResults.Verdict.NO_MATCH, results.getVerdict(3));
+        assertTrue(results.isPassed(1));
+        assertFalse(results.isPassed(2));
+        assertEquals(2, results.getPassedCount());
+    }
+
+    @Test
+    void reportsStackOverflowOfALongLine() {
+        // java.util.regex recurses once per repetition of the group and overflows even the stack the tests run with
+        String text = "ab\n" + "ab".repeat(2_000_000) + "\nab";
+        LineCaseResults results = LineCaseEvaluator.evaluate(Pattern.compile("(a|b)*"), text, new LineCaseResults.Expectation[0],
+                MatchBudget.UNLIMITED, () -> false);
+
+        assertNotNull(results);
+        assertEquals(LineCaseResults.Verdict.FULL_MATCH, results.getVerdict(0));
+        assertEquals(LineCaseResults.Verdict.STACK_OVERFLOW, results.getVerdict(1));
+        assertEquals(LineCaseResults.Verdict.FULL_MATCH, results.getVerdict(2));
+    }
+}
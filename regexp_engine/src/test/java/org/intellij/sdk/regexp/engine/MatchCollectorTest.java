@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchCollectorTest {
+
+    private static final String[] PATTERNS = {
+            "\\s+", "\\w+", "a\\s*z", "a.*z", "x*", "", "$", "^", "\\b", "\\d{2,4}", "[a-z]+@[a-z]+\\.com",
+            "(?m)^\\w+$", "(?m)^$", "(?s)a.*?z", "(?i)AB", "ab|b\\n", "a(?=b\\nz)", "a(?!\\n)", "(?<=a)b", "\\Gx",
+            "(a)\\1", "\\z", "b\\Z", "[^\\n]*", "(?=a.*z).", "\\r?\\n",
+    };
+    private static final String ALPHABET = "abxz  1\n\n\r.@";
+
+    @Test
+    void reportsRangesDroppedBeforeTheEditedLine() {
+        Pattern pattern = Pattern.compile("\\s+");
+        MatchEngine engine = new JavaMatchEngine(pattern);
+        String text = "x\n\n\n\nyz";
+        MatchRanges ranges = MatchCollector.collect(engine, text, MatchBudget.UNLIMITED, () -> false).getRanges();
+
+        String edited = "x\n\n\n\n yz";
+        MatchReport report = collectIncremental(CompiledRegex.of(pattern, null), engine, edited, ranges, false, 5, 0, 1);
+
+        assertArrayEquals(new int[]{1, 6}, toArray(report.getRanges()));
+    }
+
+    @Test
+    void reportsStackOverflowOfDeepRecursion() throws InterruptedException {
+        // java.util.regex recurses once per repetition of the group
+        MatchEngine engine = new JavaMatchEngine(Pattern.compile("(a|b)*"));
+        String text = "ab".repeat(100_000);
+        MatchReport[] report = new MatchReport[1];
+        Thread thread = new Thread(null, () -> report[0] = MatchCollector.collect(engine, text, MatchBudget.UNLIMITED, () -> false),
+                "small stack", 256 * 1024);
+        thread.start();
+        thread.join();
+
+        assertEquals(MatchReport.Status.STACK_OVERFLOW, report[0].getStatus());
+    }
+
+    @Test
+    void fallsBackToFullScanForLookbehindAndContiguousMatches() {
+        assertTrue(CompiledRegex.compile("(?<=a)b", 0).getResyncWindow().isFullScan());
+        assertTrue(CompiledRegex.compile("\\Gx", 0).getResyncWindow().isFullScan());
+        assertTrue(CompiledRegex.compile("\\s+", 0).getResyncWindow().isFullScan());
+        assertTrue(CompiledRegex.compile("a.*", Pattern.DOTALL).getResyncWindow().isFullScan());
+        assertFalse(CompiledRegex.compile("a.*", 0).getResyncWindow().isFullScan());
+        assertFalse(CompiledRegex.compile("a\\s{0,3}z", 0).getResyncWindow().isFullScan());
+    }
+
+    @Test
+    void incrementalMatchesAgreeWithFullScan() {
+        Random random = new Random(42);
+        for (String regex : PATTERNS) {
+            Pattern pattern = Pattern.compile(regex);
+            CompiledRegex compiled = CompiledRegex.of(pattern, null);
+            MatchEngine[] engines = {new JavaMatchEngine(pattern), compiled.getEngine()};
+            for (MatchEngine engine : engines) {
+                for (int round = 0; round < 200; round++) {
+                    checkEdits(regex, compiled, engine, random);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a few edits the way the tool window batches keystrokes, then compares the incremental result with a full scan.
+     */
+    private static void checkEdits(String regex, CompiledRegex compiled, MatchEngine engine, Random random) {
+        String text = randomText(random, random.nextInt(40));
+        MatchReport full = MatchCollector.collect(engine, text, MatchBudget.UNLIMITED, () -> false);
+        MatchRanges ranges = full.getRanges();
+        boolean firstHitEnd = full.isFirstHitEnd();
+        for (int step = 0; step < 5; step++) {
+            int dirtyStart = -1;
+            int dirtyEnd = 0;
+            int edits = 1 + random.nextInt(3);
+            StringBuilder log = new StringBuilder();
+            for (int i = 0; i < edits; i++) {
+                int offset = random.nextInt(text.length() + 1);
+                int oldLength = random.nextInt(Math.min(3, text.length() - offset) + 1);
+                String replacement = randomText(random, random.nextInt(3));
+                int oldEnd = offset + oldLength;
+                int newEnd = offset + replacement.length();
+                int editStart = ranges.getDirtyStart(offset, oldLength);
+                ranges = ranges.applyEdit(offset, oldLength, replacement.length());
+                if (dirtyStart < 0) {
+                    dirtyStart = editStart;
+                    dirtyEnd = newEnd;
+                } else {
+                    int end = dirtyEnd <= offset ? dirtyEnd : dirtyEnd >= oldEnd ? dirtyEnd + newEnd - oldEnd : newEnd;
+                    dirtyStart = Math.min(dirtyStart, editStart);
+                    dirtyEnd = Math.max(end, newEnd);
+                }
+                log.append(String.format(" [%d,%d)->\"%s\"", offset, oldEnd, escape(replacement)));
+                text = text.substring(0, offset) + replacement + text.substring(oldEnd);
+            }
+            MatchReport incremental = MatchCollector.collectIncremental(engine, compiled.getResyncWindow(), text, ranges,
+                    firstHitEnd, dirtyStart, dirtyEnd, MatchBudget.UNLIMITED, () -> false);
+            full = MatchCollector.collect(engine, text, MatchBudget.UNLIMITED, () -> false);
+            String edited = text;
+            assertArrayEquals(toArray(full.getRanges()), toArray(incremental.getRanges()),
+                    () -> engine.getName() + " /" + regex + "/ on \"" + escape(edited) + "\" after" + log);
+            assertEquals(full.isFirstHitEnd(), incremental.isFirstHitEnd(),
+                    () -> "first hitEnd of /" + regex + "/ on \"" + escape(edited) + "\" after" + log);
+            ranges = incremental.getRanges();
+            firstHitEnd = incremental.isFirstHitEnd();
+        }
+    }
+
+    private static MatchReport collectIncremental(CompiledRegex compiled, MatchEngine engine, String text, MatchRanges previous,
+                                                  boolean firstHitEnd, int offset, int oldLength, int newLength) {
+        int dirtyStart = previous.getDirtyStart(offset, oldLength);
+        return MatchCollector.collectIncremental(engine, compiled.getResyncWindow(), text, previous.applyEdit(offset, oldLength, newLength),
+                firstHitEnd, dirtyStart, offset + newLength, MatchBudget.UNLIMITED, () -> false);
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    static int[] toArray(MatchRanges ranges) {
+        int[] result = new int[ranges.size() * 2];
+        for (int i = 0; i < ranges.size(); i++) {
+            result[2 * i] = ranges.getStart(i);
+            result[2 * i + 1] = ranges.getEnd(i);
+        }
+        return result;
+    }
+
+    private static String escape(String text) {
+        return text.replace("\r", "\\r").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.intellij.sdk.regexp.engine.MatchCollectorTest.toArray;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MatchRangesTest {
+
+    private static final MatchRanges RANGES = ranges(2, 4, 6, 6, 8, 12, 15, 16);
+
+    @Test
+    void findsRangesAroundAnOffset() {
+        assertEquals(0, RANGES.indexOfFirstEndingAtOrAfter(0));
+        assertEquals(0, RANGES.indexOfFirstEndingAtOrAfter(4));
+        assertEquals(1, RANGES.indexOfFirstEndingAtOrAfter(5));
+        assertEquals(4, RANGES.indexOfFirstEndingAtOrAfter(17));
+        assertEquals(1, RANGES.indexOfFirstStartingAfter(2));
+        assertEquals(1, RANGES.indexOfFirstStartingAtOrAfter(6));
+        assertEquals(2, RANGES.indexOfFirstStartingAfter(6));
+        assertEquals(4, RANGES.indexOfFirstStartingAfter(15));
+    }
+
+    @Test
+    void shiftsRangesBehindAnInsertion() {
+        assertArrayEquals(new int[]{2, 4, 6, 6, 11, 15, 18, 19}, toArray(RANGES.applyEdit(7, 0, 3)));
+    }
+
+    @Test
+    void dropsRangesTouchingTheEdit() {
+        // the edit at 4 touches the end of [2, 4), a deletion of [9, 13) overlaps [8, 12)
+        assertArrayEquals(new int[]{6, 6, 8, 12, 15, 16}, toArray(RANGES.applyEdit(4, 0, 0)));
+        assertArrayEquals(new int[]{2, 4, 6, 6, 11, 12}, toArray(RANGES.applyEdit(9, 4, 0)));
+        assertArrayEquals(new int[]{2, 4}, toArray(RANGES.applyEdit(6, 10, 1)));
+        assertSame(MatchRanges.EMPTY, RANGES.applyEdit(0, 20, 0));
+    }
+
+    @Test
+    void startsTheDirtyRegionAtTheFirstDroppedRange() {
+        assertEquals(8, RANGES.getDirtyStart(10, 1));
+        assertEquals(2, RANGES.getDirtyStart(4, 0));
+        assertEquals(13, RANGES.getDirtyStart(13, 1));
+        assertEquals(0, RANGES.getDirtyStart(0, 0));
+    }
+
+    @Test
+    void splicesThreeParts() {
+        MatchRanges middle = ranges(7, 9);
+        assertArrayEquals(new int[]{2, 4, 7, 9, 15, 16}, toArray(RANGES.splice(1, middle, 3)));
+        assertArrayEquals(new int[]{7, 9}, toArray(RANGES.splice(0, middle, 4)));
+        assertArrayEquals(toArray(RANGES), toArray(RANGES.splice(2, MatchRanges.EMPTY, 2)));
+        assertSame(MatchRanges.EMPTY, RANGES.splice(0, MatchRanges.EMPTY, 4));
+    }
+
+    @Test
+    void growsTheBuilder() {
+        MatchRanges.Builder builder = new MatchRanges.Builder();
+        for (int i = 0; i < 100; i++) {
+            builder.add(i * 2, i * 2 + 1);
+        }
+        MatchRanges ranges = builder.build();
+        assertEquals(100, ranges.size());
+        assertEquals(198, ranges.getStart(99));
+        assertEquals(199, ranges.getEnd(99));
+        assertSame(MatchRanges.EMPTY, new MatchRanges.Builder().build());
+    }
+
+    private static MatchRanges ranges(int... offsets) {
+        MatchRanges.Builder builder = new MatchRanges.Builder();
+        for (int i = 0; i < offsets.length; i += 2) {
+            builder.add(offsets[i], offsets[i + 1]);
+        }
+        return builder.build();
+    }
+}
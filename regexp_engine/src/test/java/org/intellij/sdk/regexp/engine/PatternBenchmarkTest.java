@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatternBenchmarkTest {
+
+    @Test
+    void abortsPatternsThatRunOutOfBudgetOrStack() {
+        MatchEngine backtracking = new JavaMatchEngine(Pattern.compile("(?=x)(x+x+)+y"));
+        PatternBenchmark.Result timedOut = PatternBenchmark.run(backtracking, "x".repeat(5000) + " xy", MatchBudget.of(100_000, 10_000), () -> false);
+        assertEquals(PatternBenchmark.Result.Status.TIMED_OUT, timedOut.getStatus());
+        assertTrue(timedOut.isAborted());
+
+        // java.util.regex recurses once per repetition of the group and overflows even the stack the tests run with
+        MatchEngine recursive = new JavaMatchEngine(Pattern.compile("(a|b)*"));
+        PatternBenchmark.Result overflowed = PatternBenchmark.run(recursive, "ab".repeat(2_000_000), MatchBudget.UNLIMITED, () -> false);
+        assertEquals(PatternBenchmark.Result.Status.STACK_OVERFLOW, overflowed.getStatus());
+        assertTrue(overflowed.isAborted());
+        assertEquals(0, overflowed.getIterations());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PatternSetMatcherTest {
+
+    @Test
+    void findsTheMatchesOfEveryPatternOnItsOwn() {
+        String text = "xx ERROR start\nstill running\ndone\n".repeat(20) + "mail joe@example.com at 10:30\n";
+        String[] regexes = {"ERROR.*done", "ERROR.*done", "(?m)^still.*$", "[a-z]+@[a-z]+\\.com", "\\d+", "ERROR.{0,40}done"};
+        int[] flags = {Pattern.DOTALL, 0, 0, 0, 0, Pattern.DOTALL | Pattern.MULTILINE};
+        List<PatternSetMatcher.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < regexes.length; i++) {
+            entries.add(PatternSetMatcher.Entry.of(Pattern.compile(regexes[i], flags[i]), RegexParser.parse(regexes[i])));
+        }
+        PatternSetMatcher.Result result = PatternSetMatcher.match(entries, text, MatchBudget.UNLIMITED, () -> false);
+
+        for (int i = 0; i < regexes.length; i++) {
+            MatchReport report = result.getReport(i);
+            assertEquals(MatchReport.Status.COMPLETED, report.getStatus());
+            assertArrayEquals(expected(entries.get(i).getPattern(), text), MatchCollectorTest.toArray(report.getRanges()), regexes[i]);
+        }
+        assertTrue(result.isPrefiltered(0));
+        assertEquals(1, result.getReport(0).getRanges().size(), "DOTALL matches run across lines");
+        assertEquals(0, result.getReport(1).getRanges().size());
+    }
+
+    private static int[] expected(Pattern pattern, String text) {
+        List<Integer> offsets = new ArrayList<>();
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            offsets.add(matcher.start());
+            offsets.add(matcher.end());
+        }
+        return offsets.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that matching only around the required literals finds the matches of a scan over the whole text.
+ */
+class PrefilteredMatchEngineTest {
+
+    private static final String[] PIECES = {"foo", "ab", "x", "-", "\\n", "\\d", "[a-z]", ".", "\\s", "\\w", "[^x]", "^", "$", "\\b",
+            "(?=o)", "(?<=a)", "(?:foo|bar)", "(?:ab|xab)"};
+    private static final String[] QUANTIFIERS = {"", "", "*", "+", "?", "{0,3}", "{2}", "*?"};
+    private static final String[] WORDS = {"foo", "bar", "ab", "xab", "x", "o", "a", "1", "22", " ", "-", "\n", "\r\n", "fo", "oo"};
+
+    @Test
+    void findsTheMatchesOfAFullScan() {
+        Random random = new Random(3);
+        int prefiltered = 0;
+        for (int i = 0; i < 2000; i++) {
+            String regex = randomPattern(random);
+            int flags = (random.nextInt(4) == 0 ? Pattern.MULTILINE : 0) | (random.nextInt(4) == 0 ? Pattern.DOTALL : 0);
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(regex, flags);
+            } catch (PatternSyntaxException e) {
+                continue;
+            }
+            PrefilteredMatchEngine engine = PrefilteredMatchEngine.create(new JavaMatchEngine(pattern), RegexParser.parse(regex), flags);
+            if (engine == null) {
+                continue;
+            }
+            prefiltered++;
+            for (int j = 0; j < 10; j++) {
+                assertSameMatches(pattern, engine, randomText(random, random.nextInt(j < 5 ? 20 : 400)));
+            }
+        }
+        assertTrue(prefiltered > 500, "too few generated patterns have required literals: " + prefiltered);
+    }
+
+    @Test
+    void everyMatchContainsARequiredLiteral() {
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            String regex = randomPattern(random);
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                continue;
+            }
+            List<String> literals = RequiredLiterals.extract(RegexParser.parse(regex));
+            if (literals == null) {
+                continue;
+            }
+            String text = randomText(random, 100);
+            for (String match : matches(pattern, text)) {
+                assertTrue(literals.stream().anyMatch(match::contains), () -> "/" + regex + "/ matched \"" + match + "\" without any of " + literals);
+            }
+        }
+    }
+
+    @Test
+    void mergesWindowsOfNearbyHits() {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(9);
+        for (int i = 0; i < 300; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            if (random.nextInt(4) == 0) {
+                text.append("foo");
+            }
+        }
+        // bounded windows overlap at adjacent hits, single-line windows share the line, unbounded ones run to the end
+        for (String regex : new String[]{"\\w{0,6}foo\\w{0,6}", "o+foo", "foo.*bar", "[^\\n]*foo[^\\n]*", "foo(?:.|\\n)*?bar", "(?:foo){2,}", "oofo"}) {
+            Pattern pattern = Pattern.compile(regex);
+            PrefilteredMatchEngine engine = PrefilteredMatchEngine.create(new JavaMatchEngine(pattern), RegexParser.parse(regex), 0);
+            assertNotNull(engine, regex);
+            assertSameMatches(pattern, engine, text.toString());
+            // hits every few chars switch to a direct scan part way through
+            assertSameMatches(pattern, engine, text.substring(0, 200) + "foo bar\n".repeat(200) + text);
+        }
+    }
+
+    @Test
+    void findsMatchesAcrossLinesUnderDotAll() {
+        String text = "xx ERROR start\nstill running\ndone\n";
+        for (String regex : new String[]{"ERROR.*done", "ERROR.*?done", "ERROR.{0,40}done", "t.g"}) {
+            Pattern pattern = Pattern.compile(regex, Pattern.DOTALL);
+            PrefilteredMatchEngine engine = PrefilteredMatchEngine.create(new JavaMatchEngine(pattern), RegexParser.parse(regex), Pattern.DOTALL);
+            assertNotNull(engine, regex);
+            assertSameMatches(pattern, engine, text);
+            assertSameMatches(pattern, engine, text.repeat(50));
+        }
+        assertEquals(List.of("ERROR start\nstill running\ndone"), matchesOf(CompiledRegex.compile("ERROR.*done", Pattern.DOTALL), text));
+    }
+
+    @Test
+    void leavesUnsupportedFlagsToTheEngine() {
+        RegexNode tree = RegexParser.parse("foo\\d+");
+        for (int flags : new int[]{Pattern.CASE_INSENSITIVE, Pattern.COMMENTS, Pattern.LITERAL, Pattern.CANON_EQ}) {
+            JavaMatchEngine engine = new JavaMatchEngine(Pattern.compile("foo\\d+", flags));
+            assertNull(PrefilteredMatchEngine.create(engine, tree, flags));
+        }
+        assertNull(CompiledRegex.compile("FOO\\d+", Pattern.CASE_INSENSITIVE).getPrefilter());
+        assertNull(CompiledRegex.compile("(?i)FOO\\d+", 0).getPrefilter(), "inline options change how literals match");
+        assertEquals(List.of("foo1"), matchesOf(CompiledRegex.compile("(?i)FOO\\d+", 0), "bar foo1"));
+        assertEquals(List.of("FOO12"), matchesOf(CompiledRegex.compile("foo\\d+", Pattern.CASE_INSENSITIVE), "bar FOO12"));
+        assertNotNull(CompiledRegex.compile("foo\\d+", Pattern.MULTILINE).getPrefilter());
+    }
+
+    private static List<String> matchesOf(CompiledRegex regex, String text) {
+        List<String> result = new ArrayList<>();
+        MatchEngine.Searcher searcher = regex.getEngine().searcher(text);
+        while (searcher.find()) {
+            result.add(text.substring(searcher.start(), searcher.end()));
+        }
+        return result;
+    }
+
+    private static List<String> matches(Pattern pattern, String text) {
+        List<String> result = new ArrayList<>();
+        java.util.regex.Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            result.add(matcher.group());
+        }
+        return result;
+    }
+
+    private static void assertSameMatches(Pattern pattern, MatchEngine engine, String text) {
+        List<String> expected = new ArrayList<>();
+        java.util.regex.Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            expected.add(matcher.start() + "-" + matcher.end());
+        }
+        List<String> actual = new ArrayList<>();
+        MatchEngine.Searcher searcher = engine.searcher(text);
+        while (searcher.find()) {
+            actual.add(searcher.start() + "-" + searcher.end());
+        }
+        assertEquals(expected, actual, () -> "/" + pattern.pattern() + "/ on \"" + text.replace("\n", "\\n").replace("\r", "\\r") + "\"");
+    }
+
+    private static String randomPattern(Random random) {
+        StringBuilder pattern = new StringBuilder();
+        for (int i = 1 + random.nextInt(4); i > 0; i--) {
+            String piece = PIECES[random.nextInt(PIECES.length)];
+            pattern.append(piece);
+            if (!piece.startsWith("(?=") && !piece.startsWith("(?<") && !piece.equals("^") && !piece.equals("$") && !piece.equals("\\b")) {
+                pattern.append(QUANTIFIERS[random.nextInt(QUANTIFIERS.length)]);
+            }
+        }
+        return random.nextInt(5) == 0 ? pattern + "|" + PIECES[random.nextInt(3)] : pattern.toString();
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegexParserTest {
+
+    @Test
+    void keepsSourceOffsetsOfEveryNode() {
+        // the offsets the IDE PSI gives the tree converter: a quantifier belongs to its atom, escapes span the backslash
+        RegexNode tree = RegexParser.parse("[a-z]+@[a-z]+\\.com");
+        assertNode(tree, RegexNode.Kind.SEQUENCE, 0, 18);
+        assertEquals(7, tree.getChildren().size());
+        assertNode(tree.getChildren().get(0), RegexNode.Kind.REPEAT, 0, 6);
+        assertNode(tree.getChildren().get(0).getBody(), RegexNode.Kind.CHAR, 0, 5);
+        assertNode(tree.getChildren().get(1), RegexNode.Kind.CHAR, 6, 7);
+        assertNode(tree.getChildren().get(2), RegexNode.Kind.REPEAT, 7, 13);
+        assertNode(tree.getChildren().get(3), RegexNode.Kind.CHAR, 13, 15);
+        assertNode(tree.getChildren().get(4), RegexNode.Kind.CHAR, 15, 16);
+        assertNode(tree.getChildren().get(6), RegexNode.Kind.CHAR, 17, 18);
+        assertEquals(CharSet.range('a', 'z'), tree.getChildren().get(0).getBody().getCharSet());
+        assertEquals(CharSet.of('.'), tree.getChildren().get(3).getCharSet());
+    }
+
+    @Test
+    void nestsChildrenInsideTheirParents() {
+        for (String pattern : new String[]{"(a|bc)*?d{2,3}+", "(?:x(?<name>y)\\k<name>)+", "a(?=b)(?!c)(?<=d)(?<!e)", "^\\bfoo\\B$",
+                "[^\\d\\s]|\\w{3,}", "(?>a+)\\1?", "\\Qa.b\\E|(?i)x", "\\uD83D\\uDE00\\x{1F600}"}) {
+            assertNested(RegexParser.parse(pattern), pattern);
+        }
+    }
+
+    @Test
+    void readsQuantifiersAndGroups() {
+        RegexNode repeat = RegexParser.parse("(ab){2,5}?");
+        assertNode(repeat, RegexNode.Kind.REPEAT, 0, 10);
+        assertEquals(2, repeat.getMin());
+        assertEquals(5, repeat.getMax());
+        assertTrue(repeat.isLazy());
+        assertNode(repeat.getBody(), RegexNode.Kind.GROUP, 0, 4);
+        assertEquals(1, repeat.getBody().getGroupIndex());
+
+        RegexNode possessive = RegexParser.parse("a{3,}+");
+        assertTrue(possessive.isUnbounded());
+        assertTrue(possessive.isPossessive());
+
+        RegexNode literalBrace = RegexParser.parse("a{,2}");
+        assertEquals(RegexNode.Kind.SEQUENCE, literalBrace.getKind());
+
+        RegexNode backReference = RegexParser.parse("(a)(b)\\2");
+        assertEquals(RegexNode.Kind.BACK_REFERENCE, backReference.getChildren().get(2).getKind());
+        assertEquals(2, backReference.getChildren().get(2).getGroupIndex());
+    }
+
+    @Test
+    void modelsCharacterSets() {
+        assertEquals(CharSet.DIGIT.union(CharSet.of('_')), RegexParser.parse("[\\d_]").getCharSet());
+        assertEquals(CharSet.range('a', 'c').complement(), RegexParser.parse("[^a-c]").getCharSet());
+        assertEquals(CharSet.DOT, RegexParser.parse(".").getCharSet());
+        assertEquals(CharSet.of(0x1F600), RegexParser.parse("\uD83D\uDE00").getCharSet());
+        assertEquals(CharSet.of('\t'), RegexParser.parse("\\x09").getCharSet());
+    }
+
+    @Test
+    void marksConstructsOutsideTheModelAsUnsupported() {
+        assertNode(RegexParser.parse("\\p{L}"), RegexNode.Kind.UNSUPPORTED, 0, 5);
+        assertNode(RegexParser.parse("[a&&b]"), RegexNode.Kind.UNSUPPORTED, 0, 6);
+        assertNode(RegexParser.parse("(?i:a)"), RegexNode.Kind.UNSUPPORTED, 0, 6);
+        assertNode(RegexParser.parse("a\\Gb").getChildren().get(1), RegexNode.Kind.UNSUPPORTED, 1, 3);
+        // unbalanced parentheses are not understood at all
+        assertNode(RegexParser.parse("a)b"), RegexNode.Kind.UNSUPPORTED, 0, 3);
+    }
+
+    @Test
+    void parsesWhateverPatternCompiles() {
+        for (String pattern : new String[]{"", "|", "a||b", "()", "(?:)", "[]a]", "[a-]", "\\0101", "\\cA", "x{0}", "\\\\"}) {
+            Pattern.compile(pattern);
+            RegexNode tree = RegexParser.parse(pattern);
+            assertFalse(tree.contains(RegexNode.Kind.UNSUPPORTED), pattern);
+            assertNested(tree, pattern);
+        }
+    }
+
+    private static void assertNode(RegexNode node, RegexNode.Kind kind, int start, int end) {
+        assertEquals(kind, node.getKind());
+        assertEquals(start, node.getStart(), () -> kind + " start");
+        assertEquals(end, node.getEnd(), () -> kind + " end");
+    }
+
+    private static void assertNested(RegexNode node, String pattern) {
+        int previousEnd = node.getStart();
+        for (RegexNode child : node.getChildren()) {
+            assertTrue(child.getStart() >= previousEnd && child.getEnd() <= node.getEnd(),
+                    () -> child.getKind() + " [" + child.getStart() + ", " + child.getEnd() + ") outside of " + node.getKind()
+                            + " [" + node.getStart() + ", " + node.getEnd() + ") in " + pattern);
+            previousEnd = child.getEnd();
+            assertNested(child, pattern);
+        }
+    }
+}
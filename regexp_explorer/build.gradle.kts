@@ -1,6 +1,9 @@
+import groovy.json.JsonSlurper
+
 plugins {
     id("java")
     id("org.jetbrains.intellij") version "1.5.2"
+    id("me.champeau.jmh") version "0.6.6"
 }
 group = "com.intellij.sdk"
 version = "0.2.1"
@@ -9,6 +12,10 @@ repositories {
     mavenCentral()
 }
 
+dependencies {
+    implementation("com.intellij.sdk:regexp_engine:${project.version}")
+}
+
 java {
     sourceCompatibility = JavaVersion.VERSION_11
 }
@@ -21,7 +28,56 @@ intellij {
     downloadSources.set(false)
 }
 
+// Benchmarks of the headless parts of the tool window update pipeline, see src/jmh
+jmh {
+    jmhVersion.set("1.35")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    // the largest corpus is 100 MB of text
+    jvmArgs.addAll("-Xmx4g", "-Djava.awt.headless=true")
+}
+
 tasks {
+    // Compares the last JMH results with jmh-baseline.json and fails on regressions above
+    // -PjmhThreshold percent (10 by default). Creates the baseline if there is none, -PjmhUpdateBaseline replaces it.
+    register("jmhCheck") {
+        group = "benchmark"
+        description = "Runs the JMH benchmarks and compares them with the baseline"
+        dependsOn("jmh")
+        doLast {
+            val resultsFile = layout.buildDirectory.file("results/jmh/results.json").get().asFile
+            val baselineFile = file("jmh-baseline.json")
+            if (!baselineFile.exists() || project.hasProperty("jmhUpdateBaseline")) {
+                resultsFile.copyTo(baselineFile, true)
+                logger.lifecycle("JMH baseline written to $baselineFile")
+                return@doLast
+            }
+            val threshold = (project.findProperty("jmhThreshold") as String?)?.toDouble() ?: 10.0
+            val baseline = readJmhScores(baselineFile)
+            val regressions = mutableListOf<String>()
+            for ((key, current) in readJmhScores(resultsFile)) {
+                val previous = baseline[key] ?: continue
+                // average time gets worse when it grows, throughput when it drops
+                val change = if (current.first == "thrpt") {
+                    (previous.second - current.second) / previous.second * 100
+                } else {
+                    (current.second - previous.second) / previous.second * 100
+                }
+                val line = String.format("%s: %.3f -> %.3f %s (%+.1f%%)", key, previous.second, current.second, current.third, change)
+                logger.lifecycle(line)
+                if (change > threshold) {
+                    regressions.add(line)
+                }
+            }
+            if (regressions.isNotEmpty()) {
+                throw GradleException("Benchmarks regressed by more than $threshold%:\n" + regressions.joinToString("\n"))
+            }
+        }
+    }
+
     buildSearchableOptions {
         enabled = false
     }
@@ -33,3 +89,17 @@ tasks {
     }
 }
 
+
+/**
+ * @return score of every benchmark in a JMH JSON result file, keyed by benchmark name and parameters,
+ * as (mode, score, unit)
+ */
+fun readJmhScores(file: File): Map<String, Triple<String, Double, String>> {
+    @Suppress("UNCHECKED_CAST")
+    val results = JsonSlurper().parse(file) as List<Map<String, Any?>>
+    return results.associate { result ->
+        val params = (result["params"] as Map<*, *>?)?.entries?.joinToString(",", "(", ")") { "${it.key}=${it.value}" } ?: ""
+        val metric = result["primaryMetric"] as Map<*, *>
+        "${result["benchmark"]}$params" to Triple(result["mode"] as String, (metric["score"] as Number).toDouble(), metric["scoreUnit"] as String)
+    }
+}
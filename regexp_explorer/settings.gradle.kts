@@ -1 +1,4 @@
 rootProject.name = "regexp_explorer"
+
+// The headless engine is built from sources next to the plugin
+includeBuild("../regexp_engine")
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.benchmark;
+
+import org.intellij.sdk.regexp.engine.RegexNode;
+import org.intellij.sdk.regexp.engine.RegexParser;
+
+import java.util.Random;
+
+/**
+ * Synthetic test strings: log-like lines with words, numbers and e-mail addresses, generated from a fixed seed.
+ */
+final class Corpus {
+
+    /**
+     * Matched by every matching benchmark, supported by both engines.
+     */
+    static final String EMAIL = "[a-z]+@[a-z]+\\.com";
+
+    private static final String[] WORDS = {
+            "user", "request", "failed", "id", "session", "timeout", "ok", "retry", "cache", "python", "service", "latency"
+    };
+
+    private Corpus() {
+    }
+
+    static String generate(int length) {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(length + 64);
+        while (builder.length() < length) {
+            int words = 4 + random.nextInt(8);
+            for (int i = 0; i < words; i++) {
+                switch (random.nextInt(6)) {
+                    case 0:
+                        builder.append(random.nextInt(100000));
+                        break;
+                    case 1:
+                        builder.append(WORDS[random.nextInt(WORDS.length)]).append('@').append(WORDS[random.nextInt(WORDS.length)]).append(".com");
+                        break;
+                    default:
+                        builder.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                builder.append(i == words - 1 ? '\n' : ' ');
+            }
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+
+    /**
+     * @return tree of {@link #EMAIL}, as the tool window would get it from the PSI
+     */
+    static RegexNode emailTree() {
+        return RegexParser.parse(EMAIL);
+    }
+}
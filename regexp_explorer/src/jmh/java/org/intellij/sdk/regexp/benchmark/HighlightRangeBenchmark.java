@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.benchmark;
+
+import org.intellij.sdk.regexp.engine.JavaMatchEngine;
+import org.intellij.sdk.regexp.engine.MatchBudget;
+import org.intellij.sdk.regexp.engine.MatchCollector;
+import org.intellij.sdk.regexp.engine.MatchEngine;
+import org.intellij.sdk.regexp.engine.MatchRanges;
+import org.intellij.sdk.regexp.engine.MatchReport;
+import org.intellij.sdk.regexp.engine.RegexParser;
+import org.intellij.sdk.regexp.engine.ResyncWindow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The highlighting side of a keystroke in 1 MB of test strings: mapping the known ranges through the edit,
+ * re-matching the edited region, and picking the ranges of the visible window the editor gets highlighters for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HighlightRangeBenchmark {
+
+    private static final int LENGTH = 1 << 20;
+    private static final int WINDOW = 8 * 1024;
+
+    private MatchEngine engine;
+    private ResyncWindow window;
+    private String text;
+    private String editedText;
+    private int editOffset;
+    private MatchRanges ranges;
+
+    @Setup
+    public void setUp() {
+        engine = new JavaMatchEngine(Pattern.compile(Corpus.EMAIL));
+        window = ResyncWindow.of(RegexParser.parse(Corpus.EMAIL), 0);
+        text = Corpus.generate(LENGTH);
+        editOffset = text.indexOf('@', LENGTH / 2);
+        editedText = text.substring(0, editOffset) + "x" + text.substring(editOffset);
+        ranges = MatchCollector.collect(engine, text, MatchBudget.UNLIMITED, () -> false).getRanges();
+    }
+
+    @Benchmark
+    public MatchRanges applyEdit() {
+        return ranges.applyEdit(editOffset, 0, 1);
+    }
+
+    @Benchmark
+    public MatchReport collectIncremental() {
+        return MatchCollector.collectIncremental(engine, window, editedText, ranges.applyEdit(editOffset, 0, 1), false,
+                ranges.getDirtyStart(editOffset, 0), editOffset + 1, MatchBudget.UNLIMITED, () -> false);
+    }
+
+    @Benchmark
+    public int visibleWindow() {
+        int from = ranges.indexOfFirstEndingAtOrAfter(editOffset);
+        int to = ranges.indexOfFirstStartingAfter(editOffset + WINDOW);
+        int sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += ranges.getEnd(i) - ranges.getStart(i);
+        }
+        return sum;
+    }
+}
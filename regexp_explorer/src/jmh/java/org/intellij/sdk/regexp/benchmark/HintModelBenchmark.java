@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.benchmark;
+
+import org.intellij.sdk.regexp.HintCatalog;
+import org.intellij.sdk.regexp.HintTableModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The quick reference model: reading the catalog, which happens once per application, and showing every category
+ * in the table model, as the tool window does when the category changes. Runs with {@code java.awt.headless}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class HintModelBenchmark {
+
+    private final List<HintCatalog.Category> categories = HintCatalog.read().getCategories();
+
+    @Benchmark
+    public HintCatalog readCatalog() {
+        return HintCatalog.read();
+    }
+
+    @Benchmark
+    public void allCategories(Blackhole blackhole) {
+        HintTableModel model = new HintTableModel(categories.get(0));
+        for (HintCatalog.Category category : categories) {
+            model.setCategory(category);
+            for (int row = 0; row < model.getRowCount(); row++) {
+                for (int column = 0; column < model.getColumnCount(); column++) {
+                    blackhole.consume(model.getValueAt(row, column));
+                }
+            }
+        }
+    }
+}
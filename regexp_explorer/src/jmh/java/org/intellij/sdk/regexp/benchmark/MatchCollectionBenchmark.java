@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.benchmark;
+
+import org.intellij.sdk.regexp.engine.AutomatonMatchEngine;
+import org.intellij.sdk.regexp.engine.JavaMatchEngine;
+import org.intellij.sdk.regexp.engine.MatchBudget;
+import org.intellij.sdk.regexp.engine.MatchCollector;
+import org.intellij.sdk.regexp.engine.MatchEngine;
+import org.intellij.sdk.regexp.engine.MatchReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Collecting all match ranges of a pattern over 1 KB, 1 MB and 100 MB of test strings with each engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MatchCollectionBenchmark {
+
+    @Param({"1024", "1048576", "104857600"})
+    public int length;
+
+    @Param({"java", "automaton"})
+    public String engine;
+
+    private String text;
+    private MatchEngine matchEngine;
+
+    @Setup
+    public void setUp() {
+        text = Corpus.generate(length);
+        matchEngine = "java".equals(engine)
+                ? new JavaMatchEngine(Pattern.compile(Corpus.EMAIL))
+                : AutomatonMatchEngine.create(Corpus.emailTree(), 0);
+    }
+
+    @Benchmark
+    public MatchReport collect() {
+        return MatchCollector.collect(matchEngine, text, MatchBudget.UNLIMITED, () -> false);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp.benchmark;
+
+import org.intellij.sdk.regexp.engine.CompiledPatternCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compiling the pattern, which every keystroke in the regular expression field pays for, directly and through the cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PatternCompileBenchmark {
+
+    @Param({Corpus.EMAIL, "(?<year>\\d{4})-(?<month>\\d{2})-(?<day>\\d{2})T\\d{2}:\\d{2}", "^\\s*(def|class)\\s+(\\w+)\\s*[(:]"})
+    public String regex;
+
+    private CompiledPatternCache cache;
+
+    @Setup
+    public void setUp() {
+        cache = new CompiledPatternCache();
+        cache.compile(regex, 0);
+    }
+
+    @Benchmark
+    public Pattern compile() {
+        return Pattern.compile(regex);
+    }
+
+    @Benchmark
+    public CompiledPatternCache.CompiledPattern compileCached() {
+        return cache.compile(regex, 0);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Debounce delay that follows how long recent updates took.
+ * <p>
+ * Updates that fit in a frame run at once. Slower ones wait about as long as they take, so a burst of keystrokes
+ * coalesces into one update instead of queueing one per key, but never longer than {@code maxWaitMillis}
+ * after the first request of the burst, so continuous typing still shows results.
+ * Thread-safe.
+ */
+final class AdaptiveDebounce {
+
+    private static final double INSTANT_MILLIS = 16;
+    private static final double SMOOTHING = 0.3;
+
+    private final int maxDelayMillis;
+    private final int maxWaitMillis;
+    private double averageMillis = -1;
+    private long pendingSince = -1;
+
+    AdaptiveDebounce(int maxDelayMillis, int maxWaitMillis) {
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Called for every request, the first one since {@link #started()} opens a burst.
+     *
+     * @return how long to wait before running the update
+     */
+    synchronized int nextDelayMillis() {
+        long now = System.nanoTime();
+        if (pendingSince < 0) {
+            pendingSince = now;
+        }
+        if (averageMillis < INSTANT_MILLIS) {
+            return 0;
+        }
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(now - pendingSince);
+        return (int) Math.max(0, Math.min(Math.min(averageMillis, maxDelayMillis), maxWaitMillis - waitedMillis));
+    }
+
+    /**
+     * Called when the update actually starts, closes the burst.
+     */
+    synchronized void started() {
+        pendingSince = -1;
+    }
+
+    /**
+     * Records the duration of an update, an exponential moving average of them sets the delay.
+     */
+    synchronized void record(long nanos) {
+        double millis = nanos / 1e6;
+        averageMillis = averageMillis < 0 ? millis : averageMillis + SMOOTHING * (millis - averageMillis);
+    }
+
+    synchronized double getAverageMillis() {
+        return Math.max(averageMillis, 0);
+    }
+}
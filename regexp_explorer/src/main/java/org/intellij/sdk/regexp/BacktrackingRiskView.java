@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.codeInsight.highlighting.HighlightManager;
+import com.intellij.internal.psiView.ViewerNodeDescriptor;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.colors.CodeInsightColors;
+import com.intellij.openapi.editor.markup.RangeHighlighter;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import com.intellij.ui.ColoredTreeCellRenderer;
+import com.intellij.ui.EditorTextField;
+import com.intellij.ui.JBColor;
+import com.intellij.ui.SimpleTextAttributes;
+import org.intellij.lang.regexp.psi.RegExpClosure;
+import org.intellij.sdk.regexp.engine.BacktrackingAnalyzer;
+import org.intellij.sdk.regexp.engine.BacktrackingRisk;
+import org.intellij.sdk.regexp.engine.RegexNode;
+
+import javax.swing.*;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeCellRenderer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shows the catastrophic backtracking risks of the current pattern: the offending ranges are highlighted
+ * in the regular expression field, and the matching nodes of the explanation tree are labelled with the risk class.
+ */
+class BacktrackingRiskView {
+
+    private static final SimpleTextAttributes POLYNOMIAL_ATTRIBUTES = new SimpleTextAttributes(SimpleTextAttributes.STYLE_PLAIN, JBColor.ORANGE);
+
+    private final Project myProject;
+    private final EditorTextField myRegExpTextField;
+    private final JTree myTree;
+
+    private List<BacktrackingRisk> myRisks = Collections.emptyList();
+    private final List<RangeHighlighter> myHighlighters = new ArrayList<>();
+
+    BacktrackingRiskView(Project project, EditorTextField regExpTextField, JTree tree) {
+        myProject = project;
+        myRegExpTextField = regExpTextField;
+        myTree = tree;
+
+        TreeCellRenderer renderer = tree.getCellRenderer();
+        tree.setCellRenderer((t, value, selected, expanded, leaf, row, hasFocus) -> {
+            JComponent component = (JComponent) renderer.getTreeCellRendererComponent(t, value, selected, expanded, leaf, row, hasFocus);
+            BacktrackingRisk risk = findRisk(value);
+            if (risk != null && component instanceof ColoredTreeCellRenderer) {
+                ((ColoredTreeCellRenderer) component).append("  " + risk.getLevel().getDisplayName() + " backtracking",
+                        risk.getLevel() == BacktrackingRisk.Level.EXPONENTIAL ? SimpleTextAttributes.ERROR_ATTRIBUTES : POLYNOMIAL_ATTRIBUTES);
+                component.setToolTipText(risk.getDescription());
+            }
+            return component;
+        });
+    }
+
+    List<BacktrackingRisk> getRisks() {
+        return myRisks;
+    }
+
+    /**
+     * @param root tree of the current pattern, or null to clear the risks
+     */
+    void update(RegexNode root) {
+        myRisks = root == null ? Collections.emptyList() : BacktrackingAnalyzer.analyze(root);
+
+        Editor editor = myRegExpTextField.getEditor();
+        HighlightManager highlightManager = HighlightManager.getInstance(myProject);
+        if (editor != null) {
+            for (RangeHighlighter highlighter : myHighlighters) {
+                highlightManager.removeSegmentHighlighter(editor, highlighter);
+            }
+        }
+        myHighlighters.clear();
+        if (editor != null) {
+            for (BacktrackingRisk risk : myRisks) {
+                List<RangeHighlighter> added = new ArrayList<>(1);
+                highlightManager.addRangeHighlight(editor, risk.getStart(), risk.getEnd(),
+                        risk.getLevel() == BacktrackingRisk.Level.EXPONENTIAL ? CodeInsightColors.ERRORS_ATTRIBUTES : CodeInsightColors.WARNINGS_ATTRIBUTES,
+                        false, added);
+                for (RangeHighlighter highlighter : added) {
+                    highlighter.setErrorStripeTooltip(risk.getDescription());
+                }
+                myHighlighters.addAll(added);
+            }
+        }
+        myTree.repaint();
+    }
+
+    /**
+     * A risk is shown on the node spanning exactly its range, or, for risks spanning several atoms,
+     * on the quantified atom it starts with.
+     */
+    private BacktrackingRisk findRisk(Object value) {
+        if (myRisks.isEmpty() || !(value instanceof DefaultMutableTreeNode)) {
+            return null;
+        }
+        Object userObject = ((DefaultMutableTreeNode) value).getUserObject();
+        if (!(userObject instanceof ViewerNodeDescriptor)) {
+            return null;
+        }
+        Object element = ((ViewerNodeDescriptor) userObject).getElement();
+        if (!(element instanceof PsiElement) || !((PsiElement) element).isValid()) {
+            return null;
+        }
+        TextRange range = ((PsiElement) element).getTextRange();
+        for (BacktrackingRisk risk : myRisks) {
+            boolean exact = range.getStartOffset() == risk.getStart() && range.getEndOffset() == risk.getEnd();
+            boolean first = element instanceof RegExpClosure && range.getStartOffset() == risk.getStart() && range.getEndOffset() < risk.getEnd();
+            if (exact || first) {
+                return risk;
+            }
+        }
+        return null;
+    }
+}
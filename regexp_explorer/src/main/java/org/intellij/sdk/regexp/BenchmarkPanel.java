@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.intellij.sdk.regexp.engine.PatternBenchmark;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+
+/**
+ * Benchmark results of the current pattern, side by side with a variant of it if one was given.
+ */
+class BenchmarkPanel extends JPanel {
+
+    private static final String[] METRICS = {
+            "Pattern", "Matches", "Iterations", "ns/op", "Matches/s", "Steps/char", "Allocated bytes/op"
+    };
+
+    /**
+     * @param variant        the compared pattern, or null
+     * @param variantResult  its result, or null
+     * @param characterCount length of the test text
+     */
+    BenchmarkPanel(String pattern, PatternBenchmark.Result result, String variant, PatternBenchmark.Result variantResult, int characterCount) {
+        super(new BorderLayout());
+
+        String summary = "Finding all matches in " + characterCount + " characters of test text";
+        if (variantResult != null && !result.isAborted() && !variantResult.isAborted()) {
+            double ratio = result.getNanosPerOperation() / variantResult.getNanosPerOperation();
+            summary += ratio >= 1
+                    ? String.format(", the variant is %.2fx faster", ratio)
+                    : String.format(", the variant is %.2fx slower", 1 / ratio);
+        }
+        JBLabel summaryLabel = new JBLabel(summary);
+        summaryLabel.setBorder(JBUI.Borders.empty(4));
+        add(summaryLabel, BorderLayout.NORTH);
+
+        String[] columns = variantResult == null ? new String[]{"", "Current"} : new String[]{"", "Current", "Variant"};
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (int row = 0; row < METRICS.length; row++) {
+            Object[] cells = new Object[columns.length];
+            cells[0] = METRICS[row];
+            cells[1] = format(row, pattern, result);
+            if (variantResult != null) {
+                cells[2] = format(row, variant, variantResult);
+            }
+            model.addRow(cells);
+        }
+        add(new JBScrollPane(new JBTable(model)), BorderLayout.CENTER);
+    }
+
+    private static String format(int row, String pattern, PatternBenchmark.Result result) {
+        if (row == 0) {
+            return pattern;
+        }
+        if (result.getStatus() == PatternBenchmark.Result.Status.TIMED_OUT) {
+            return row == 5 ? "over " + result.getSteps() + " steps" : "timed out";
+        }
+        if (result.getStatus() == PatternBenchmark.Result.Status.STACK_OVERFLOW) {
+            return row == 5 ? "over " + result.getSteps() + " steps" : "stack overflow";
+        }
+        switch (row) {
+            case 1:
+                return String.valueOf(result.getMatchesPerOperation());
+            case 2:
+                return String.valueOf(result.getIterations());
+            case 3:
+                return String.format("%,.0f", result.getNanosPerOperation());
+            case 4:
+                return String.format("%,.0f", result.getMatchesPerSecond());
+            case 5:
+                return String.format("%.2f", result.getStepsPerCharacter());
+            default:
+                double allocated = result.getAllocatedBytesPerOperation();
+                return allocated < 0 ? "n/a" : StringUtil.formatFileSize((long) allocated);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.CollectionListModel;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.util.ui.JBUI;
+import org.intellij.sdk.regexp.engine.FileMatchScanner;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of matching a file: match count, throughput and a paged list of match offsets.
+ * Double-click or Enter on an offset opens the file at that position.
+ */
+class FileMatchPanel extends JPanel {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private final Project myProject;
+    private final VirtualFile myFile;
+    private final long[] myOffsets;
+
+    private final CollectionListModel<Long> myPageModel = new CollectionListModel<>();
+    private final JBLabel myPageLabel = new JBLabel();
+    private final JButton myPreviousButton = new JButton("Previous");
+    private final JButton myNextButton = new JButton("Next");
+    private int myPage;
+
+    FileMatchPanel(Project project, VirtualFile file, FileMatchScanner.Result result) {
+        super(new BorderLayout());
+        myProject = project;
+        myFile = file;
+        myOffsets = result.getOffsets();
+
+        String summary = result.getMatchCount() + " matches in " + StringUtil.formatFileSize(result.getFileSize())
+                + String.format(", %.1f MB/s", result.getMegabytesPerSecond());
+        if (result.getMatchCount() > myOffsets.length) {
+            summary += ", first " + myOffsets.length + " listed";
+        }
+        if (result.isStackOverflow()) {
+            summary += ", stopped by a stack overflow at offset " + result.getStackOverflowOffset();
+        }
+        JBLabel summaryLabel = new JBLabel(summary);
+        summaryLabel.setBorder(JBUI.Borders.empty(4));
+        add(summaryLabel, BorderLayout.NORTH);
+
+        JBList<Long> list = new JBList<>(myPageModel);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, "offset " + value, index, isSelected, cellHasFocus);
+            }
+        });
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                navigate(list.getSelectedValue());
+                return true;
+            }
+        }.installOn(list);
+        list.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    navigate(list.getSelectedValue());
+                }
+            }
+        });
+        add(new JBScrollPane(list), BorderLayout.CENTER);
+
+        JPanel pager = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pager.add(myPreviousButton);
+        pager.add(myNextButton);
+        pager.add(myPageLabel);
+        myPreviousButton.addActionListener(e -> showPage(myPage - 1));
+        myNextButton.addActionListener(e -> showPage(myPage + 1));
+        add(pager, BorderLayout.SOUTH);
+
+        showPage(0);
+    }
+
+    private void showPage(int page) {
+        int pageCount = Math.max((myOffsets.length + PAGE_SIZE - 1) / PAGE_SIZE, 1);
+        myPage = Math.max(0, Math.min(page, pageCount - 1));
+        int from = myPage * PAGE_SIZE;
+        int to = Math.min(from + PAGE_SIZE, myOffsets.length);
+        List<Long> items = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            items.add(myOffsets[i]);
+        }
+        myPageModel.replaceAll(items);
+        myPageLabel.setText("Page " + (myPage + 1) + " of " + pageCount);
+        myPreviousButton.setEnabled(myPage > 0);
+        myNextButton.setEnabled(myPage < pageCount - 1);
+    }
+
+    private void navigate(Long offset) {
+        if (offset != null && myFile.isValid()) {
+            new OpenFileDescriptor(myProject, myFile, (int) Math.min(offset, Integer.MAX_VALUE)).navigate(true);
+        }
+    }
+}
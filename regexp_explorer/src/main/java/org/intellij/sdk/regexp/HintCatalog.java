@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Quick reference hints by category.
+ * <p>
+ * Read once per application from {@code toolwindow/quick_reference.txt} and shared by the tool windows of all projects,
+ * the catalog is immutable.
+ */
+public final class HintCatalog {
+
+    private static final String RESOURCE = "/toolwindow/quick_reference.txt";
+
+    private final List<Category> myCategories;
+
+    /**
+     * Application service constructor, reads the bundled catalog.
+     */
+    public HintCatalog() {
+        this(load());
+    }
+
+    private HintCatalog(List<Category> categories) {
+        myCategories = categories;
+    }
+
+    public List<Category> getCategories() {
+        return myCategories;
+    }
+
+    /**
+     * Reads the bundled catalog without the application, as benchmarks do.
+     */
+    public static HintCatalog read() {
+        return new HintCatalog(load());
+    }
+
+    private static List<Category> load() {
+        InputStream stream = HintCatalog.class.getResourceAsStream(RESOURCE);
+        if (stream == null) {
+            throw new IllegalStateException(RESOURCE + " is missing");
+        }
+        List<Category> categories = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String name = null;
+            List<Hint> hints = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                if (tab < 0 && line.startsWith("[") && line.endsWith("]")) {
+                    if (name != null) {
+                        categories.add(new Category(name, hints));
+                    }
+                    name = line.substring(1, line.length() - 1);
+                    hints = new ArrayList<>();
+                } else if (tab > 0 && name != null) {
+                    hints.add(new Hint(line.substring(0, tab), line.substring(tab + 1)));
+                } else {
+                    throw new IllegalStateException(RESOURCE + ": unexpected line " + line);
+                }
+            }
+            if (name != null) {
+                categories.add(new Category(name, hints));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Collections.unmodifiableList(categories);
+    }
+
+    public static final class Category {
+
+        private final String myName;
+        private final List<Hint> myHints;
+
+        private Category(String name, List<Hint> hints) {
+            myName = name;
+            myHints = Collections.unmodifiableList(hints);
+        }
+
+        public String getName() {
+            return myName;
+        }
+
+        public List<Hint> getHints() {
+            return myHints;
+        }
+
+        /**
+         * Shown by the category combo box.
+         */
+        @Override
+        public String toString() {
+            return myName;
+        }
+    }
+
+    public static final class Hint {
+
+        private final String mySyntax;
+        private final String myDescription;
+
+        private Hint(String syntax, String description) {
+            mySyntax = syntax;
+            myDescription = description;
+        }
+
+        public String getSyntax() {
+            return mySyntax;
+        }
+
+        public String getDescription() {
+            return myDescription;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Hints of one {@link HintCatalog} category as syntax and description columns.
+ * Switching the category only swaps the rows, the table and its renderer stay.
+ */
+public class HintTableModel extends AbstractTableModel {
+
+    private HintCatalog.Category myCategory;
+
+    public HintTableModel(HintCatalog.Category category) {
+        myCategory = category;
+    }
+
+    public void setCategory(HintCatalog.Category category) {
+        if (category != myCategory) {
+            myCategory = category;
+            fireTableDataChanged();
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return myCategory.getHints().size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 2;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? "Syntax" : "Meaning";
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        HintCatalog.Hint hint = myCategory.getHints().get(row);
+        return column == 0 ? hint.getSyntax() : hint.getDescription();
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.RangeMarker;
+import com.intellij.openapi.editor.markup.GutterIconRenderer;
+import com.intellij.openapi.editor.markup.HighlighterLayer;
+import com.intellij.openapi.editor.markup.RangeHighlighter;
+import com.intellij.ui.EditorTextField;
+import org.intellij.sdk.regexp.engine.LineCaseResults;
+import org.intellij.sdk.regexp.engine.LineCaseResults.Expectation;
+import org.intellij.sdk.regexp.engine.LineCaseResults.Verdict;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Gutter icons of the "one test case per line" mode.
+ * <p>
+ * Expectations are attached to lines with range markers, so they move with the text when lines are added or removed.
+ * Clicking a line icon cycles its expectation: none, expected match, expected no match.
+ */
+class LineCaseGutter {
+
+    private static final int MAX_GUTTER_LINES = 20000;
+
+    private final EditorTextField myTextField;
+    private final Runnable myOnExpectationsChanged;
+
+    private final Map<RangeMarker, Expectation> myExpectations = new HashMap<>();
+    private final List<RangeHighlighter> myHighlighters = new ArrayList<>();
+
+    LineCaseGutter(EditorTextField textField, Runnable onExpectationsChanged) {
+        myTextField = textField;
+        myOnExpectationsChanged = onExpectationsChanged;
+        // EditorTextField hides the line marker area, without it the gutter icons are never painted
+        textField.addSettingsProvider(editor -> editor.getSettings().setLineMarkerAreaShown(true));
+    }
+
+    /**
+     * @return expectation per line of the current document, null for lines without one
+     */
+    Expectation[] getExpectations() {
+        Document document = myTextField.getDocument();
+        Expectation[] expectations = new Expectation[document.getLineCount()];
+        for (Iterator<Map.Entry<RangeMarker, Expectation>> it = myExpectations.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<RangeMarker, Expectation> entry = it.next();
+            RangeMarker marker = entry.getKey();
+            if (!marker.isValid()) {
+                it.remove();
+                continue;
+            }
+            int line = document.getLineNumber(marker.getStartOffset());
+            if (line < expectations.length) {
+                expectations[line] = entry.getValue();
+            }
+        }
+        return expectations;
+    }
+
+    void show(LineCaseResults results) {
+        clear();
+        Editor editor = myTextField.getEditor();
+        if (editor == null) {
+            return;
+        }
+        int lineCount = Math.min(Math.min(results.getLineCount(), editor.getDocument().getLineCount()), MAX_GUTTER_LINES);
+        for (int line = 0; line < lineCount; line++) {
+            RangeHighlighter highlighter = editor.getMarkupModel().addLineHighlighter(line, HighlighterLayer.FIRST, null);
+            highlighter.setGutterIconRenderer(new CaseIconRenderer(line, results));
+            myHighlighters.add(highlighter);
+        }
+    }
+
+    void clear() {
+        for (RangeHighlighter highlighter : myHighlighters) {
+            highlighter.dispose();
+        }
+        myHighlighters.clear();
+    }
+
+    private void cycleExpectation(int line) {
+        Document document = myTextField.getDocument();
+        if (line >= document.getLineCount()) {
+            return;
+        }
+        Expectation current = Expectation.NONE;
+        for (Iterator<Map.Entry<RangeMarker, Expectation>> it = myExpectations.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<RangeMarker, Expectation> entry = it.next();
+            RangeMarker marker = entry.getKey();
+            if (!marker.isValid() || document.getLineNumber(marker.getStartOffset()) == line) {
+                if (marker.isValid()) {
+                    current = entry.getValue();
+                }
+                marker.dispose();
+                it.remove();
+            }
+        }
+        Expectation next = Expectation.values()[(current.ordinal() + 1) % Expectation.values().length];
+        if (next != Expectation.NONE) {
+            int lineStart = document.getLineStartOffset(line);
+            myExpectations.put(document.createRangeMarker(lineStart, lineStart), next);
+        }
+        myOnExpectationsChanged.run();
+    }
+
+    private final class CaseIconRenderer extends GutterIconRenderer {
+
+        private final int myLine;
+        private final Verdict myVerdict;
+        private final Expectation myExpectation;
+        private final boolean myPassed;
+
+        private CaseIconRenderer(int line, LineCaseResults results) {
+            myLine = line;
+            myVerdict = results.getVerdict(line);
+            myExpectation = results.getExpectation(line);
+            myPassed = results.isPassed(line);
+        }
+
+        @Override
+        public @NotNull Icon getIcon() {
+            if (myExpectation != Expectation.NONE) {
+                return myPassed ? AllIcons.RunConfigurations.TestPassed : AllIcons.RunConfigurations.TestFailed;
+            }
+            switch (myVerdict) {
+                case FULL_MATCH:
+                    return AllIcons.General.InspectionsOK;
+                case MATCH:
+                    return AllIcons.General.BalloonInformation;
+                case TIMED_OUT:
+                case STACK_OVERFLOW:
+                    return AllIcons.General.BalloonError;
+                default:
+                    return AllIcons.General.BalloonWarning;
+            }
+        }
+
+        @Override
+        public String getTooltipText() {
+            String verdict;
+            switch (myVerdict) {
+                case FULL_MATCH:
+                    verdict = "Full match";
+                    break;
+                case MATCH:
+                    verdict = "Match";
+                    break;
+                case TIMED_OUT:
+                    verdict = "Timed out";
+                    break;
+                case STACK_OVERFLOW:
+                    verdict = "Stack overflow";
+                    break;
+                default:
+                    verdict = "No match";
+            }
+            switch (myExpectation) {
+                case MATCH:
+                    return verdict + ", expected match";
+                case NO_MATCH:
+                    return verdict + ", expected no match";
+                default:
+                    return verdict + ", click to set the expected result";
+            }
+        }
+
+        @Override
+        public AnAction getClickAction() {
+            return new AnAction() {
+                @Override
+                public void actionPerformed(@NotNull AnActionEvent e) {
+                    cycleExpectation(myLine);
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CaseIconRenderer)) {
+                return false;
+            }
+            CaseIconRenderer renderer = (CaseIconRenderer) o;
+            return myLine == renderer.myLine && myVerdict == renderer.myVerdict
+                    && myExpectation == renderer.myExpectation && myPassed == renderer.myPassed;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(myLine, myVerdict, myExpectation, myPassed);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.ScrollType;
+import com.intellij.openapi.wm.IdeFocusManager;
+import com.intellij.ui.EditorTextField;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.intellij.sdk.regexp.engine.BudgetedCharSequence;
+import org.intellij.sdk.regexp.engine.MatchBudget;
+import org.intellij.sdk.regexp.engine.MatchGroups;
+import org.intellij.sdk.regexp.engine.MatchRanges;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Capture groups of every match in the test strings.
+ * <p>
+ * Only match offsets are stored: the table asks for the rows it paints, and the groups of such a row
+ * are found again by {@link MatchGroups} at the match start on a pooled thread, then kept in a small cache of recent rows.
+ * The row shows a placeholder until then.
+ * Selecting a row selects the match in the test strings editor.
+ */
+class MatchGroupsPanel extends JPanel {
+
+    private static final int CACHED_ROWS = 256;
+    private static final int MAX_CELL_LENGTH = 200;
+    private static final String PENDING = "\u2026";
+    // a single match is re-found per row
+    private static final MatchBudget ROW_BUDGET = MatchBudget.of(10_000_000, 100);
+
+    private final EditorTextField myTestsTextField;
+    private final GroupsTableModel myModel = new GroupsTableModel();
+    private final JBLabel mySummaryLabel = new JBLabel();
+
+    MatchGroupsPanel(EditorTextField testsTextField) {
+        super(new BorderLayout());
+        myTestsTextField = testsTextField;
+
+        mySummaryLabel.setBorder(JBUI.Borders.empty(4));
+        add(mySummaryLabel, BorderLayout.NORTH);
+
+        JBTable table = new JBTable(myModel);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && table.getSelectedRow() >= 0) {
+                navigate(table.getSelectedRow());
+            }
+        });
+        add(new JBScrollPane(table), BorderLayout.CENTER);
+    }
+
+    /**
+     * @param groupNames names of the capturing groups in order, null for unnamed ones, or null if unknown
+     */
+    void setResults(Pattern pattern, CharSequence text, MatchRanges ranges, List<String> groupNames) {
+        myModel.setResults(pattern, text, ranges, groupNames);
+        mySummaryLabel.setText(ranges.size() + (ranges.size() == 1 ? " match, " : " matches, ")
+                + pattern.matcher("").groupCount() + " capturing groups");
+    }
+
+    private void navigate(int row) {
+        Editor editor = myTestsTextField.getEditor();
+        MatchRanges ranges = myModel.myRanges;
+        if (editor == null || row >= ranges.size() || ranges.getEnd(row) > editor.getDocument().getTextLength()) {
+            return;
+        }
+        editor.getCaretModel().moveToOffset(ranges.getStart(row));
+        editor.getSelectionModel().setSelection(ranges.getStart(row), ranges.getEnd(row));
+        editor.getScrollingModel().scrollToCaret(ScrollType.MAKE_VISIBLE);
+        IdeFocusManager.findInstance().requestFocus(myTestsTextField.getFocusTarget(), true);
+    }
+
+    private static final class GroupsTableModel extends AbstractTableModel {
+
+        private static final int FIXED_COLUMNS = 3;
+
+        private Pattern myPattern;
+        private CharSequence myText;
+        private MatchRanges myRanges = MatchRanges.EMPTY;
+        private int myGroupCount;
+        private List<String> myGroupNames;
+        // bumped by every setResults(), groups found for older results are dropped
+        private int myGeneration;
+        private final Set<Integer> myPendingRows = new HashSet<>();
+        private final Map<Integer, String[]> myRows = new LinkedHashMap<>(CACHED_ROWS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+                return size() > CACHED_ROWS;
+            }
+        };
+
+        void setResults(Pattern pattern, CharSequence text, MatchRanges ranges, List<String> groupNames) {
+            int groupCount = pattern.matcher("").groupCount();
+            boolean structureChanged = groupCount != myGroupCount || groupNames == null || !groupNames.equals(myGroupNames);
+            myPattern = pattern;
+            myText = text;
+            myRanges = ranges;
+            myGroupCount = groupCount;
+            myGroupNames = groupNames;
+            myGeneration++;
+            myRows.clear();
+            myPendingRows.clear();
+            if (structureChanged) {
+                fireTableStructureChanged();
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return myRanges.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return FIXED_COLUMNS + myGroupCount;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            switch (column) {
+                case 0:
+                    return "#";
+                case 1:
+                    return "Range";
+                case 2:
+                    return "Match";
+                default:
+                    int group = column - FIXED_COLUMNS + 1;
+                    String name = myGroupNames != null && group <= myGroupNames.size() ? myGroupNames.get(group - 1) : null;
+                    return name == null ? "Group " + group : "Group " + group + " <" + name + ">";
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            switch (column) {
+                case 0:
+                    return row + 1;
+                case 1:
+                    return myRanges.getStart(row) + "-" + myRanges.getEnd(row);
+                default:
+                    String[] groups = myRows.get(row);
+                    if (groups == null) {
+                        requestGroups(row);
+                        return column == FIXED_COLUMNS - 1 ? PENDING : null;
+                    }
+                    return groups[column - FIXED_COLUMNS + 1];
+            }
+        }
+
+        private void requestGroups(int row) {
+            if (!myPendingRows.add(row)) {
+                return;
+            }
+            int generation = myGeneration;
+            Pattern pattern = myPattern;
+            CharSequence text = myText;
+            int start = myRanges.getStart(row);
+            int groupCount = myGroupCount;
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                String[] groups = findGroups(pattern, text, start, groupCount);
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    if (generation == myGeneration) {
+                        myPendingRows.remove(row);
+                        myRows.put(row, groups);
+                        fireTableRowsUpdated(row, row);
+                    }
+                }, ModalityState.any());
+            });
+        }
+
+        /**
+         * @return group 0 and every capturing group of the match at {@code start}, null for groups that did not participate
+         */
+        private static String[] findGroups(Pattern pattern, CharSequence text, int start, int groupCount) {
+            String[] groups = new String[groupCount + 1];
+            try {
+                int[] offsets = MatchGroups.find(pattern, text, start, ROW_BUDGET);
+                if (offsets == null) {
+                    return groups;
+                }
+                for (int i = 0; i <= groupCount; i++) {
+                    int groupStart = offsets[i << 1];
+                    if (groupStart >= 0) {
+                        int groupEnd = Math.min(offsets[(i << 1) + 1], groupStart + MAX_CELL_LENGTH);
+                        groups[i] = text.subSequence(groupStart, groupEnd).toString();
+                    }
+                }
+            } catch (BudgetedCharSequence.BudgetExceededException e) {
+                groups[0] = "timed out";
+            } catch (StackOverflowError e) {
+                groups[0] = "stack overflow";
+            }
+            return groups;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.ui.ColorUtil;
+import com.intellij.ui.JBColor;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.ColorIcon;
+import com.intellij.util.ui.JBUI;
+import org.intellij.sdk.regexp.engine.MatchReport;
+import org.intellij.sdk.regexp.engine.PatternSetMatcher;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Per-pattern results of the pattern set mode: the color of the pattern's matches, match and candidate counts and time.
+ */
+class PatternSetPanel extends JPanel {
+
+    private static final String[] COLUMNS = {"Pattern", "Matches", "Candidates", "Time, ms", "Status"};
+
+    private static final Color[] COLORS = {
+            new JBColor(0xC8E6C9, 0x2E5B34),
+            new JBColor(0xBBDEFB, 0x27476B),
+            new JBColor(0xFFE0B2, 0x6B4A1F),
+            new JBColor(0xE1BEE7, 0x55305C),
+            new JBColor(0xFFF59D, 0x5E5925),
+            new JBColor(0xB2EBF2, 0x1F5A61),
+            new JBColor(0xF8BBD0, 0x6B2C42),
+            new JBColor(0xD7CCC8, 0x4E413C)
+    };
+
+    private final JBLabel mySummaryLabel = new JBLabel();
+    private final PatternsTableModel myModel = new PatternsTableModel();
+
+    PatternSetPanel() {
+        super(new BorderLayout());
+
+        mySummaryLabel.setBorder(JBUI.Borders.empty(4));
+        add(mySummaryLabel, BorderLayout.NORTH);
+
+        JBTable table = new JBTable(myModel);
+        table.setAutoCreateRowSorter(true);
+        table.getColumnModel().getColumn(0).setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                setIcon(new ColorIcon(JBUI.scale(12), getColor(table.convertRowIndexToModel(row))));
+                return this;
+            }
+        });
+        add(new JBScrollPane(table), BorderLayout.CENTER);
+    }
+
+    /**
+     * @return highlighting color of the pattern on line {@code index} of the set
+     */
+    static Color getColor(int index) {
+        Color color = COLORS[index % COLORS.length];
+        // later rounds through the palette are told apart by brightness
+        return index < COLORS.length ? color : ColorUtil.shift(color, index / COLORS.length % 2 == 1 ? 0.85 : 1.15);
+    }
+
+    /**
+     * @param errors       syntax error of each pattern, or null for valid ones
+     * @param entryIndexes index of each valid pattern in {@code result}, -1 for invalid ones
+     */
+    void setResults(List<String> patterns, String[] errors, int[] entryIndexes, PatternSetMatcher.Result result, int characterCount) {
+        myModel.setResults(patterns, errors, entryIndexes, result);
+        int matches = 0;
+        int skipped = 0;
+        for (int index : entryIndexes) {
+            if (index >= 0) {
+                matches += result.getReport(index).getRanges().size();
+                if (result.isPrefiltered(index) && result.getCandidateCount(index) == 0) {
+                    skipped++;
+                }
+            }
+        }
+        mySummaryLabel.setText(String.format("%d patterns, %d matches in %d characters, literal scan %.2f ms, %d patterns skipped without candidates",
+                patterns.size(), matches, characterCount, result.getScanNanos() / 1e6, skipped));
+    }
+
+    private static final class PatternsTableModel extends AbstractTableModel {
+
+        private List<String> myPatterns = List.of();
+        private String[] myErrors;
+        private int[] myEntryIndexes;
+        private PatternSetMatcher.Result myResult;
+
+        void setResults(List<String> patterns, String[] errors, int[] entryIndexes, PatternSetMatcher.Result result) {
+            myPatterns = patterns;
+            myErrors = errors;
+            myEntryIndexes = entryIndexes;
+            myResult = result;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return myPatterns.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 1:
+                case 2:
+                    return Integer.class;
+                case 3:
+                    return Double.class;
+                default:
+                    return String.class;
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            if (column == 0) {
+                return myPatterns.get(row);
+            }
+            int index = myEntryIndexes[row];
+            if (index < 0) {
+                return column == 4 ? myErrors[row] : null;
+            }
+            MatchReport report = myResult.getReport(index);
+            switch (column) {
+                case 1:
+                    return report.getRanges().size();
+                case 2:
+                    return myResult.isPrefiltered(index) ? myResult.getCandidateCount(index) : null;
+                case 3:
+                    return Math.round(myResult.getNanos(index) / 10_000.0) / 100.0;
+                default:
+                    if (report.getStatus() == MatchReport.Status.TIMED_OUT) {
+                        return "Timed out after " + report.getSteps() + " steps";
+                    }
+                    if (report.getStatus() == MatchReport.Status.STACK_OVERFLOW) {
+                        return "Stack overflow after " + report.getSteps() + " steps";
+                    }
+                    return myResult.isPrefiltered(index) ? "" : "Scanned in full";
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.DoubleClickListener;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import org.intellij.sdk.regexp.engine.BulkPatternEvaluator;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Regular expression literals of the project matched against the test strings, one row per occurrence.
+ * Sorting by time or match count brings slow and dead patterns up, double-click or Enter opens the literal.
+ */
+class ProjectPatternsPanel extends JPanel {
+
+    private static final String[] COLUMNS = {"Pattern", "Location", "Matches", "Time, ms", "Status"};
+
+    private final Project myProject;
+    private final List<PythonRegexIndex.Literal> myLiterals;
+    private final BulkPatternEvaluator.Result[] myResults;
+
+    /**
+     * @param results result of each literal, literals with the same pattern and flags may share one
+     */
+    ProjectPatternsPanel(Project project, List<PythonRegexIndex.Literal> literals, BulkPatternEvaluator.Result[] results,
+                         int patternCount, int characterCount) {
+        super(new BorderLayout());
+        myProject = project;
+        myLiterals = literals;
+        myResults = results;
+
+        int dead = 0;
+        int failed = 0;
+        // literals of one pattern share its result, count each pattern once
+        Set<BulkPatternEvaluator.Result> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        Collections.addAll(distinct, results);
+        for (BulkPatternEvaluator.Result result : distinct) {
+            if (result.getStatus() != BulkPatternEvaluator.Result.Status.COMPLETED) {
+                failed++;
+            } else if (result.getMatchCount() == 0) {
+                dead++;
+            }
+        }
+        JBLabel summaryLabel = new JBLabel(literals.size() + " literals, " + patternCount + " distinct patterns matched against "
+                + characterCount + " characters of test text: " + dead + " without matches, " + failed + " invalid, timed out or overflowed the stack");
+        summaryLabel.setBorder(JBUI.Borders.empty(4));
+        add(summaryLabel, BorderLayout.NORTH);
+
+        JBTable table = new JBTable(new LiteralsTableModel());
+        table.setAutoCreateRowSorter(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        new DoubleClickListener() {
+            @Override
+            protected boolean onDoubleClick(@NotNull MouseEvent event) {
+                navigate(table);
+                return true;
+            }
+        }.installOn(table);
+        table.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    navigate(table);
+                    e.consume();
+                }
+            }
+        });
+        add(new JBScrollPane(table), BorderLayout.CENTER);
+    }
+
+    private void navigate(JBTable table) {
+        int row = table.getSelectedRow();
+        if (row < 0) {
+            return;
+        }
+        PythonRegexIndex.Literal literal = myLiterals.get(table.convertRowIndexToModel(row));
+        if (literal.getFile().isValid()) {
+            new OpenFileDescriptor(myProject, literal.getFile(), literal.getOffset()).navigate(true);
+        }
+    }
+
+    private final class LiteralsTableModel extends AbstractTableModel {
+
+        @Override
+        public int getRowCount() {
+            return myLiterals.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 2:
+                    return Integer.class;
+                case 3:
+                    return Double.class;
+                default:
+                    return String.class;
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            PythonRegexIndex.Literal literal = myLiterals.get(row);
+            BulkPatternEvaluator.Result result = myResults[row];
+            switch (column) {
+                case 0:
+                    return literal.getPattern();
+                case 1:
+                    return literal.getFile().getName() + ":" + (literal.getLine() + 1);
+                case 2:
+                    return result.getMatchCount();
+                case 3:
+                    return Math.round(result.getNanos() / 10_000.0) / 100.0;
+                default:
+                    switch (result.getStatus()) {
+                        case INVALID:
+                            return result.getError();
+                        case TIMED_OUT:
+                            return "Timed out";
+                        case STACK_OVERFLOW:
+                            return "Stack overflow";
+                        default:
+                            return result.getMatchCount() == 0 ? "No matches" : "";
+                    }
+            }
+        }
+    }
+}
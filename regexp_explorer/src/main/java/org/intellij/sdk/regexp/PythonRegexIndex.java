@@ -0,0 +1,254 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.SyntaxTraverser;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import com.jetbrains.python.PythonFileType;
+import com.jetbrains.python.psi.*;
+import org.intellij.sdk.regexp.engine.PythonPatterns;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the regular expression literals passed to the {@code re} module functions in Python files.
+ * <p>
+ * The key is the pattern as Python sees it, the value holds an (offset, line, flags) triple per occurrence in the file,
+ * where the flags are the {@link Pattern} equivalent of the flags argument.
+ * Calls are recognized syntactically, {@code re.search(...)} and the like, since resolving is not allowed while indexing.
+ */
+public final class PythonRegexIndex extends FileBasedIndexExtension<String, int[]> {
+
+    public static final ID<String, int[]> NAME = ID.create("org.intellij.sdk.regexp.PythonRegexIndex");
+
+    /**
+     * {@code re} functions by the position of their {@code flags} parameter.
+     */
+    private static final Map<String, Integer> FLAGS_POSITIONS = Map.of(
+            "compile", 1,
+            "search", 2,
+            "match", 2,
+            "fullmatch", 2,
+            "findall", 2,
+            "finditer", 2,
+            "split", 3,
+            "sub", 4,
+            "subn", 4);
+
+    private static final Pattern FLAG_NAME = Pattern.compile("\\b[A-Z]+\\b");
+
+    @Override
+    public @NotNull ID<String, int[]> getName() {
+        return NAME;
+    }
+
+    @Override
+    public @NotNull DataIndexer<String, int[], FileContent> getIndexer() {
+        return inputData -> {
+            PsiFile file = inputData.getPsiFile();
+            CharSequence text = inputData.getContentAsText();
+            Map<String, int[]> result = new HashMap<>();
+            for (PyCallExpression call : SyntaxTraverser.psiTraverser(file).filter(PyCallExpression.class)) {
+                Integer flagsPosition = flagsPosition(call);
+                if (flagsPosition == null) {
+                    continue;
+                }
+                PyExpression pattern = argument(call, 0, "pattern");
+                if (!(pattern instanceof PyStringLiteralExpression)) {
+                    continue;
+                }
+                int offset = pattern.getTextOffset();
+                PyExpression flags = argument(call, flagsPosition, "flags");
+                int[] occurrence = {offset, StringUtil.offsetToLineNumber(text, offset), javaFlags(flags)};
+                result.merge(((PyStringLiteralExpression) pattern).getStringValue(), occurrence, PythonRegexIndex::concat);
+            }
+            return result;
+        };
+    }
+
+    @Override
+    public @NotNull KeyDescriptor<String> getKeyDescriptor() {
+        return EnumeratorStringDescriptor.INSTANCE;
+    }
+
+    @Override
+    public @NotNull DataExternalizer<int[]> getValueExternalizer() {
+        return new DataExternalizer<>() {
+            @Override
+            public void save(@NotNull DataOutput out, int[] value) throws IOException {
+                DataInputOutputUtil.writeINT(out, value.length);
+                for (int item : value) {
+                    DataInputOutputUtil.writeINT(out, item);
+                }
+            }
+
+            @Override
+            public int[] read(@NotNull DataInput in) throws IOException {
+                int[] value = new int[DataInputOutputUtil.readINT(in)];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = DataInputOutputUtil.readINT(in);
+                }
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public FileBasedIndex.@NotNull InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(PythonFileType.INSTANCE);
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    /**
+     * Must be called in a read action in smart mode.
+     *
+     * @return every indexed literal in the project sources, grouped by pattern
+     */
+    static List<Literal> getLiterals(Project project) {
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+        List<String> patterns = new ArrayList<>();
+        index.processAllKeys(NAME, pattern -> {
+            patterns.add(pattern);
+            return true;
+        }, scope, null);
+        List<Literal> literals = new ArrayList<>();
+        for (String pattern : patterns) {
+            index.processValues(NAME, pattern, null, (file, occurrences) -> {
+                for (int i = 0; i + 2 < occurrences.length; i += 3) {
+                    literals.add(new Literal(pattern, occurrences[i + 2], file, occurrences[i], occurrences[i + 1]));
+                }
+                return true;
+            }, scope);
+        }
+        return literals;
+    }
+
+    private static Integer flagsPosition(PyCallExpression call) {
+        PyExpression callee = call.getCallee();
+        if (!(callee instanceof PyReferenceExpression)) {
+            return null;
+        }
+        PyExpression qualifier = ((PyReferenceExpression) callee).getQualifier();
+        if (!(qualifier instanceof PyReferenceExpression) || ((PyReferenceExpression) qualifier).isQualified()
+                || !"re".equals(((PyReferenceExpression) qualifier).getReferencedName())) {
+            return null;
+        }
+        return FLAGS_POSITIONS.get(((PyReferenceExpression) callee).getReferencedName());
+    }
+
+    private static PyExpression argument(PyCallExpression call, int position, String keyword) {
+        PyExpression[] arguments = call.getArguments();
+        if (position < arguments.length && !(arguments[position] instanceof PyKeywordArgument)) {
+            return arguments[position];
+        }
+        PyKeywordArgument argument = call.getArgumentList() == null ? null : call.getArgumentList().getKeywordArgument(keyword);
+        return argument == null ? null : argument.getValueExpression();
+    }
+
+    /**
+     * Reads flag names from an expression like {@code re.I | re.MULTILINE}, the combination is not evaluated.
+     */
+    private static int javaFlags(PyExpression flags) {
+        List<String> names = new ArrayList<>();
+        if (flags != null) {
+            Matcher matcher = FLAG_NAME.matcher(flags.getText());
+            while (matcher.find()) {
+                names.add(matcher.group());
+            }
+        }
+        return PythonPatterns.toJavaFlags(names);
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /**
+     * A single occurrence of a pattern in the project.
+     */
+    static final class Literal {
+
+        private final String pattern;
+        private final int flags;
+        private final VirtualFile file;
+        private final int offset;
+        private final int line;
+
+        private Literal(String pattern, int flags, VirtualFile file, int offset, int line) {
+            this.pattern = pattern;
+            this.flags = flags;
+            this.file = file;
+            this.offset = offset;
+            this.line = line;
+        }
+
+        /**
+         * @return the pattern in Python syntax
+         */
+        String getPattern() {
+            return pattern;
+        }
+
+        /**
+         * @return {@link Pattern} flags equivalent to the flags passed along in Python
+         */
+        int getFlags() {
+            return flags;
+        }
+
+        VirtualFile getFile() {
+            return file;
+        }
+
+        int getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return zero-based line of the literal
+         */
+        int getLine() {
+            return line;
+        }
+    }
+}
@@ -15,8 +15,8 @@
  */
 package org.intellij.sdk.regexp;
 
-import com.intellij.codeInsight.highlighting.HighlightManager;
 import com.intellij.icons.AllIcons;
+import com.intellij.ide.util.treeView.NodeDescriptor;
 import com.intellij.ide.util.treeView.NodeRenderer;
 import com.intellij.internal.psiView.ViewerNodeDescriptor;
 import com.intellij.internal.psiView.ViewerTreeBuilder;
@@ -27,34 +27,74 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CustomShortcutSet;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.application.ModalityState;
-import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.colors.EditorColors;
 import com.intellij.openapi.editor.colors.EditorColorsManager;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.editor.event.DocumentListener;
 import com.intellij.openapi.editor.ex.EditorEx;
-import com.intellij.openapi.editor.markup.RangeHighlighter;
+import com.intellij.openapi.editor.ex.util.EditorUtil;
 import com.intellij.openapi.editor.markup.TextAttributes;
-import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.InputValidator;
+import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.wm.IdeFocusManager;
 import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.SyntaxTraverser;
 import com.intellij.psi.impl.source.resolve.FileContextUtil;
 import com.intellij.ui.*;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.components.JBScrollBar;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import com.intellij.ui.content.ContentManager;
+import com.intellij.ui.content.ContentManagerEvent;
+import com.intellij.ui.content.ContentManagerListener;
+import com.intellij.ui.table.JBTable;
 import com.intellij.ui.treeStructure.Tree;
 import com.intellij.util.Alarm;
 import com.intellij.util.ui.JBUI;
 import com.intellij.util.ui.tree.TreeUtil;
-import org.intellij.lang.regexp.RegExpHighlighter;
+import com.intellij.util.ui.update.UiNotifyConnector;
 import org.intellij.lang.regexp.RegExpLanguage;
 import org.intellij.lang.regexp.intention.CheckRegExpForm;
+import org.intellij.lang.regexp.psi.RegExpGroup;
+import org.intellij.lang.regexp.psi.RegExpPattern;
+import org.intellij.sdk.regexp.engine.AdversarialInputs;
+import org.intellij.sdk.regexp.engine.BulkPatternEvaluator;
+import org.intellij.sdk.regexp.engine.CompiledPatternCache;
+import org.intellij.sdk.regexp.engine.CompiledRegex;
+import org.intellij.sdk.regexp.engine.FileMatchScanner;
+import org.intellij.sdk.regexp.engine.JavaMatchEngine;
+import org.intellij.sdk.regexp.engine.LineCaseEvaluator;
+import org.intellij.sdk.regexp.engine.LineCaseResults;
+import org.intellij.sdk.regexp.engine.LineCaseResults.Expectation;
+import org.intellij.sdk.regexp.engine.MatchBudget;
+import org.intellij.sdk.regexp.engine.MatchCollector;
+import org.intellij.sdk.regexp.engine.MatchEngine;
+import org.intellij.sdk.regexp.engine.MatchRanges;
+import org.intellij.sdk.regexp.engine.MatchReport;
+import org.intellij.sdk.regexp.engine.PatternBenchmark;
+import org.intellij.sdk.regexp.engine.PatternSetMatcher;
+import org.intellij.sdk.regexp.engine.PrefilteredMatchEngine;
+import org.intellij.sdk.regexp.engine.PythonPatterns;
+import org.intellij.sdk.regexp.engine.RegexNode;
+import org.intellij.sdk.regexp.engine.StressTest;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
@@ -63,23 +103,44 @@ import javax.swing.plaf.basic.BasicBorders;
 import javax.swing.plaf.basic.BasicSplitPaneDivider;
 import javax.swing.plaf.basic.BasicSplitPaneUI;
 import javax.swing.plaf.metal.MetalSplitPaneUI;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableColumn;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeCellRenderer;
 import java.awt.*;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 public class RegExpToolWindow {
 
+    private static final String STEP_BUDGET_KEY = "regexp.explorer.match.step.budget";
+    private static final String TIME_BUDGET_KEY = "regexp.explorer.match.time.budget.ms";
+    private static final String STRESS_TIME_BUDGET_KEY = "regexp.explorer.stress.time.budget.ms";
+    private static final int STRESS_MAX_LENGTH = 20_000;
+    private static final int MAX_DEBOUNCE_MILLIS = 300;
+    private static final int MAX_WAIT_MILLIS = 1000;
+
     private JPanel myToolWindowContent;
 
     private TitledSeparator usersRegExpLabel;
+    private JPanel testOptionsPanel;
     private JCheckBox multilineCheckBox;
+    private JCheckBox lineCasesCheckBox;
+    private JCheckBox patternSetCheckBox;
+    private JButton matchFileButton;
+    private JButton benchmarkButton;
+    private JButton stressButton;
+    private JButton groupsButton;
+    private JButton projectPatternsButton;
     private LanguageTextField myRegExpTextField;
     private EditorTextField myTestsTextField;
     private final JBLabel myRegExpIcon;
@@ -94,14 +155,48 @@ public class RegExpToolWindow {
     private TitledSeparator quickReferenceLabel;
     private JSplitPane verticalSplit;
     private JSplitPane horizontalSplit;
+    private JPanel statsPanel;
 
     private final Project myProject;
+    private final ToolWindow myToolWindow;
     private final Disposable myDisposable;
 
     private final Alarm myAlarm;
-    private final List<RangeHighlighter> myTestsHighlights;
+    private final Alarm myExplanationAlarm;
+    private volatile int myMatchGeneration;
+    private final AdaptiveDebounce myMatchDebounce = new AdaptiveDebounce(MAX_DEBOUNCE_MILLIS, MAX_WAIT_MILLIS);
+    private final AdaptiveDebounce myExplanationDebounce = new AdaptiveDebounce(MAX_DEBOUNCE_MILLIS, MAX_WAIT_MILLIS);
+    private final UpdateStats myStats = new UpdateStats(ApplicationManager.getApplication().getService(CompiledPatternCache.class));
+    private final ViewportMatchHighlighter myTestsHighlighter;
+    private final LineCaseGutter myLineCaseGutter;
+
+    // Matches of the current pattern, mapped through test strings edits made since they were collected
+    private MatchRanges myRanges = MatchRanges.EMPTY;
+    private boolean myFirstHitEnd;
+    private boolean myIncrementalValid;
+    private int myDirtyStart = -1;
+    private int myDirtyEnd;
+
+    // created when the explanation tree is first shown
+    private ViewerTreeBuilder myPsiTreeBuilder;
+    private PsiElement myExplainedRoot;
+    private final BacktrackingRiskView myRiskView;
+
+    // Tree of the explained pattern, used to pick the matching engine, and names of its capturing groups
+    private RegexNode myRegexTree;
+    private List<String> myGroupNames;
+    private String myRegexTreeText;
 
-    private final ViewerTreeBuilder myPsiTreeBuilder;
+    private MatchGroupsPanel myGroupsPanel;
+    private Content myGroupsContent;
+
+    // Trees of the pattern set lines, reused while a line does not change
+    private Map<String, RegexNode> myPatternSetTrees = Map.of();
+    private PatternSetPanel myPatternSetPanel;
+    private Content myPatternSetContent;
+
+    // When the test strings were first shown, until the first matches are
+    private long myFirstUpdateStart;
 
     private void createUIComponents() {
         myPsiTree = new Tree(new DefaultTreeModel(new DefaultMutableTreeNode()));
@@ -125,7 +220,7 @@ public class RegExpToolWindow {
 
     public RegExpToolWindow(ToolWindow toolWindow, Project project) {
         this.myProject = project;
-        this.myTestsHighlights = new ArrayList<>();
+        this.myToolWindow = toolWindow;
 
         this.myRegExpIcon = new JBLabel();
         this.myTestsIcon = new JBLabel();
@@ -133,9 +228,9 @@ public class RegExpToolWindow {
         myDisposable = Disposer.newDisposable();
 
         initializeTree(myPsiTree);
+        myRiskView = new BacktrackingRiskView(myProject, myRegExpTextField, myPsiTree);
 
-        myPsiTreeBuilder = new ViewerTreeBuilder(myProject, myPsiTree);
-        Disposer.register(myDisposable, myPsiTreeBuilder);
+        whenFirstShown(myPsiTree, UpdateStats.Startup.EXPLANATION, this::createPsiTreeBuilder);
 
         usersRegExpLabel.setLabelFor(myRegExpTextField);
         explanationLabel.setLabelFor(myPsiTree);
@@ -150,22 +245,36 @@ public class RegExpToolWindow {
         myTestsTextField.setOneLineMode(false);
         myTestsTextField.setAutoscrolls(true);
         addIcon(myTestsTextField, myTestsIcon);
+        myTestsHighlighter = new ViewportMatchHighlighter(myProject, myTestsTextField, myStats);
+        myLineCaseGutter = new LineCaseGutter(myTestsTextField, this::scheduleAllFieldsUpdate);
 
         registerFocusShortcut(myRegExpTextField, "shift TAB", myTestsTextField);
         registerFocusShortcut(myTestsTextField, "shift TAB", myRegExpTextField);
 
         myToolWindowContent.setBackground(toolWindow.getComponent().getBackground());
-        initializeHintTable();
+        whenFirstShown(hintTable, UpdateStats.Startup.QUICK_REFERENCE, this::initializeHintTable);
+        new UpdateStatsStrip(statsPanel, myStats, myDisposable);
 
         myAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, myDisposable);
-        DocumentListener documentListener = new DocumentListener() {
+        myExplanationAlarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, myDisposable);
+        myRegExpTextField.addDocumentListener(new DocumentListener() {
             @Override
             public void documentChanged(@NotNull DocumentEvent event) {
-                scheduleAllFieldsUpdate();
+                updateValidity();
+                // the ranges are of the old pattern, test edits before the next update must not splice into them
+                myIncrementalValid = false;
+                myDirtyStart = -1;
+                // matching waits for the new tree, it decides which engine runs
+                scheduleExplanationUpdate();
             }
-        };
-        myRegExpTextField.addDocumentListener(documentListener);
-        myTestsTextField.addDocumentListener(documentListener);
+        });
+        myTestsTextField.addDocumentListener(new DocumentListener() {
+            @Override
+            public void documentChanged(@NotNull DocumentEvent event) {
+                myTestsHighlighter.documentChanged();
+                scheduleTestsUpdate(event);
+            }
+        });
 
         verticalSplit.setDividerSize(4);
         verticalSplit.setUI(new BasicSplitPaneUI() {
@@ -203,9 +312,67 @@ public class RegExpToolWindow {
         });
         horizontalSplit.setBorder(null);
 
-        multilineCheckBox.addChangeListener(e -> scheduleAllFieldsUpdate());
+        // a ChangeListener would also fire on rollover and press
+        multilineCheckBox.addItemListener(e -> scheduleAllFieldsUpdate());
+        lineCasesCheckBox.addItemListener(e -> scheduleAllFieldsUpdate());
+        patternSetCheckBox.addItemListener(e -> {
+            updateValidity();
+            updatePatternSetTab();
+            scheduleAllFieldsUpdate();
+        });
+        matchFileButton.addActionListener(e -> matchFile());
+        benchmarkButton.addActionListener(e -> benchmark());
+        stressButton.addActionListener(e -> stressTest());
+        groupsButton.addActionListener(e -> showGroups());
+        projectPatternsButton.addActionListener(e -> evaluateProjectPatterns());
 
-        scheduleAllFieldsUpdate();
+        UiNotifyConnector.doWhenFirstShown(myTestsTextField, () -> {
+            myFirstUpdateStart = System.nanoTime();
+            scheduleExplanationUpdate();
+        });
+    }
+
+    /**
+     * Records the cost of creating the tool window, which happens before any of its parts is shown.
+     */
+    void windowCreated(long nanos) {
+        myStats.recordStartup(UpdateStats.Startup.WINDOW, nanos);
+    }
+
+    /**
+     * Runs {@code initializer} when the component is first shown, rather than when the tool window is created,
+     * and records how long it took.
+     */
+    private void whenFirstShown(JComponent component, UpdateStats.Startup part, Runnable initializer) {
+        UiNotifyConnector.doWhenFirstShown(component, () -> {
+            long start = System.nanoTime();
+            initializer.run();
+            myStats.recordStartup(part, System.nanoTime() - start);
+        });
+    }
+
+    private void firstUpdateShown() {
+        if (myFirstUpdateStart != 0) {
+            myStats.recordStartup(UpdateStats.Startup.FIRST_UPDATE, System.nanoTime() - myFirstUpdateStart);
+            myFirstUpdateStart = 0;
+        }
+    }
+
+    private void createPsiTreeBuilder() {
+        myPsiTreeBuilder = new ViewerTreeBuilder(myProject, myPsiTree) {
+            @Override
+            public boolean isAutoExpandNode(NodeDescriptor nodeDescriptor) {
+                // only new nodes are expanded, existing ones keep the state chosen by the user
+                return true;
+            }
+        };
+        Disposer.register(myDisposable, myPsiTreeBuilder);
+        if (myExplainedRoot != null) {
+            //noinspection UnstableApiUsage
+            ((ViewerTreeStructure) myPsiTreeBuilder.getTreeStructure()).setRootPsiElement(myExplainedRoot);
+            //noinspection UnstableApiUsage
+            myPsiTreeBuilder.queueUpdate();
+        }
     }
 
     private void registerFocusShortcut(JComponent source, String shortcut, EditorTextField target) {
@@ -251,46 +418,225 @@ public class RegExpToolWindow {
     }
 
     private void initializeHintTable() {
-        HintCreator creator = new HintCreator();
-        hintComboBox.setModel(new DefaultComboBoxModel(creator.getTypes().toArray()));
+        List<HintCatalog.Category> categories = ApplicationManager.getApplication().getService(HintCatalog.class).getCategories();
+        hintComboBox.setModel(new DefaultComboBoxModel(categories.toArray()));
+        HintTableModel model = new HintTableModel(categories.get(0));
+        hintComboBox.addActionListener(e -> model.setCategory((HintCatalog.Category) hintComboBox.getSelectedItem()));
 
-        hintTable.setLayout(new GridLayout(creator.getRegexpHint(0).length, creator.getRegexpHint(0)[0].length, 5, 5));
-        for (int i = 0; i < creator.getRegexpHint(0).length; i++) {
-            for (int j = 0; j < creator.getRegexpHint(0)[0].length; j++) {
-                hintTable.add(creator.getRegexpHint(0)[i][j]);
+        Font syntaxFont = EditorUtil.getEditorFont();
+        JBTable table = new JBTable(model);
+        table.setFocusable(false);
+        table.setRowSelectionAllowed(false);
+        table.setShowGrid(false);
+        table.setTableHeader(null);
+        // one renderer paints every cell, descriptions cut by a narrow window are in the tooltip
+        table.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+                                                           int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                setFont(column == 0 ? syntaxFont : table.getFont());
+                setToolTipText(column == 0 ? null : (String) value);
+                return this;
+            }
+        });
+        FontMetrics metrics = table.getFontMetrics(syntaxFont);
+        int syntaxWidth = 0;
+        for (HintCatalog.Category category : categories) {
+            for (HintCatalog.Hint hint : category.getHints()) {
+                syntaxWidth = Math.max(syntaxWidth, metrics.stringWidth(hint.getSyntax()));
             }
         }
-        hintTable.updateUI();
+        TableColumn syntaxColumn = table.getColumnModel().getColumn(0);
+        syntaxColumn.setPreferredWidth(syntaxWidth + JBUI.scale(12));
+        syntaxColumn.setMaxWidth(syntaxWidth + JBUI.scale(12));
 
-        hintComboBox.addActionListener(e -> {
-            hintTable.removeAll();
-            hintTable.setLayout(new GridLayout(creator.getRegexpHint(hintComboBox.getSelectedIndex()).length,
-                    creator.getRegexpHint(hintComboBox.getSelectedIndex())[0].length, 5, 5));
-            for (int i = 0; i < creator.getRegexpHint(hintComboBox.getSelectedIndex()).length; i++) {
-                for (int j = 0; j < creator.getRegexpHint(hintComboBox.getSelectedIndex())[0].length; j++) {
-                    hintTable.add(creator.getRegexpHint(hintComboBox.getSelectedIndex())[i][j]);
-                }
-            }
-            hintTable.updateUI();
-        });
+        hintTable.setLayout(new BorderLayout());
+        hintTable.add(ScrollPaneFactory.createScrollPane(table, true), BorderLayout.CENTER);
+        hintTable.revalidate();
     }
 
     private void scheduleAllFieldsUpdate() {
+        myIncrementalValid = false;
+        myDirtyStart = -1;
+        scheduleUpdate(null);
+    }
+
+    /**
+     * Maps the known matches through the edit and re-matches only the edited region,
+     * falls back to a full update while there are no complete matches for the current pattern.
+     */
+    private void scheduleTestsUpdate(DocumentEvent event) {
+        if (!myIncrementalValid) {
+            scheduleAllFieldsUpdate();
+            return;
+        }
+        int offset = event.getOffset();
+        int oldEnd = offset + event.getOldLength();
+        int newEnd = offset + event.getNewLength();
+        // ranges the edit drops have to be found again, so re-matching starts no later than they do
+        int dirtyStart = myRanges.getDirtyStart(offset, event.getOldLength());
+        myRanges = myRanges.applyEdit(offset, event.getOldLength(), event.getNewLength());
+        if (myDirtyStart < 0) {
+            myDirtyStart = dirtyStart;
+            myDirtyEnd = newEnd;
+        } else {
+            int dirtyEnd = myDirtyEnd <= offset ? myDirtyEnd : myDirtyEnd >= oldEnd ? myDirtyEnd + newEnd - oldEnd : newEnd;
+            myDirtyStart = Math.min(myDirtyStart, dirtyStart);
+            myDirtyEnd = Math.max(dirtyEnd, newEnd);
+        }
+        scheduleUpdate(new TestsEdit(myRanges, myFirstHitEnd, myDirtyStart, myDirtyEnd));
+    }
+
+    /**
+     * Matches on a pooled thread after an adaptive debounce delay, a newer request cancels the pending one.
+     * Results are applied only if neither document changed since the request.
+     */
+    private void scheduleUpdate(TestsEdit edit) {
+        long requested = myStats.start();
+        int generation = ++myMatchGeneration;
+        Document regExpDocument = myRegExpTextField.getDocument();
+        Document testsDocument = myTestsTextField.getDocument();
+        long regExpStamp = regExpDocument.getModificationStamp();
+        long testsStamp = testsDocument.getModificationStamp();
+        BooleanSupplier stale = () -> generation != myMatchGeneration
+                || regExpDocument.getModificationStamp() != regExpStamp || testsDocument.getModificationStamp() != testsStamp;
+        String regExp = myRegExpTextField.getText();
+        RegexNode tree = regExp.equals(myRegexTreeText) ? myRegexTree : null;
+        List<String> groupNames = regExp.equals(myRegexTreeText) ? myGroupNames : null;
+        int flags = multilineCheckBox.isSelected() ? Pattern.MULTILINE : 0;
+        CharSequence testText = myTestsTextField.getDocument().getImmutableCharSequence();
+        if (patternSetCheckBox.isSelected()) {
+            schedulePatternSetUpdate(requested, flags, testText, stale);
+            return;
+        }
+        Expectation[] expectations = lineCasesCheckBox.isSelected() ? myLineCaseGutter.getExpectations() : null;
+
         myAlarm.cancelAllRequests();
-        myAlarm.addRequest(() -> ApplicationManager.getApplication().invokeLater(this::allFieldsUpdate, ModalityState.any(), __ -> myAlarm.isDisposed()), 0);
+        myAlarm.addRequest(() -> {
+            myMatchDebounce.started();
+            long computeStart = System.nanoTime();
+            MatchUpdate update = computeMatches(regExp, tree, flags, testText, edit, expectations, myStats, stale);
+            if (update == null) {
+                return;
+            }
+            long computeNanos = System.nanoTime() - computeStart;
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (!stale.getAsBoolean()) {
+                    long applyStart = System.nanoTime();
+                    allFieldsUpdate(update);
+                    updateGroups(update, testText, groupNames);
+                    myMatchDebounce.record(computeNanos + System.nanoTime() - applyStart);
+                    myStats.finish(UpdateStats.Stage.END_TO_END, requested);
+                }
+            }, ModalityState.any(), __ -> myAlarm.isDisposed());
+        }, myMatchDebounce.nextDelayMillis());
+    }
+
+    /**
+     * Cheap part of a pattern change, done right away: the cached compile tells whether the pattern is valid.
+     * In the pattern set mode every line is checked.
+     */
+    private void updateValidity() {
+        CompiledPatternCache cache = ApplicationManager.getApplication().getService(CompiledPatternCache.class);
+        int flags = multilineCheckBox.isSelected() ? Pattern.MULTILINE : 0;
+        String error = null;
+        if (patternSetCheckBox.isSelected()) {
+            for (String pattern : getPatternSetLines()) {
+                CompiledPatternCache.CompiledPattern compiled = cache.compile(pattern, flags);
+                if (compiled.getPattern() == null) {
+                    error = pattern + ": " + compiled.getError().getDescription();
+                    break;
+                }
+            }
+        } else {
+            CompiledPatternCache.CompiledPattern compiled = cache.compile(myRegExpTextField.getText(), flags);
+            error = compiled.getPattern() == null ? compiled.getError().getDescription() : null;
+        }
+        if (error != null) {
+            myRegExpIcon.setIcon(AllIcons.General.BalloonError);
+            myRegExpIcon.setToolTipText(error);
+        } else if (myRegExpIcon.getIcon() == AllIcons.General.BalloonError) {
+            myRegExpIcon.setIcon(null);
+            myRegExpIcon.setToolTipText(null);
+        }
     }
 
-    private void allFieldsUpdate() {
-        HighlightManager highlightManager = HighlightManager.getInstance(myProject);
+    /**
+     * Compiles the pattern and collects match ranges with the engine {@link CompiledRegex} picks, runs on a pooled thread.
+     *
+     * @param tree         tree of the pattern, or null if it is not known yet and the pattern has to be parsed
+     * @param edit         test strings edit to re-match incrementally, or null to match the whole text
+     * @param expectations per-line expectations to evaluate every line as a test case, or null
+     * @return null if the run was cancelled by a newer update
+     */
+    private static MatchUpdate computeMatches(String regExp, RegexNode tree, int flags, CharSequence testText, TestsEdit edit,
+                                              Expectation[] expectations, UpdateStats stats, BooleanSupplier cancelled) {
+        long start = stats.start();
+        CompiledPatternCache.CompiledPattern compiled =
+                ApplicationManager.getApplication().getService(CompiledPatternCache.class).compile(regExp, flags);
+        stats.finish(UpdateStats.Stage.COMPILE, start);
+        Pattern pattern = compiled.getPattern();
+        if (pattern == null) {
+            return new MatchUpdate(compiled.getError(), null, null, null, null, null);
+        }
+        CompiledRegex regex = CompiledRegex.of(pattern, tree);
+        MatchEngine matchEngine = regex.getEngine();
+        MatchBudget budget = MatchBudget.of(Registry.intValue(STEP_BUDGET_KEY), Registry.intValue(TIME_BUDGET_KEY));
+        start = stats.start();
+        MatchReport report = edit == null
+                ? MatchCollector.collect(matchEngine, testText, budget, cancelled)
+                : MatchCollector.collectIncremental(matchEngine, regex.getResyncWindow(), testText, edit.previous,
+                edit.previousFirstHitEnd, edit.dirtyStart, edit.dirtyEnd, budget, cancelled);
+        if (report.getStatus() == MatchReport.Status.CANCELLED) {
+            return null;
+        }
+        stats.finish(UpdateStats.Stage.MATCH, start);
+        stats.count(UpdateStats.Counter.MATCHES, report.getRanges().size());
+        LineCaseResults cases = null;
+        if (expectations != null) {
+            start = stats.start();
+            cases = LineCaseEvaluator.evaluate(pattern, testText, expectations, budget, cancelled);
+            if (cases == null) {
+                return null;
+            }
+            stats.finish(UpdateStats.Stage.LINE_CASES, start);
+        }
+        String engineName = regex.getEngineName();
+        String prefilter = null;
+        PrefilteredMatchEngine prefiltered = regex.getPrefilter();
+        if (prefiltered != null) {
+            // an incremental run only scans around the edit, its share of the text says nothing about the prefilter
+            engineName += edit == null && testText.length() > 0
+                    ? ", prefilter scanned " + formatShare(prefiltered.getMatchedCharacters(), testText.length()) + " of input"
+                    : ", prefiltered";
+            prefilter = "Matched only around " + StringUtil.join(prefiltered.getLiterals(),
+                    literal -> "\"" + StringUtil.escapeStringCharacters(literal) + "\"", ", ");
+        }
+        return new MatchUpdate(null, pattern, report, cases, engineName, prefilter);
+    }
 
-        removeTestsHighlights(highlightManager);
+    private static String formatShare(long part, long whole) {
+        long percent = part * 100 / whole;
+        return percent == 0 && part > 0 ? "<1%" : percent + "%";
+    }
 
-        updateMatchesAndTree(highlightManager);
+    private void allFieldsUpdate(MatchUpdate update) {
+        firstUpdateShown();
+        myDirtyStart = -1;
+        myIncrementalValid = update.error == null && update.report.getStatus() == MatchReport.Status.COMPLETED;
+        if (update.report != null) {
+            myRanges = update.report.getRanges();
+            myFirstHitEnd = update.report.isFirstHitEnd();
+        }
+        myLineCaseGutter.clear();
+        testLabel.setText("Test Strings");
+
+        updateMatches(update);
     }
 
-    private void updateMatchesAndTree(HighlightManager highlightManager) {
-        Editor testsEditor = myTestsTextField.getEditor();
-        if (testsEditor == null) {
+    private void updateMatches(MatchUpdate update) {
+        if (myTestsTextField.getEditor() == null) {
             return;
         }
 
@@ -299,58 +645,501 @@ public class RegExpToolWindow {
         myTestsIcon.setIcon(null);
         myTestsIcon.setToolTipText(null);
 
-        Pattern pattern;
-        try {
-            pattern = Pattern.compile(myRegExpTextField.getText(), multilineCheckBox.isSelected() ? Pattern.MULTILINE : 0);
-        } catch (PatternSyntaxException ex) {
+        if (update.error != null) {
+            myTestsHighlighter.clear();
             myRegExpIcon.setIcon(AllIcons.General.BalloonError);
-            myRegExpIcon.setToolTipText(ex.getDescription());
+            myRegExpIcon.setToolTipText(update.error.getDescription());
             return;
         }
 
-        Matcher matcher = pattern.matcher(myTestsTextField.getText());
-        if (matcher.find()) {
+        MatchReport report = update.report;
+        MatchRanges ranges = report.getRanges();
+        if (!ranges.isEmpty()) {
             myRegExpIcon.setIcon(AllIcons.General.InspectionsOK);
             myTestsIcon.setIcon(AllIcons.General.InspectionsOK);
         }
-        if (matcher.hitEnd()) {
+        if (report.isFirstHitEnd()) {
             myTestsIcon.setIcon(AllIcons.General.BalloonWarning);
             myTestsIcon.setToolTipText("Incomplete");
         }
-        matcher.reset();
-        while (matcher.find()) {
-            int start = matcher.start();
-            int end = matcher.end();
-            highlightManager.addRangeHighlight(testsEditor, start, end, RegExpHighlighter.MATCHED_GROUPS, true, myTestsHighlights);
+        if (report.getStatus() == MatchReport.Status.TIMED_OUT) {
+            myTestsIcon.setIcon(AllIcons.General.BalloonWarning);
+            myTestsIcon.setToolTipText("Timed out after " + report.getSteps() + " steps");
+        }
+        if (report.getStatus() == MatchReport.Status.STACK_OVERFLOW) {
+            myTestsIcon.setIcon(AllIcons.General.BalloonWarning);
+            myTestsIcon.setToolTipText("Stack overflow after " + report.getSteps() + " steps");
+        }
+        myTestsHighlighter.setRanges(ranges);
+        testLabel.setText("Test Strings: " + (ranges.size() == 1 ? "1 match" : ranges.size() + " matches") + " (" + update.engineName + ")");
+        testLabel.setToolTipText(update.prefilter);
+
+        if (update.cases != null) {
+            showLineCases(update.cases);
+        }
+    }
+
+    private void showLineCases(LineCaseResults cases) {
+        myLineCaseGutter.show(cases);
+        int checked = cases.getCheckedCount();
+        int passed = cases.getPassedCount();
+        String summary = checked > 0
+                ? passed + "/" + checked + " passed"
+                : cases.getMatchedCount() + "/" + cases.getLineCount() + " lines match";
+        myTestsIcon.setIcon(passed == checked ? AllIcons.General.InspectionsOK : AllIcons.General.BalloonError);
+        myTestsIcon.setToolTipText(summary);
+        testLabel.setText("Test Strings: " + summary);
+    }
+
+    private List<String> getPatternSetLines() {
+        List<String> patterns = new ArrayList<>();
+        for (String line : StringUtil.splitByLines(myRegExpTextField.getText())) {
+            if (!line.isBlank()) {
+                patterns.add(line);
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Pattern set counterpart of {@link #scheduleUpdate}: every non-blank line of the regular expression is a pattern.
+     * Their trees, which the literal prefilter is built from, are parsed here on the EDT, unchanged lines reuse theirs.
+     */
+    private void schedulePatternSetUpdate(long requested, int flags, CharSequence testText, BooleanSupplier stale) {
+        List<String> patterns = getPatternSetLines();
+        Map<String, RegexNode> trees = new HashMap<>();
+        for (String pattern : patterns) {
+            trees.put(pattern, myPatternSetTrees.containsKey(pattern) ? myPatternSetTrees.get(pattern) : parsePatternTree(pattern));
+        }
+        myPatternSetTrees = trees;
+
+        myAlarm.cancelAllRequests();
+        myAlarm.addRequest(() -> {
+            myMatchDebounce.started();
+            long computeStart = System.nanoTime();
+            PatternSetUpdate update = computePatternSet(patterns, trees, flags, testText, myStats, stale);
+            if (update == null) {
+                return;
+            }
+            long computeNanos = System.nanoTime() - computeStart;
+            ApplicationManager.getApplication().invokeLater(() -> {
+                if (!stale.getAsBoolean()) {
+                    long applyStart = System.nanoTime();
+                    applyPatternSet(update, testText.length());
+                    myMatchDebounce.record(computeNanos + System.nanoTime() - applyStart);
+                    myStats.finish(UpdateStats.Stage.END_TO_END, requested);
+                }
+            }, ModalityState.any(), __ -> myAlarm.isDisposed());
+        }, myMatchDebounce.nextDelayMillis());
+    }
+
+    private RegexNode parsePatternTree(String pattern) {
+        PsiFile file = PsiFileFactory.getInstance(myProject).createFileFromText("pattern.regexp", RegExpLanguage.INSTANCE, pattern);
+        PsiElement root = file.getFirstChild();
+        return root instanceof RegExpPattern ? RegExpTreeConverter.convert((RegExpPattern) root) : null;
+    }
+
+    /**
+     * Compiles every pattern of the set and matches the valid ones in one pass, runs on a pooled thread.
+     *
+     * @return null if the run was cancelled by a newer update
+     */
+    private static PatternSetUpdate computePatternSet(List<String> patterns, Map<String, RegexNode> trees, int flags, CharSequence testText,
+                                                      UpdateStats stats, BooleanSupplier cancelled) {
+        CompiledPatternCache cache = ApplicationManager.getApplication().getService(CompiledPatternCache.class);
+        String[] errors = new String[patterns.size()];
+        int[] entryIndexes = new int[patterns.size()];
+        List<PatternSetMatcher.Entry> entries = new ArrayList<>();
+        long start = stats.start();
+        for (int i = 0; i < patterns.size(); i++) {
+            CompiledPatternCache.CompiledPattern compiled = cache.compile(patterns.get(i), flags);
+            if (compiled.getPattern() == null) {
+                errors[i] = compiled.getError().getDescription();
+                entryIndexes[i] = -1;
+            } else {
+                entryIndexes[i] = entries.size();
+                entries.add(PatternSetMatcher.Entry.of(compiled.getPattern(), trees.get(patterns.get(i))));
+            }
+        }
+        stats.finish(UpdateStats.Stage.COMPILE, start);
+
+        MatchBudget budget = MatchBudget.of(Registry.intValue(STEP_BUDGET_KEY), Registry.intValue(TIME_BUDGET_KEY));
+        start = stats.start();
+        PatternSetMatcher.Result result = PatternSetMatcher.match(entries, testText, budget, cancelled);
+        if (result == null) {
+            return null;
+        }
+        stats.finish(UpdateStats.Stage.MATCH, start);
+        for (int i = 0; i < entries.size(); i++) {
+            stats.count(UpdateStats.Counter.MATCHES, result.getReport(i).getRanges().size());
+        }
+        return new PatternSetUpdate(patterns, errors, entryIndexes, result);
+    }
+
+    private void applyPatternSet(PatternSetUpdate update, int characterCount) {
+        firstUpdateShown();
+        myDirtyStart = -1;
+        myIncrementalValid = false;
+        myRanges = MatchRanges.EMPTY;
+        myLineCaseGutter.clear();
+
+        List<MatchRanges> layers = new ArrayList<>();
+        List<Color> colors = new ArrayList<>();
+        int matches = 0;
+        boolean timedOut = false;
+        for (int i = 0; i < update.patterns.size(); i++) {
+            int index = update.entryIndexes[i];
+            if (index >= 0) {
+                MatchReport report = update.result.getReport(index);
+                layers.add(report.getRanges());
+                colors.add(PatternSetPanel.getColor(i));
+                matches += report.getRanges().size();
+                timedOut |= report.getStatus() == MatchReport.Status.TIMED_OUT || report.getStatus() == MatchReport.Status.STACK_OVERFLOW;
+            }
+        }
+        myTestsHighlighter.setLayers(layers, colors);
+        myTestsIcon.setIcon(timedOut ? AllIcons.General.BalloonWarning : matches > 0 ? AllIcons.General.InspectionsOK : null);
+        myTestsIcon.setToolTipText(timedOut ? "Some patterns timed out or overflowed the stack" : null);
+        testLabel.setToolTipText(null);
+        testLabel.setText("Test Strings: " + update.patterns.size() + " patterns, " + (matches == 1 ? "1 match" : matches + " matches"));
+        if (myPatternSetPanel != null) {
+            myPatternSetPanel.setResults(update.patterns, update.errors, update.entryIndexes, update.result, characterCount);
+        }
+    }
+
+    /**
+     * Keeps the per-pattern results tab open while the pattern set mode is on.
+     */
+    private void updatePatternSetTab() {
+        if (patternSetCheckBox.isSelected() && myPatternSetContent == null) {
+            myPatternSetPanel = new PatternSetPanel();
+            myPatternSetContent = showTab(myPatternSetPanel, "Pattern Set");
+            whenClosed(myPatternSetContent, () -> {
+                myPatternSetContent = null;
+                myPatternSetPanel = null;
+            });
+        } else if (!patternSetCheckBox.isSelected() && myPatternSetContent != null) {
+            myToolWindow.getContentManager().removeContent(myPatternSetContent, true);
         }
+    }
 
-        EditorEx regexEditor = (EditorEx) myRegExpTextField.getEditor();
-        if (regexEditor == null) {
+    /**
+     * Streams the matches of the current pattern in a file chosen by the user on a background task,
+     * then shows them in a separate tab of the tool window.
+     */
+    private void matchFile() {
+        CompiledPatternCache.CompiledPattern compiled = ApplicationManager.getApplication().getService(CompiledPatternCache.class)
+                .compile(myRegExpTextField.getText(), multilineCheckBox.isSelected() ? Pattern.MULTILINE : 0);
+        if (compiled.getPattern() == null) {
+            Messages.showErrorDialog(myProject, compiled.getError().getDescription(), "Invalid Regular Expression");
             return;
         }
-        FileType regexFileType = RegExpLanguage.INSTANCE.getAssociatedFileType();
-        String ext = "regex";
-        final PsiFile psiFile = PsiFileFactory.getInstance(myProject).createFileFromText("Dummy." + ext, regexFileType, myRegExpTextField.getText());
-        //noinspection UnstableApiUsage
-        ((ViewerTreeStructure) myPsiTreeBuilder.getTreeStructure()).setRootPsiElement((PsiElement) Arrays.stream(psiFile.getChildren()).toArray()[0]);
+        VirtualFile file = FileChooser.chooseFile(FileChooserDescriptorFactory.createSingleLocalFileDescriptor(), myProject, null);
+        if (file == null) {
+            return;
+        }
+        new Task.Backgroundable(myProject, "Matching " + file.getName(), true) {
+            private FileMatchScanner.Result myResult;
+            private IOException myError;
 
-        //noinspection UnstableApiUsage
-        myPsiTreeBuilder.queueUpdate().doWhenDone(() -> {
-            for (int i = 0; i < myPsiTree.getRowCount(); i++) {
-                myPsiTree.expandRow(i);
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setIndeterminate(false);
+                long size = Math.max(file.getLength(), 1);
+                try {
+                    myResult = FileMatchScanner.scan(file.toNioPath(), compiled.getPattern(), indicator::isCanceled,
+                            scanned -> indicator.setFraction((double) scanned / size));
+                } catch (IOException e) {
+                    myError = e;
+                } catch (CancellationException ignored) {
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (myError != null) {
+                    Messages.showErrorDialog(myProject, myError.getMessage(), "Cannot Match File");
+                } else if (myResult != null) {
+                    showFileMatches(file, myResult);
+                }
+            }
+        }.queue();
+    }
+
+    private void showFileMatches(VirtualFile file, FileMatchScanner.Result result) {
+        showTab(new FileMatchPanel(myProject, file, result), file.getName());
+    }
+
+    /**
+     * Opens the capture groups tab, it then follows every update until closed.
+     */
+    private void showGroups() {
+        if (myGroupsContent == null) {
+            myGroupsPanel = new MatchGroupsPanel(myTestsTextField);
+            myGroupsContent = showTab(myGroupsPanel, "Groups");
+            whenClosed(myGroupsContent, () -> {
+                myGroupsContent = null;
+                myGroupsPanel = null;
+            });
+            scheduleAllFieldsUpdate();
+        } else {
+            myToolWindow.getContentManager().setSelectedContent(myGroupsContent);
+        }
+    }
+
+    private void updateGroups(MatchUpdate update, CharSequence testText, List<String> groupNames) {
+        if (myGroupsPanel != null && update.pattern != null) {
+            myGroupsPanel.setResults(update.pattern, testText, update.report.getRanges(), groupNames);
+        }
+    }
+
+    private void whenClosed(Content content, Runnable onClose) {
+        ContentManager contentManager = myToolWindow.getContentManager();
+        contentManager.addContentManagerListener(new ContentManagerListener() {
+            @Override
+            public void contentRemoved(@NotNull ContentManagerEvent event) {
+                if (event.getContent() == content) {
+                    onClose.run();
+                    contentManager.removeContentManagerListener(this);
+                }
             }
         });
+    }
+
+    private Content showTab(JComponent component, String title) {
+        ContentManager contentManager = myToolWindow.getContentManager();
+        Content content = ContentFactory.SERVICE.getInstance().createContent(component, title, false);
+        content.setCloseable(true);
+        contentManager.addContent(content);
+        contentManager.setSelectedContent(content);
+        return content;
+    }
+
+    /**
+     * Benchmarks {@link java.util.regex} on the test strings in a background task, for the current pattern
+     * and optionally a rewritten variant of it, then shows both results side by side in a separate tab.
+     */
+    private void benchmark() {
+        CompiledPatternCache cache = ApplicationManager.getApplication().getService(CompiledPatternCache.class);
+        int flags = multilineCheckBox.isSelected() ? Pattern.MULTILINE : 0;
+        String regExp = myRegExpTextField.getText();
+        CompiledPatternCache.CompiledPattern compiled = cache.compile(regExp, flags);
+        if (compiled.getPattern() == null) {
+            Messages.showErrorDialog(myProject, compiled.getError().getDescription(), "Invalid Regular Expression");
+            return;
+        }
+        String variant = Messages.showInputDialog(myProject, "Variant to compare with, leave empty to measure only the current pattern:",
+                "Benchmark", null, "", new InputValidator() {
+                    @Override
+                    public boolean checkInput(String inputString) {
+                        return inputString.isEmpty() || cache.compile(inputString, flags).getPattern() != null;
+                    }
+
+                    @Override
+                    public boolean canClose(String inputString) {
+                        return checkInput(inputString);
+                    }
+                });
+        if (variant == null) {
+            return;
+        }
+        Pattern variantPattern = variant.isEmpty() ? null : cache.compile(variant, flags).getPattern();
+        CharSequence testText = myTestsTextField.getDocument().getImmutableCharSequence();
+        MatchBudget budget = MatchBudget.of(Registry.intValue(STEP_BUDGET_KEY), Registry.intValue(TIME_BUDGET_KEY));
+
+        new Task.Backgroundable(myProject, "Benchmarking regular expression", true) {
+            private PatternBenchmark.Result myResult;
+            private PatternBenchmark.Result myVariantResult;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                try {
+                    indicator.setText("Current pattern");
+                    myResult = PatternBenchmark.run(new JavaMatchEngine(compiled.getPattern()), testText, budget, indicator::isCanceled);
+                    if (variantPattern != null) {
+                        indicator.setText("Variant");
+                        myVariantResult = PatternBenchmark.run(new JavaMatchEngine(variantPattern), testText, budget, indicator::isCanceled);
+                    }
+                } catch (CancellationException e) {
+                    myResult = null;
+                }
+            }
+
+            @Override
+            public void onSuccess() {
+                if (myResult != null) {
+                    showTab(new BenchmarkPanel(regExp, myResult, variant, myVariantResult, testText.length()), "Benchmark");
+                }
+            }
+        }.queue();
+    }
+
+    /**
+     * Generates adversarial inputs from the tree of the explained pattern and times {@link java.util.regex} on them
+     * in a background task, with a hard budget per run, then shows the growth curves in a separate tab.
+     */
+    private void stressTest() {
+        int flags = multilineCheckBox.isSelected() ? Pattern.MULTILINE : 0;
+        String regExp = myRegExpTextField.getText();
+        CompiledPatternCache.CompiledPattern compiled =
+                ApplicationManager.getApplication().getService(CompiledPatternCache.class).compile(regExp, flags);
+        if (compiled.getPattern() == null) {
+            Messages.showErrorDialog(myProject, compiled.getError().getDescription(), "Invalid Regular Expression");
+            return;
+        }
+        RegexNode tree = regExp.equals(myRegexTreeText) ? myRegexTree : parsePatternTree(regExp);
+        if (tree == null) {
+            Messages.showErrorDialog(myProject, "The pattern could not be parsed", "Stress Test");
+            return;
+        }
+        List<AdversarialInputs.Attack> attacks = AdversarialInputs.generate(tree);
+        MatchBudget budget = MatchBudget.of(Registry.intValue(STEP_BUDGET_KEY), Registry.intValue(STRESS_TIME_BUDGET_KEY));
+
+        new Task.Backgroundable(myProject, "Stress testing regular expression", true) {
+            private List<StressTest.Curve> myCurves;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                List<StressTest.Curve> curves = new ArrayList<>(attacks.size());
+                try {
+                    for (int i = 0; i < attacks.size(); i++) {
+                        AdversarialInputs.Attack attack = attacks.get(i);
+                        indicator.setText("Pumping " + StringUtil.first(regExp.substring(attack.getStart(), attack.getEnd()), 40, true));
+                        indicator.setFraction((double) i / attacks.size());
+                        curves.add(StressTest.run(compiled.getPattern(), attack, STRESS_MAX_LENGTH, budget, indicator::isCanceled));
+                    }
+                } catch (CancellationException e) {
+                    return;
+                }
+                myCurves = curves;
+            }
+
+            @Override
+            public void onSuccess() {
+                if (myCurves != null) {
+                    showTab(new StressTestPanel(regExp, myCurves), "Stress Test");
+                }
+            }
+        }.queue();
+    }
+
+    /**
+     * Collects the regular expression literals of the Python project from {@link PythonRegexIndex},
+     * matches every distinct one against the test strings in parallel and lists the outcome in a separate tab.
+     */
+    private void evaluateProjectPatterns() {
+        CompiledPatternCache cache = ApplicationManager.getApplication().getService(CompiledPatternCache.class);
+        CharSequence testText = myTestsTextField.getDocument().getImmutableCharSequence();
+        MatchBudget budget = MatchBudget.of(Registry.intValue(STEP_BUDGET_KEY), Registry.intValue(TIME_BUDGET_KEY));
+
+        new Task.Backgroundable(myProject, "Matching project regular expressions", true) {
+            private List<PythonRegexIndex.Literal> myLiterals;
+            private BulkPatternEvaluator.Result[] myResults;
+            private int myPatternCount;
+
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                indicator.setText("Collecting regular expression literals");
+                List<PythonRegexIndex.Literal> literals = DumbService.getInstance(myProject)
+                        .runReadActionInSmartMode(() -> PythonRegexIndex.getLiterals(myProject));
+                Map<Pair<String, Integer>, Integer> patterns = new LinkedHashMap<>();
+                int[] patternIndexes = new int[literals.size()];
+                for (int i = 0; i < literals.size(); i++) {
+                    PythonRegexIndex.Literal literal = literals.get(i);
+                    Pair<String, Integer> pattern = Pair.create(PythonPatterns.toJavaRegex(literal.getPattern()), literal.getFlags());
+                    Integer index = patterns.get(pattern);
+                    if (index == null) {
+                        index = patterns.size();
+                        patterns.put(pattern, index);
+                    }
+                    patternIndexes[i] = index;
+                }
+                String[] regexes = new String[patterns.size()];
+                int[] flags = new int[patterns.size()];
+                patterns.forEach((pattern, index) -> {
+                    regexes[index] = pattern.first;
+                    flags[index] = pattern.second;
+                });
+
+                indicator.setText("Matching " + regexes.length + " patterns");
+                BulkPatternEvaluator.Result[] results = BulkPatternEvaluator.evaluate(regexes, flags, testText, cache, budget, indicator::isCanceled);
+                if (results == null) {
+                    return;
+                }
+                myResults = new BulkPatternEvaluator.Result[literals.size()];
+                for (int i = 0; i < literals.size(); i++) {
+                    myResults[i] = results[patternIndexes[i]];
+                }
+                myLiterals = literals;
+                myPatternCount = regexes.length;
+            }
+
+            @Override
+            public void onSuccess() {
+                if (myResults == null) {
+                    return;
+                }
+                if (myLiterals.isEmpty()) {
+                    Messages.showInfoMessage(myProject, "No regular expression literals passed to the re module were found.", "Project Patterns");
+                } else {
+                    showTab(new ProjectPatternsPanel(myProject, myLiterals, myResults, myPatternCount, testText.length()), "Project Patterns");
+                }
+            }
+        }.queue();
+    }
 
+    private void scheduleExplanationUpdate() {
+        myExplanationAlarm.cancelAllRequests();
+        myExplanationAlarm.addRequest(() -> {
+            myExplanationDebounce.started();
+            long start = System.nanoTime();
+            updateExplanation();
+            myExplanationDebounce.record(System.nanoTime() - start);
+        }, myExplanationDebounce.nextDelayMillis());
     }
 
-    private void removeTestsHighlights(HighlightManager highlightManager) {
-        Editor testsEditor = myTestsTextField.getEditor();
-        if (testsEditor != null) {
-            for (RangeHighlighter rangeHighlighter : myTestsHighlights) {
-                highlightManager.removeSegmentHighlighter(testsEditor, rangeHighlighter);
+    /**
+     * Shows the PSI of the regular expression field itself: committing its document reparses only the changed part,
+     * and the tree builder merges the result into the existing nodes, so their expansion state is kept.
+     * The same PSI is checked for backtracking risks, statically, without running the pattern,
+     * and then matched against the test strings.
+     */
+    private void updateExplanation() {
+        Document document = myRegExpTextField.getDocument();
+        PsiDocumentManager psiDocumentManager = PsiDocumentManager.getInstance(myProject);
+        long start = myStats.start();
+        psiDocumentManager.commitDocument(document);
+        PsiFile psiFile = psiDocumentManager.getPsiFile(document);
+        myStats.finish(UpdateStats.Stage.PSI_COMMIT, start);
+        PsiElement root = psiFile == null ? null : psiFile.getFirstChild();
+        myRegexTree = root instanceof RegExpPattern ? RegExpTreeConverter.convert((RegExpPattern) root) : null;
+        myGroupNames = root == null ? List.of() : SyntaxTraverser.psiTraverser(root).filter(RegExpGroup.class)
+                .filter(RegExpGroup::isCapturing).map(RegExpGroup::getGroupName).toList();
+        myRegexTreeText = document.getText();
+        scheduleAllFieldsUpdate();
+        if (root == null) {
+            return;
+        }
+        if (myStats.isEnabled()) {
+            myStats.count(UpdateStats.Counter.PSI_NODES, SyntaxTraverser.psiTraverser(root).traverse().size());
+        }
+        if (myPsiTreeBuilder == null) {
+            myExplainedRoot = root;
+        } else {
+            start = myStats.start();
+            if (root != myExplainedRoot) {
+                myExplainedRoot = root;
+                //noinspection UnstableApiUsage
+                ((ViewerTreeStructure) myPsiTreeBuilder.getTreeStructure()).setRootPsiElement(root);
             }
-            myTestsHighlights.clear();
+            //noinspection UnstableApiUsage
+            myPsiTreeBuilder.queueUpdate();
+            myStats.finish(UpdateStats.Stage.TREE, start);
         }
+
+        start = myStats.start();
+        myRiskView.update(myRegexTree);
+        myStats.finish(UpdateStats.Stage.RISK_ANALYSIS, start);
     }
 
     private void addIcon(EditorTextField textField, JBLabel icon) {
@@ -369,4 +1158,54 @@ public class RegExpToolWindow {
     public JPanel getContent() {
         return myToolWindowContent;
     }
+
+    private static final class MatchUpdate {
+
+        private final PatternSyntaxException error;
+        private final Pattern pattern;
+        private final MatchReport report;
+        private final LineCaseResults cases;
+        private final String engineName;
+        private final String prefilter;
+
+        private MatchUpdate(PatternSyntaxException error, Pattern pattern, MatchReport report, LineCaseResults cases, String engineName,
+                            String prefilter) {
+            this.error = error;
+            this.pattern = pattern;
+            this.report = report;
+            this.cases = cases;
+            this.engineName = engineName;
+            this.prefilter = prefilter;
+        }
+    }
+
+    private static final class PatternSetUpdate {
+
+        private final List<String> patterns;
+        private final String[] errors;
+        private final int[] entryIndexes;
+        private final PatternSetMatcher.Result result;
+
+        private PatternSetUpdate(List<String> patterns, String[] errors, int[] entryIndexes, PatternSetMatcher.Result result) {
+            this.patterns = patterns;
+            this.errors = errors;
+            this.entryIndexes = entryIndexes;
+            this.result = result;
+        }
+    }
+
+    private static final class TestsEdit {
+
+        private final MatchRanges previous;
+        private final boolean previousFirstHitEnd;
+        private final int dirtyStart;
+        private final int dirtyEnd;
+
+        private TestsEdit(MatchRanges previous, boolean previousFirstHitEnd, int dirtyStart, int dirtyEnd) {
+            this.previous = previous;
+            this.previousFirstHitEnd = previousFirstHitEnd;
+            this.dirtyStart = dirtyStart;
+            this.dirtyEnd = dirtyEnd;
+        }
+    }
 }
@@ -15,26 +15,52 @@
  */
 package org.intellij.sdk.regexp;
 
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupManager;
 import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.components.JBLabel;
 import com.intellij.ui.content.Content;
 import com.intellij.ui.content.ContentFactory;
+import com.intellij.util.ui.update.UiNotifyConnector;
 import org.jetbrains.annotations.NotNull;
 
+import javax.swing.*;
+import java.awt.*;
+
 public class RegExpToolWindowFactory implements ToolWindowFactory {
 
+    private static final Logger LOG = Logger.getInstance(RegExpToolWindowFactory.class);
+
     /**
      * Create the tool window content.
+     * <p>
+     * Only a placeholder is added here: the tool window itself is created once the placeholder is first shown,
+     * after the project has opened, so a tool window restored at startup costs nothing until then.
      *
      * @param project    current project
      * @param toolWindow current tool window
      */
     public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
-        RegExpToolWindow myToolWindow = new RegExpToolWindow(toolWindow, project);
+        JPanel placeholder = new JPanel(new BorderLayout());
+        placeholder.add(new JBLabel("Loading...", SwingConstants.CENTER), BorderLayout.CENTER);
         ContentFactory contentFactory = ContentFactory.SERVICE.getInstance();
-        Content content = contentFactory.createContent(myToolWindow.getContent(), "", false);
+        Content content = contentFactory.createContent(placeholder, "", false);
         toolWindow.getContentManager().addContent(content);
+
+        UiNotifyConnector.doWhenFirstShown(placeholder, () -> StartupManager.getInstance(project).runAfterOpened(
+                () -> ApplicationManager.getApplication().invokeLater(() -> {
+                    long start = System.nanoTime();
+                    RegExpToolWindow myToolWindow = new RegExpToolWindow(toolWindow, project);
+                    placeholder.removeAll();
+                    placeholder.add(myToolWindow.getContent(), BorderLayout.CENTER);
+                    placeholder.revalidate();
+                    long nanos = System.nanoTime() - start;
+                    myToolWindow.windowCreated(nanos);
+                    LOG.info(String.format("RegExp explorer tool window created in %.1f ms", nanos / 1e6));
+                }, project.getDisposed())));
     }
 
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiElement;
+import org.intellij.lang.regexp.psi.*;
+import org.intellij.sdk.regexp.engine.CharSet;
+import org.intellij.sdk.regexp.engine.RegexNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts the RegExp PSI tree shown in the explanation view into a {@link RegexNode} tree for analysis and matching.
+ */
+final class RegExpTreeConverter {
+
+    private int myGroupCount;
+
+    private RegExpTreeConverter() {
+    }
+
+    static RegexNode convert(RegExpPattern pattern) {
+        return new RegExpTreeConverter().convertPattern(pattern);
+    }
+
+    private RegexNode convertPattern(RegExpPattern pattern) {
+        RegExpBranch[] branches = pattern.getBranches();
+        List<RegexNode> alternatives = new ArrayList<>(branches.length);
+        for (RegExpBranch branch : branches) {
+            alternatives.add(convertBranch(branch));
+        }
+        TextRange range = pattern.getTextRange();
+        return alternatives.size() == 1 ? alternatives.get(0) : RegexNode.alternation(alternatives, range.getStartOffset(), range.getEndOffset());
+    }
+
+    private RegexNode convertBranch(RegExpBranch branch) {
+        List<RegexNode> items = new ArrayList<>();
+        for (RegExpAtom atom : branch.getAtoms()) {
+            items.add(convertAtom(atom));
+        }
+        TextRange range = branch.getTextRange();
+        return items.size() == 1 ? items.get(0) : RegexNode.sequence(items, range.getStartOffset(), range.getEndOffset());
+    }
+
+    private RegexNode convertAtom(PsiElement atom) {
+        TextRange range = atom.getTextRange();
+        int start = range.getStartOffset();
+        int end = range.getEndOffset();
+        if (atom instanceof RegExpChar || atom instanceof RegExpSimpleClass || atom instanceof RegExpClass) {
+            CharSet charSet = toCharSet(atom);
+            return charSet == null ? RegexNode.leaf(RegexNode.Kind.UNSUPPORTED, start, end) : RegexNode.character(charSet, start, end);
+        }
+        if (atom instanceof RegExpClosure) {
+            RegExpClosure closure = (RegExpClosure) atom;
+            return convertClosure(convertAtom(closure.getAtom()), closure.getQuantifier().getText(), start, end);
+        }
+        if (atom instanceof RegExpGroup) {
+            return convertGroup((RegExpGroup) atom, start, end);
+        }
+        if (atom instanceof RegExpBoundary) {
+            return RegexNode.leaf(boundaryKind(atom.getText()), start, end);
+        }
+        if (atom instanceof RegExpBackref) {
+            return RegexNode.backReference(((RegExpBackref) atom).getIndex(), start, end);
+        }
+        if (atom instanceof RegExpNamedGroupRef) {
+            return RegexNode.backReference(0, start, end);
+        }
+        return RegexNode.leaf(RegexNode.Kind.UNSUPPORTED, start, end);
+    }
+
+    private RegexNode convertGroup(RegExpGroup group, int start, int end) {
+        String text = group.getText();
+        RegexNode.Kind kind;
+        int index = 0;
+        if (group.isCapturing()) {
+            kind = RegexNode.Kind.GROUP;
+            index = ++myGroupCount;
+        } else if (text.startsWith("(?:")) {
+            kind = RegexNode.Kind.GROUP;
+        } else if (text.startsWith("(?>")) {
+            kind = RegexNode.Kind.ATOMIC_GROUP;
+        } else if (text.startsWith("(?=")) {
+            kind = RegexNode.Kind.LOOKAHEAD;
+        } else if (text.startsWith("(?!")) {
+            kind = RegexNode.Kind.NEGATIVE_LOOKAHEAD;
+        } else if (text.startsWith("(?<=")) {
+            kind = RegexNode.Kind.LOOKBEHIND;
+        } else if (text.startsWith("(?<!")) {
+            kind = RegexNode.Kind.NEGATIVE_LOOKBEHIND;
+        } else {
+            // inline options like (?i:...) change how the body matches
+            return RegexNode.leaf(RegexNode.Kind.UNSUPPORTED, start, end);
+        }
+        RegExpPattern pattern = group.getPattern();
+        RegexNode body = pattern == null ? RegexNode.sequence(List.of(), start, start) : convertPattern(pattern);
+        return RegexNode.group(kind, body, index, start, end);
+    }
+
+    /**
+     * Parses quantifier text: {@code *}, {@code +}, {@code ?} or {@code {n}}, {@code {n,}}, {@code {n,m}},
+     * optionally followed by {@code ?} (lazy) or {@code +} (possessive).
+     */
+    private static RegexNode convertClosure(RegexNode body, String quantifier, int start, int end) {
+        boolean lazy = quantifier.length() > 1 && quantifier.endsWith("?");
+        boolean possessive = quantifier.length() > 1 && quantifier.endsWith("+");
+        String base = lazy || possessive ? quantifier.substring(0, quantifier.length() - 1) : quantifier;
+        int min;
+        int max;
+        switch (base) {
+            case "*":
+                min = 0;
+                max = RegexNode.UNBOUNDED;
+                break;
+            case "+":
+                min = 1;
+                max = RegexNode.UNBOUNDED;
+                break;
+            case "?":
+                min = 0;
+                max = 1;
+                break;
+            default: {
+                String bounds = base.startsWith("{") && base.endsWith("}") ? base.substring(1, base.length() - 1) : "";
+                int comma = bounds.indexOf(',');
+                try {
+                    if (comma < 0) {
+                        min = max = Integer.parseInt(bounds.trim());
+                    } else {
+                        String from = bounds.substring(0, comma).trim();
+                        String to = bounds.substring(comma + 1).trim();
+                        min = from.isEmpty() ? 0 : Integer.parseInt(from);
+                        max = to.isEmpty() ? RegexNode.UNBOUNDED : Integer.parseInt(to);
+                    }
+                } catch (NumberFormatException e) {
+                    return RegexNode.leaf(RegexNode.Kind.UNSUPPORTED, start, end);
+                }
+            }
+        }
+        return RegexNode.repeat(body, min, max, lazy, possessive, start, end);
+    }
+
+    private static RegexNode.Kind boundaryKind(String text) {
+        switch (text) {
+            case "^":
+                return RegexNode.Kind.LINE_START;
+            case "$":
+                return RegexNode.Kind.LINE_END;
+            case "\\A":
+                return RegexNode.Kind.INPUT_START;
+            case "\\z":
+                return RegexNode.Kind.INPUT_END;
+            case "\\b":
+                return RegexNode.Kind.WORD_BOUNDARY;
+            case "\\B":
+                return RegexNode.Kind.NON_WORD_BOUNDARY;
+            default:
+                return RegexNode.Kind.UNSUPPORTED;
+        }
+    }
+
+    /**
+     * @return the exact set of characters matched by a class element, or null if it is not modelled
+     */
+    private static CharSet toCharSet(PsiElement element) {
+        if (element instanceof RegExpChar) {
+            int value = ((RegExpChar) element).getValue();
+            return value < 0 ? null : CharSet.of(value);
+        }
+        if (element instanceof RegExpCharRange) {
+            RegExpChar from = ((RegExpCharRange) element).getFrom();
+            RegExpChar to = ((RegExpCharRange) element).getTo();
+            if (to == null || from.getValue() < 0 || to.getValue() < 0) {
+                return null;
+            }
+            return CharSet.range(from.getValue(), to.getValue());
+        }
+        if (element instanceof RegExpSimpleClass) {
+            switch (((RegExpSimpleClass) element).getKind()) {
+                case ANY:
+                    return CharSet.DOT;
+                case DIGIT:
+                    return CharSet.DIGIT;
+                case NON_DIGIT:
+                    return CharSet.DIGIT.complement();
+                case WORD:
+                    return CharSet.WORD;
+                case NON_WORD:
+                    return CharSet.WORD.complement();
+                case SPACE:
+                    return CharSet.SPACE;
+                case NON_SPACE:
+                    return CharSet.SPACE.complement();
+                default:
+                    return null;
+            }
+        }
+        if (element instanceof RegExpClass) {
+            CharSet result = CharSet.EMPTY;
+            for (RegExpClassElement classElement : ((RegExpClass) element).getElements()) {
+                CharSet elementSet = toCharSet(classElement);
+                if (elementSet == null) {
+                    return null;
+                }
+                result = result.union(elementSet);
+            }
+            return ((RegExpClass) element).isNegated() ? result.complement() : result;
+        }
+        // properties, POSIX brackets and intersections
+        return null;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of the most recent values recorded for one measurement, kept in a fixed-size ring.
+ * Thread-safe.
+ */
+final class RollingHistogram {
+
+    private final long[] samples;
+    private int next;
+    private int sampleCount;
+    private long totalCount;
+
+    RollingHistogram(int capacity) {
+        samples = new long[capacity];
+    }
+
+    synchronized void record(long value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        sampleCount = Math.min(sampleCount + 1, samples.length);
+        totalCount++;
+    }
+
+    synchronized void clear() {
+        next = 0;
+        sampleCount = 0;
+        totalCount = 0;
+    }
+
+    /**
+     * @return number of values recorded since the last {@link #clear()}, including those that left the window
+     */
+    synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    synchronized Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, totalCount);
+    }
+
+    /**
+     * Values in the window at one moment, sorted.
+     */
+    static final class Snapshot {
+
+        private final long[] sorted;
+        private final long totalCount;
+
+        private Snapshot(long[] sorted, long totalCount) {
+            this.sorted = sorted;
+            this.totalCount = totalCount;
+        }
+
+        long getTotalCount() {
+            return totalCount;
+        }
+
+        int getSampleCount() {
+            return sorted.length;
+        }
+
+        /**
+         * @param fraction from 0 to 1, 0.5 for the median
+         * @return nearest-rank percentile of the window, 0 if it is empty
+         */
+        long getPercentile(double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(fraction * sorted.length);
+            return sorted[Math.max(rank - 1, 0)];
+        }
+
+        long getMax() {
+            return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+        }
+
+        double getMean() {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (long value : sorted) {
+                sum += value;
+            }
+            return sum / sorted.length;
+        }
+    }
+}
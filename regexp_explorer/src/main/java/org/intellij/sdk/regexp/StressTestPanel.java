@@ -0,0 +1,220 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.ui.JBColor;
+import com.intellij.ui.JBSplitter;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+import org.intellij.sdk.regexp.engine.StressTest;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Growth curves of a pattern on adversarial inputs: time over input length for every attack, on log-log axes,
+ * where the slope of a polynomial curve is its degree and an exponential one bends upwards.
+ * The table below lists the input family and growth class of every curve, the worst class is the verdict.
+ */
+class StressTestPanel extends JPanel {
+
+    private static final Color[] CURVE_COLORS = {
+            JBColor.BLUE, JBColor.ORANGE, JBColor.GREEN, JBColor.MAGENTA, JBColor.CYAN, JBColor.RED, JBColor.PINK, JBColor.GRAY
+    };
+    private static final String[] COLUMNS = {"", "Shape", "Pattern part", "Input", "Growth", "Longest input", "Time"};
+
+    StressTestPanel(String pattern, List<StressTest.Curve> curves) {
+        super(new BorderLayout());
+
+        StressTest.Growth worst = StressTest.Growth.LINEAR;
+        for (StressTest.Curve curve : curves) {
+            if (curve.getGrowth().compareTo(worst) > 0) {
+                worst = curve.getGrowth();
+            }
+        }
+        String summary = curves.isEmpty()
+                ? "Nothing to pump: the pattern has no quantifier a backtracking matcher can split"
+                : "Worst case of java.util.regex on " + curves.size() + (curves.size() == 1 ? " input family: " : " input families: ")
+                + worst.getDisplayName() + (worst == StressTest.Growth.LINEAR ? "" : ", do not run it on untrusted input");
+        JBLabel summaryLabel = new JBLabel(summary);
+        summaryLabel.setBorder(JBUI.Borders.empty(4));
+        add(summaryLabel, BorderLayout.NORTH);
+
+        DefaultTableModel model = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (int i = 0; i < curves.size(); i++) {
+            StressTest.Curve curve = curves.get(i);
+            StressTest.Point last = curve.getPoints().get(curve.getPoints().size() - 1);
+            model.addRow(new Object[]{
+                    i + 1,
+                    curve.getAttack().getDescription(),
+                    pattern.substring(curve.getAttack().getStart(), curve.getAttack().getEnd()),
+                    describeInput(curve),
+                    formatGrowth(curve),
+                    last.getLength() + " chars" + formatStatus(last.getStatus()),
+                    formatNanos(last.getNanos())
+            });
+        }
+        JBTable table = new JBTable(model);
+        table.getColumnModel().getColumn(0).setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+                                                           int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                setForeground(CURVE_COLORS[row % CURVE_COLORS.length]);
+                return this;
+            }
+        });
+
+        JBSplitter splitter = new JBSplitter(true, 0.6f);
+        splitter.setFirstComponent(new GrowthChart(curves));
+        splitter.setSecondComponent(new JBScrollPane(table));
+        add(splitter, BorderLayout.CENTER);
+    }
+
+    private static String describeInput(StressTest.Curve curve) {
+        String prefix = StringUtil.escapeStringCharacters(curve.getAttack().getPrefix());
+        String pump = StringUtil.escapeStringCharacters(curve.getAttack().getPump());
+        String suffix = StringUtil.escapeStringCharacters(curve.getAttack().getSuffix());
+        return "\"" + prefix + "\" + \"" + pump + "\" * n + \"" + suffix + "\"";
+    }
+
+    private static String formatGrowth(StressTest.Curve curve) {
+        switch (curve.getGrowth()) {
+            case POLYNOMIAL:
+                return String.format("polynomial, n^%.1f", curve.getDegree());
+            case EXPONENTIAL:
+                return "exponential";
+            default:
+                return "linear";
+        }
+    }
+
+    private static String formatStatus(StressTest.Point.Status status) {
+        switch (status) {
+            case TIMED_OUT:
+                return ", timed out";
+            case STACK_OVERFLOW:
+                return ", stack overflow";
+            default:
+                return "";
+        }
+    }
+
+    private static String formatNanos(long nanos) {
+        return nanos >= 1_000_000 ? String.format("%,.1f ms", nanos / 1e6) : String.format("%,.1f µs", nanos / 1e3);
+    }
+
+    /**
+     * Time over input length of every curve, both axes logarithmic.
+     */
+    private static final class GrowthChart extends JComponent {
+
+        private final List<StressTest.Curve> myCurves;
+        private final double myMinLength;
+        private final double myMaxLength;
+        private final double myMinNanos;
+        private final double myMaxNanos;
+
+        GrowthChart(List<StressTest.Curve> curves) {
+            myCurves = curves;
+            double minLength = Double.MAX_VALUE;
+            double maxLength = 1;
+            double minNanos = Double.MAX_VALUE;
+            double maxNanos = 1;
+            for (StressTest.Curve curve : curves) {
+                for (StressTest.Point point : curve.getPoints()) {
+                    minLength = Math.min(minLength, point.getLength());
+                    maxLength = Math.max(maxLength, point.getLength());
+                    minNanos = Math.min(minNanos, Math.max(point.getNanos(), 1));
+                    maxNanos = Math.max(maxNanos, point.getNanos());
+                }
+            }
+            myMinLength = Math.log10(Math.min(minLength, maxLength));
+            myMaxLength = Math.log10(maxLength);
+            myMinNanos = Math.log10(Math.min(minNanos, maxNanos));
+            myMaxNanos = Math.log10(maxNanos);
+            setPreferredSize(JBUI.size(300, 200));
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2.setColor(UIUtil.getPanelBackground());
+                g2.fillRect(0, 0, getWidth(), getHeight());
+                g2.setFont(UIUtil.getLabelFont(UIUtil.FontSize.SMALL));
+                FontMetrics metrics = g2.getFontMetrics();
+                int left = JBUI.scale(8) + metrics.stringWidth("100 ms");
+                int right = getWidth() - JBUI.scale(12);
+                int top = JBUI.scale(8);
+                int bottom = getHeight() - JBUI.scale(8) - metrics.getHeight();
+                if (right <= left || bottom <= top) {
+                    return;
+                }
+
+                g2.setColor(JBColor.GRAY);
+                g2.drawLine(left, top, left, bottom);
+                g2.drawLine(left, bottom, right, bottom);
+                g2.drawString(formatNanos((long) Math.pow(10, myMaxNanos)), JBUI.scale(2), top + metrics.getAscent());
+                g2.drawString(formatNanos((long) Math.pow(10, myMinNanos)), JBUI.scale(2), bottom);
+                g2.drawString((long) Math.pow(10, myMinLength) + " chars", left, bottom + metrics.getAscent());
+                String maxLabel = Math.round(Math.pow(10, myMaxLength)) + " chars, both axes log scale";
+                g2.drawString(maxLabel, right - metrics.stringWidth(maxLabel), bottom + metrics.getAscent());
+
+                g2.setStroke(new BasicStroke(JBUI.scale(2)));
+                for (int i = 0; i < myCurves.size(); i++) {
+                    g2.setColor(CURVE_COLORS[i % CURVE_COLORS.length]);
+                    int previousX = -1;
+                    int previousY = -1;
+                    for (StressTest.Point point : myCurves.get(i).getPoints()) {
+                        int x = scale(Math.log10(point.getLength()), myMinLength, myMaxLength, left, right);
+                        int y = scale(Math.log10(Math.max(point.getNanos(), 1)), myMinNanos, myMaxNanos, bottom, top);
+                        if (previousX >= 0) {
+                            g2.drawLine(previousX, previousY, x, y);
+                        }
+                        if (point.getStatus() != StressTest.Point.Status.COMPLETED) {
+                            // the run was stopped, its real cost is off the chart
+                            int size = JBUI.scale(4);
+                            g2.drawLine(x - size, y - size, x + size, y + size);
+                            g2.drawLine(x - size, y + size, x + size, y - size);
+                        }
+                        previousX = x;
+                        previousY = y;
+                    }
+                }
+            } finally {
+                g2.dispose();
+            }
+        }
+
+        private static int scale(double value, double min, double max, int from, int to) {
+            return max <= min ? from : (int) Math.round(from + (value - min) / (max - min) * (to - from));
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import org.intellij.sdk.regexp.engine.CompiledPatternCache;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency of every stage of a tool window update and the amount of work it did, in rolling histograms.
+ * <p>
+ * Recording is off until {@link #setEnabled(boolean)}: then {@link #start()} does not even read the clock,
+ * and {@link #finish}, {@link #count} return right away.
+ * The one-off cost of creating each part of the tool window is always kept, see {@link #recordStartup}.
+ * Hits and misses of the shared {@link CompiledPatternCache} are counted from creation or the last {@link #clear()}.
+ */
+final class UpdateStats {
+
+    private static final int WINDOW = 512;
+
+    enum Stage {
+        COMPILE("Pattern compile"),
+        MATCH("Find loop"),
+        LINE_CASES("Line cases"),
+        HIGHLIGHT("Highlighters"),
+        PSI_COMMIT("PSI reparse"),
+        TREE("Tree update"),
+        RISK_ANALYSIS("Backtracking analysis"),
+        END_TO_END("Edit to highlight");
+
+        private final String displayName;
+
+        Stage(String displayName) {
+            this.displayName = displayName;
+        }
+
+        String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    enum Counter {
+        MATCHES("Matches"),
+        HIGHLIGHTERS_ADDED("Highlighters added"),
+        HIGHLIGHTERS_REMOVED("Highlighters removed"),
+        PSI_NODES("PSI nodes");
+
+        private final String displayName;
+
+        Counter(String displayName) {
+            this.displayName = displayName;
+        }
+
+        String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Parts of the tool window created lazily, when first shown.
+     */
+    enum Startup {
+        WINDOW("Tool window"),
+        EXPLANATION("Explanation tree"),
+        QUICK_REFERENCE("Quick reference"),
+        FIRST_UPDATE("First update");
+
+        private final String displayName;
+
+        Startup(String displayName) {
+            this.displayName = displayName;
+        }
+
+        String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final Map<Stage, RollingHistogram> stages = new EnumMap<>(Stage.class);
+    private final Map<Counter, RollingHistogram> counters = new EnumMap<>(Counter.class);
+    private final Map<Startup, Long> startup = new EnumMap<>(Startup.class);
+    private final CompiledPatternCache cache;
+    private volatile long cacheHitsBefore;
+    private volatile long cacheMissesBefore;
+    private volatile boolean enabled;
+
+    UpdateStats(CompiledPatternCache cache) {
+        this.cache = cache;
+        cacheHitsBefore = cache.getHits();
+        cacheMissesBefore = cache.getMisses();
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new RollingHistogram(WINDOW));
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new RollingHistogram(WINDOW));
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return start time to pass to {@link #finish}, 0 while recording is off
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    void finish(Stage stage, long start) {
+        if (start != 0 && enabled) {
+            stages.get(stage).record(System.nanoTime() - start);
+        }
+    }
+
+    void count(Counter counter, long value) {
+        if (enabled) {
+            counters.get(counter).record(value);
+        }
+    }
+
+    synchronized void recordStartup(Startup part, long nanos) {
+        startup.putIfAbsent(part, nanos);
+    }
+
+    /**
+     * @return time it took to create the part, or -1 if it has not been created yet
+     */
+    synchronized long getStartup(Startup part) {
+        return startup.getOrDefault(part, -1L);
+    }
+
+    RollingHistogram.Snapshot getStage(Stage stage) {
+        return stages.get(stage).snapshot();
+    }
+
+    RollingHistogram.Snapshot getCounter(Counter counter) {
+        return counters.get(counter).snapshot();
+    }
+
+    long getCacheHits() {
+        return cache.getHits() - cacheHitsBefore;
+    }
+
+    long getCacheMisses() {
+        return cache.getMisses() - cacheMissesBefore;
+    }
+
+    int getCacheSize() {
+        return cache.size();
+    }
+
+    void clear() {
+        stages.values().forEach(RollingHistogram::clear);
+        counters.values().forEach(RollingHistogram::clear);
+        cacheHitsBefore = cache.getHits();
+        cacheMissesBefore = cache.getMisses();
+    }
+
+    /**
+     * @return every histogram as JSON, stage latencies in nanoseconds and counters as values per update,
+     * followed by the startup costs in nanoseconds, -1 for parts not created yet, and the pattern cache counts
+     */
+    String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"window\": ").append(WINDOW).append(",\n  \"startup\": {");
+        String separator = "\n";
+        for (Startup part : Startup.values()) {
+            json.append(separator).append("    \"").append(part.name().toLowerCase(Locale.ROOT)).append("\": ").append(getStartup(part));
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"stages\": {");
+        separator = "\n";
+        for (Stage stage : Stage.values()) {
+            appendHistogram(json.append(separator), stage.name(), getStage(stage));
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"counters\": {");
+        separator = "\n";
+        for (Counter counter : Counter.values()) {
+            appendHistogram(json.append(separator), counter.name(), getCounter(counter));
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"pattern_cache\": {\"hits\": ").append(getCacheHits())
+                .append(", \"misses\": ").append(getCacheMisses())
+                .append(", \"size\": ").append(getCacheSize());
+        return json.append("}\n}\n").toString();
+    }
+
+    private static void appendHistogram(StringBuilder json, String name, RollingHistogram.Snapshot snapshot) {
+        json.append("    \"").append(name.toLowerCase(Locale.ROOT)).append("\": {")
+                .append("\"count\": ").append(snapshot.getTotalCount())
+                .append(", \"samples\": ").append(snapshot.getSampleCount())
+                .append(", \"mean\": ").append(String.format(Locale.ROOT, "%.1f", snapshot.getMean()))
+                .append(", \"p50\": ").append(snapshot.getPercentile(0.5))
+                .append(", \"p90\": ").append(snapshot.getPercentile(0.9))
+                .append(", \"p99\": ").append(snapshot.getPercentile(0.99))
+                .append(", \"max\": ").append(snapshot.getMax())
+                .append('}');
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.HideableDecorator;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.util.ui.JBUI;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+
+/**
+ * Collapsible strip with the per-stage latencies and counts of {@link UpdateStats}, the startup cost of the tool window
+ * and the hit rate of the pattern cache.
+ * Statistics are recorded and refreshed only while the strip is expanded.
+ */
+class UpdateStatsStrip {
+
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final UpdateStats myStats;
+    private final JBLabel myTable = new JBLabel();
+    private final Timer myTimer;
+
+    UpdateStatsStrip(JPanel panel, UpdateStats stats, Disposable parent) {
+        myStats = stats;
+        myTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+        Disposer.register(parent, myTimer::stop);
+
+        JButton copyButton = new JButton("Copy as JSON");
+        copyButton.addActionListener(e -> CopyPasteManager.getInstance().setContents(new StringSelection(myStats.toJson())));
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            myStats.clear();
+            refresh();
+        });
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        buttons.add(copyButton);
+        buttons.add(resetButton);
+
+        JPanel content = new JPanel(new BorderLayout());
+        myTable.setBorder(JBUI.Borders.empty(4));
+        content.add(myTable, BorderLayout.CENTER);
+        content.add(buttons, BorderLayout.SOUTH);
+
+        HideableDecorator decorator = new HideableDecorator(panel, "Update Statistics", false) {
+            @Override
+            protected void on() {
+                myStats.setEnabled(true);
+                refresh();
+                myTimer.start();
+                super.on();
+            }
+
+            @Override
+            protected void off() {
+                myTimer.stop();
+                myStats.setEnabled(false);
+                super.off();
+            }
+        };
+        decorator.setContentComponent(content);
+        decorator.setOn(false);
+    }
+
+    private void refresh() {
+        StringBuilder html = new StringBuilder("<html><table cellpadding='1'><tr><th align='left'>Stage</th><th>Count</th>"
+                + "<th>p50, ms</th><th>p90, ms</th><th>p99, ms</th><th>Max, ms</th></tr>");
+        for (UpdateStats.Stage stage : UpdateStats.Stage.values()) {
+            RollingHistogram.Snapshot snapshot = myStats.getStage(stage);
+            html.append("<tr><td>").append(stage.getDisplayName()).append("</td><td align='right'>").append(snapshot.getTotalCount());
+            for (long value : new long[]{snapshot.getPercentile(0.5), snapshot.getPercentile(0.9), snapshot.getPercentile(0.99), snapshot.getMax()}) {
+                html.append("</td><td align='right'>").append(String.format("%.2f", value / 1e6));
+            }
+            html.append("</td></tr>");
+        }
+        html.append("<tr><th align='left'>Per update</th><th>Updates</th><th>p50</th><th>p90</th><th>p99</th><th>Max</th></tr>");
+        for (UpdateStats.Counter counter : UpdateStats.Counter.values()) {
+            RollingHistogram.Snapshot snapshot = myStats.getCounter(counter);
+            html.append("<tr><td>").append(counter.getDisplayName()).append("</td><td align='right'>").append(snapshot.getTotalCount());
+            for (long value : new long[]{snapshot.getPercentile(0.5), snapshot.getPercentile(0.9), snapshot.getPercentile(0.99), snapshot.getMax()}) {
+                html.append("</td><td align='right'>").append(value);
+            }
+            html.append("</td></tr>");
+        }
+        html.append("<tr><th align='left'>Startup</th><th colspan='5' align='left'>ms</th></tr>");
+        for (UpdateStats.Startup part : UpdateStats.Startup.values()) {
+            long nanos = myStats.getStartup(part);
+            html.append("<tr><td>").append(part.getDisplayName()).append("</td><td colspan='5' align='left'>")
+                    .append(nanos < 0 ? "not shown yet" : String.format("%.2f", nanos / 1e6)).append("</td></tr>");
+        }
+        long hits = myStats.getCacheHits();
+        long lookups = hits + myStats.getCacheMisses();
+        html.append("<tr><th align='left'>Pattern cache</th><th colspan='5' align='left'>Lookups</th></tr>")
+                .append("<tr><td>Hits</td><td colspan='5' align='left'>").append(hits).append(" of ").append(lookups)
+                .append(lookups == 0 ? "" : String.format(", %.0f%%", 100.0 * hits / lookups)).append("</td></tr>")
+                .append("<tr><td>Cached patterns</td><td colspan='5' align='left'>").append(myStats.getCacheSize()).append("</td></tr>");
+        myTable.setText(html.append("</table></html>").toString());
+    }
+}
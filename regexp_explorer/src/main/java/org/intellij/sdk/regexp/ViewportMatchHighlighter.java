@@ -0,0 +1,307 @@
+/*
+ * Copyright 2022 Eva Galyuta and Sergey Nesterenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.intellij.sdk.regexp;
+
+import com.intellij.codeInsight.highlighting.HighlightManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.colors.EditorColorsManager;
+import com.intellij.openapi.editor.event.VisibleAreaListener;
+import com.intellij.openapi.editor.ex.EditorMarkupModel;
+import com.intellij.openapi.editor.markup.HighlighterLayer;
+import com.intellij.openapi.editor.markup.HighlighterTargetArea;
+import com.intellij.openapi.editor.markup.MarkupModel;
+import com.intellij.openapi.editor.markup.RangeHighlighter;
+import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.EditorTextField;
+import com.intellij.ui.JBColor;
+import org.intellij.lang.regexp.RegExpHighlighter;
+import org.intellij.sdk.regexp.engine.MatchRanges;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Highlights matches in the test strings editor.
+ * <p>
+ * All match offsets are kept in {@link MatchRanges}, highlighters are created only for the visible
+ * part of the editor plus one screen above and below it, and are moved along when the editor scrolls.
+ * The rest of the document is summarized by a fixed number of error stripe marks, one per bucket of lines.
+ * Highlighters survive document edits: new ranges reuse the highlighters that already cover them, so only
+ * matches inside an incrementally re-matched region are replaced. Until the ranges of an edit arrive,
+ * scrolling leaves the highlighters alone, the known ranges no longer fit the document.
+ * A pattern set gets one layer of ranges per pattern, each highlighted in its own color.
+ */
+class ViewportMatchHighlighter {
+
+    private static final int MIN_MARGIN_LINES = 20;
+    private static final int MAX_VISIBLE_HIGHLIGHTERS = 5000;
+    private static final int MIN_VISIBLE_HIGHLIGHTERS_PER_LAYER = 200;
+    private static final int STRIPE_BUCKETS = 200;
+    private static final int MIN_STRIPE_BUCKETS_PER_LAYER = 20;
+
+    private final Project myProject;
+    private final EditorTextField myTextField;
+    private final UpdateStats myStats;
+
+    // one layer of ranges per pattern, each with its own color
+    private final List<Layer> myLayers = new ArrayList<>();
+    private final List<RangeHighlighter> myStripeHighlighters = new ArrayList<>();
+    // the document changed after the ranges were found
+    private boolean myOutdated;
+
+    ViewportMatchHighlighter(Project project, EditorTextField textField, UpdateStats stats) {
+        myProject = project;
+        myTextField = textField;
+        myStats = stats;
+        VisibleAreaListener listener = e -> refreshVisible();
+        myTextField.addSettingsProvider(editor -> {
+            ((EditorMarkupModel) editor.getMarkupModel()).setErrorStripeVisible(true);
+            editor.getScrollingModel().addVisibleAreaListener(listener);
+        });
+    }
+
+    int getMatchCount() {
+        int count = 0;
+        for (Layer layer : myLayers) {
+            count += layer.ranges.size();
+        }
+        return count;
+    }
+
+    void setRanges(MatchRanges ranges) {
+        setLayers(List.of(ranges), null);
+    }
+
+    /**
+     * Highlights several sets of ranges at once, ranges of different sets may overlap.
+     *
+     * @param colors background color of each set, or null to use the matched groups color for all of them
+     */
+    void setLayers(List<MatchRanges> layers, List<Color> colors) {
+        long start = myStats.start();
+        List<Layer> previous = new ArrayList<>(myLayers);
+        myLayers.clear();
+        myOutdated = false;
+        for (int i = 0; i < layers.size(); i++) {
+            TextAttributes attributes = null;
+            if (colors != null) {
+                attributes = new TextAttributes();
+                attributes.setBackgroundColor(colors.get(i));
+            }
+            Layer layer = new Layer(layers.get(i), attributes);
+            if (i < previous.size() && Objects.equals(getColor(previous.get(i)), getColor(layer))) {
+                layer.reusable.addAll(previous.get(i).visibleHighlighters);
+                previous.get(i).visibleHighlighters.clear();
+            }
+            myLayers.add(layer);
+        }
+        int removed = removeHighlighters(previous);
+        myStats.count(UpdateStats.Counter.HIGHLIGHTERS_REMOVED, removed);
+        myStats.finish(UpdateStats.Stage.HIGHLIGHT, start);
+
+        Editor editor = myTextField.getEditor();
+        if (editor == null) {
+            for (Layer layer : myLayers) {
+                layer.reusable.clear();
+            }
+            return;
+        }
+        refreshVisible();
+        if (getMatchCount() > 0) {
+            addStripes(editor);
+        }
+    }
+
+    /**
+     * Keeps the highlighters but stops moving them along with scrolling until {@link #setLayers} brings ranges
+     * matching the edited document.
+     */
+    void documentChanged() {
+        myOutdated = true;
+    }
+
+    void clear() {
+        long start = myStats.start();
+        int removed = removeHighlighters(myLayers);
+        myLayers.clear();
+        myOutdated = false;
+        myStats.count(UpdateStats.Counter.HIGHLIGHTERS_REMOVED, removed);
+        myStats.finish(UpdateStats.Stage.HIGHLIGHT, start);
+    }
+
+    /**
+     * Removes the visible highlighters of the layers and all error stripe marks.
+     *
+     * @return number of highlighters removed
+     */
+    private int removeHighlighters(List<Layer> layers) {
+        int removed = myStripeHighlighters.size();
+        Editor editor = myTextField.getEditor();
+        HighlightManager highlightManager = HighlightManager.getInstance(myProject);
+        for (Layer layer : layers) {
+            removed += layer.visibleHighlighters.size();
+            if (editor != null) {
+                for (RangeHighlighter highlighter : layer.visibleHighlighters) {
+                    highlightManager.removeSegmentHighlighter(editor, highlighter);
+                }
+            }
+            layer.visibleHighlighters.clear();
+        }
+        for (RangeHighlighter highlighter : myStripeHighlighters) {
+            highlighter.dispose();
+        }
+        myStripeHighlighters.clear();
+        return removed;
+    }
+
+    private void refreshVisible() {
+        Editor editor = myTextField.getEditor();
+        if (editor == null || myLayers.isEmpty() || myOutdated) {
+            return;
+        }
+        Document document = editor.getDocument();
+        int lastDocumentLine = Math.max(document.getLineCount() - 1, 0);
+        Rectangle area = editor.getScrollingModel().getVisibleArea();
+        int firstLine = editor.xyToLogicalPosition(new Point(0, area.y)).line;
+        int lastLine = editor.xyToLogicalPosition(new Point(0, area.y + area.height)).line;
+        int margin = Math.max(lastLine - firstLine, MIN_MARGIN_LINES);
+        int startOffset = document.getLineStartOffset(Math.min(Math.max(firstLine - margin, 0), lastDocumentLine));
+        int endOffset = document.getLineEndOffset(Math.min(lastLine + margin, lastDocumentLine));
+        int maxPerLayer = Math.max(MAX_VISIBLE_HIGHLIGHTERS / myLayers.size(), MIN_VISIBLE_HIGHLIGHTERS_PER_LAYER);
+
+        long start = myStats.start();
+        int added = 0;
+        int removed = 0;
+        HighlightManager highlightManager = HighlightManager.getInstance(myProject);
+        for (Layer layer : myLayers) {
+            MatchRanges ranges = layer.ranges;
+            int from = ranges.indexOfFirstEndingAtOrAfter(startOffset);
+            int to = Math.min(ranges.indexOfFirstStartingAfter(endOffset), from + maxPerLayer);
+            int oldFrom = layer.visibleFrom;
+            int oldTo = oldFrom + layer.visibleHighlighters.size();
+            if (from == oldFrom && to == oldTo && layer.reusable.isEmpty()) {
+                continue;
+            }
+            List<RangeHighlighter> highlighters = new ArrayList<>(Math.max(to - from, 0));
+            int reusable = 0;
+            for (int i = from; i < to; i++) {
+                int rangeStart = ranges.getStart(i);
+                int rangeEnd = ranges.getEnd(i);
+                // both lists are sorted by start, highlighters from before the edit have moved along with the text
+                while (reusable < layer.reusable.size()
+                        && (!layer.reusable.get(reusable).isValid() || layer.reusable.get(reusable).getStartOffset() < rangeStart)) {
+                    reusable++;
+                }
+                RangeHighlighter candidate = reusable < layer.reusable.size() ? layer.reusable.get(reusable) : null;
+                if (i >= oldFrom && i < oldTo) {
+                    highlighters.add(layer.visibleHighlighters.get(i - oldFrom));
+                } else if (candidate != null && candidate.getStartOffset() == rangeStart && candidate.getEndOffset() == rangeEnd) {
+                    highlighters.add(candidate);
+                    layer.reusable.set(reusable++, null);
+                } else if (layer.attributes == null) {
+                    highlightManager.addRangeHighlight(editor, ranges.getStart(i), ranges.getEnd(i),
+                            RegExpHighlighter.MATCHED_GROUPS, false, highlighters);
+                    added++;
+                } else {
+                    highlightManager.addRangeHighlight(editor, ranges.getStart(i), ranges.getEnd(i),
+                            layer.attributes, false, highlighters);
+                    added++;
+                }
+            }
+            for (int i = oldFrom; i < oldTo; i++) {
+                if (i < from || i >= to) {
+                    highlightManager.removeSegmentHighlighter(editor, layer.visibleHighlighters.get(i - oldFrom));
+                    removed++;
+                }
+            }
+            for (RangeHighlighter highlighter : layer.reusable) {
+                if (highlighter != null) {
+                    highlightManager.removeSegmentHighlighter(editor, highlighter);
+                    removed++;
+                }
+            }
+            layer.reusable.clear();
+            layer.visibleHighlighters.clear();
+            layer.visibleHighlighters.addAll(highlighters);
+            layer.visibleFrom = from;
+        }
+        myStats.finish(UpdateStats.Stage.HIGHLIGHT, start);
+        myStats.count(UpdateStats.Counter.HIGHLIGHTERS_ADDED, added);
+        myStats.count(UpdateStats.Counter.HIGHLIGHTERS_REMOVED, removed);
+    }
+
+    /**
+     * Adds one error stripe mark per bucket of lines that contains matches, walking the sorted ranges of each layer once.
+     */
+    private void addStripes(Editor editor) {
+        Document document = editor.getDocument();
+        int lineCount = Math.max(document.getLineCount(), 1);
+        int buckets = Math.min(Math.max(STRIPE_BUCKETS / myLayers.size(), MIN_STRIPE_BUCKETS_PER_LAYER), lineCount);
+        MarkupModel markupModel = editor.getMarkupModel();
+
+        for (Layer layer : myLayers) {
+            MatchRanges ranges = layer.ranges;
+            Color color = layer.attributes == null ? getStripeColor() : layer.attributes.getBackgroundColor();
+            int index = 0;
+            for (int bucket = 0; bucket < buckets && index < ranges.size(); bucket++) {
+                int lastLine = (int) ((long) (bucket + 1) * lineCount / buckets) - 1;
+                int bucketEnd = document.getLineEndOffset(Math.min(lastLine, document.getLineCount() - 1));
+                int first = index;
+                while (index < ranges.size() && ranges.getStart(index) <= bucketEnd) {
+                    index++;
+                }
+                if (index == first) {
+                    continue;
+                }
+                RangeHighlighter stripe = markupModel.addRangeHighlighter(ranges.getStart(first), ranges.getEnd(first),
+                        HighlighterLayer.SELECTION - 1, null, HighlighterTargetArea.EXACT_RANGE);
+                stripe.setErrorStripeMarkColor(color);
+                stripe.setErrorStripeTooltip(index - first == 1 ? "1 match" : (index - first) + " matches");
+                stripe.setThinErrorStripeMark(true);
+                myStripeHighlighters.add(stripe);
+            }
+        }
+    }
+
+    private static Color getColor(Layer layer) {
+        return layer.attributes == null ? null : layer.attributes.getBackgroundColor();
+    }
+
+    private static Color getStripeColor() {
+        TextAttributes attributes = EditorColorsManager.getInstance().getGlobalScheme().getAttributes(RegExpHighlighter.MATCHED_GROUPS);
+        Color color = attributes == null ? null : attributes.getBackgroundColor();
+        return color == null ? JBColor.GREEN : color;
+    }
+
+    private static final class Layer {
+
+        private final MatchRanges ranges;
+        private final TextAttributes attributes;
+        private final List<RangeHighlighter> visibleHighlighters = new ArrayList<>();
+        private int visibleFrom;
+        // highlighters of the previous ranges not yet taken over, null once taken
+        private final List<RangeHighlighter> reusable = new ArrayList<>();
+
+        private Layer(MatchRanges ranges, TextAttributes attributes) {
+            this.ranges = ranges;
+            this.attributes = attributes;
+        }
+    }
+}